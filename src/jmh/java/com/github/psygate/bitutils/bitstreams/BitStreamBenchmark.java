@@ -0,0 +1,137 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes fixed width values through the bit streams. Unaligned runs start one value three bits into the
+ * stream, so no value starts on a byte boundary by accident.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitStreamBenchmark {
+    private static final int DATA_SIZE = 1 << 20;
+
+    @Param({"1", "7", "13", "32", "64"})
+    public int width;
+
+    @Param({"true", "false"})
+    public boolean aligned;
+
+    private byte[] data;
+    private long[] values;
+    private int count;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(175195L);
+        data = new byte[DATA_SIZE];
+        rand.nextBytes(data);
+
+        count = (DATA_SIZE * Byte.SIZE - Byte.SIZE) / width;
+        values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = rand.nextLong();
+        }
+    }
+
+    @Benchmark
+    public void bitInputStream(Blackhole hole) throws IOException {
+        BitInputStream in = new BitInputStream(new ByteArrayInputStream(data));
+        read(in, hole);
+    }
+
+    @Benchmark
+    public void byteArrayBitInputStream(Blackhole hole) throws IOException {
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(data);
+        read(in, hole);
+    }
+
+    @Benchmark
+    public byte[] bitOutputStream() throws IOException {
+        ByteArrayOutputStream base = new ByteArrayOutputStream(DATA_SIZE);
+        BitOutputStream out = new BitOutputStream(base);
+
+        if (!aligned) {
+            out.writeBits(0, 3);
+        }
+
+        for (int i = 0; i < count; i++) {
+            out.writeBitsLong(values[i], width);
+        }
+
+        out.close();
+        return base.toByteArray();
+    }
+
+    @Benchmark
+    public long[] byteArrayBitInputStreamPacked() throws IOException {
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(data);
+        if (!aligned) {
+            in.readBits(3);
+        }
+
+        long[] output = new long[count];
+        in.readPacked(output, 0, count, width);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] bitOutputStreamPacked() throws IOException {
+        ByteArrayOutputStream base = new ByteArrayOutputStream(DATA_SIZE);
+        BitOutputStream out = new BitOutputStream(base);
+
+        if (!aligned) {
+            out.writeBits(0, 3);
+        }
+
+        out.writePacked(values, 0, count, width);
+        out.close();
+        return base.toByteArray();
+    }
+
+    private void read(AbstractBitInputStream in, Blackhole hole) throws IOException {
+        if (!aligned) {
+            in.readBits(3);
+        }
+
+        for (int i = 0; i < count; i++) {
+            hole.consume(in.readBitsLong(width));
+        }
+    }
+}
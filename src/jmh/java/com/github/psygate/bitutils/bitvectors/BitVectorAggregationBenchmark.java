@@ -0,0 +1,91 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * N-way aggregation compared to pairwise folding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitVectorAggregationBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"8", "128"})
+    public int count;
+
+    @Param({"0.01", "0.5"})
+    public double density;
+
+    private BitVector[] vectors;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(175195L);
+        vectors = new BitVector[count];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = BitVectorLogicBenchmark.randomVector(rand, size, density);
+        }
+    }
+
+    @Benchmark
+    public BitVector orPairwise() {
+        BitVector result = vectors[0];
+        for (int i = 1; i < count; i++) {
+            result = result.or(vectors[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public BitVector or() {
+        return BitVectorAggregation.or(vectors);
+    }
+
+    @Benchmark
+    public BitVector and() {
+        return BitVectorAggregation.and(vectors);
+    }
+
+    @Benchmark
+    public BitVector atLeastHalf() {
+        return BitVectorAggregation.atLeast(count / 2, vectors);
+    }
+
+    @Benchmark
+    public BitVector parallelOr() {
+        return BitVectorAggregation.parallelOr(vectors);
+    }
+}
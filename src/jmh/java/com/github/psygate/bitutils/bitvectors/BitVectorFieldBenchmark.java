@@ -0,0 +1,139 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the word based field access of {@link BitVector} against the bit by bit loops it replaced. Aligned runs
+ * start every field on a word boundary, so no field spans two words.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitVectorFieldBenchmark {
+    private static final int VECTOR_SIZE = Long.SIZE * 16384;
+    private static final int FIELDS = 4096;
+
+    @Param({"7", "13", "32"})
+    public int width;
+
+    @Param({"true", "false"})
+    public boolean aligned;
+
+    private BitVector vector;
+    private int[] positions;
+    private long[] values;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(175195L);
+        long[] words = new long[VECTOR_SIZE / Long.SIZE];
+
+        for (int i = 0; i < words.length; i++) {
+            words[i] = rand.nextLong();
+        }
+
+        vector = BitVector.of(words);
+        positions = new int[FIELDS];
+        values = new long[FIELDS];
+
+        for (int i = 0; i < FIELDS; i++) {
+            int position = rand.nextInt(VECTOR_SIZE - width);
+            positions[i] = aligned ? position - position % Long.SIZE : position;
+            values[i] = rand.nextLong();
+        }
+    }
+
+    @Benchmark
+    public void getBits(Blackhole hole) {
+        for (int position : positions) {
+            hole.consume(vector.getBits(position, width));
+        }
+    }
+
+    @Benchmark
+    public void getBitsBitByBit(Blackhole hole) {
+        for (int position : positions) {
+            int value = 0;
+            for (int i = 0; i < width; i++) {
+                value |= vector.getBit(position + i) << i;
+            }
+            hole.consume(value);
+        }
+    }
+
+    @Benchmark
+    public BitVector setBits() {
+        for (int i = 0; i < FIELDS; i++) {
+            vector.setBits(positions[i], values[i], width);
+        }
+
+        return vector;
+    }
+
+    @Benchmark
+    public BitVector setBitsBitByBit() {
+        for (int i = 0; i < FIELDS; i++) {
+            for (int j = 0; j < width; j++) {
+                vector.setBit(positions[i] + j, values[i] >>> j);
+            }
+        }
+
+        return vector;
+    }
+
+    @Benchmark
+    public BitVector writeBits() {
+        BitVector out = BitVector.withCapacity(FIELDS * width);
+
+        for (long value : values) {
+            out.writeBits(value, width);
+        }
+
+        return out;
+    }
+
+    @Benchmark
+    public BitVector writeBitsBitByBit() {
+        BitVector out = BitVector.withCapacity(FIELDS * width);
+
+        for (long value : values) {
+            for (int i = 0; i < width; i++) {
+                out.writeBit(value >>> i);
+            }
+        }
+
+        return out;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logical, shift and hashing operations on whole vectors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitVectorLogicBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    @Param({"0.01", "0.5"})
+    public double density;
+
+    private BitVector left;
+    private BitVector right;
+    private BitVector target;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(175195L);
+        left = randomVector(rand, size, density);
+        right = randomVector(rand, size, density);
+        target = left.copy();
+    }
+
+    static BitVector randomVector(Random rand, int size, double density) {
+        BitVector vector = BitVector.withCapacity(size);
+
+        for (int i = 0; i < size; i++) {
+            vector.writeBit(rand.nextDouble() < density);
+        }
+
+        return vector;
+    }
+
+    @Benchmark
+    public BitVector and() {
+        return left.and(right);
+    }
+
+    @Benchmark
+    public BitVector or() {
+        return left.or(right);
+    }
+
+    @Benchmark
+    public BitVector xor() {
+        return left.xor(right);
+    }
+
+    @Benchmark
+    public BitVector andInPlace() {
+        return target.andInPlace(right);
+    }
+
+    @Benchmark
+    public BitVector orInPlace() {
+        return target.orInPlace(right);
+    }
+
+    @Benchmark
+    public BitVector not() {
+        return left.not();
+    }
+
+    @Benchmark
+    public BitVector shiftLeftUnaligned() {
+        return target.shiftLeft(3);
+    }
+
+    @Benchmark
+    public BitVector rotateLeftUnaligned() {
+        return target.rotateLeft(size / 3 + 5);
+    }
+
+    @Benchmark
+    public BitVector copy() {
+        return left.copy();
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return left.equals(target);
+    }
+
+    @Benchmark
+    public int hashCodeAfterModification() {
+        target.setBit(0, !target.get(0));
+        return target.hashCode();
+    }
+}
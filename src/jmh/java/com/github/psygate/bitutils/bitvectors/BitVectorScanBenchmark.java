@@ -0,0 +1,119 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning, rank/select and substring search over vectors of varying size and density.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitVectorScanBenchmark {
+    private static final int QUERIES = 1024;
+
+    @Param({"100000", "10000000"})
+    public int size;
+
+    @Param({"0.001", "0.1", "0.5"})
+    public double density;
+
+    @Param({"16", "100"})
+    public int patternSize;
+
+    private BitVector vector;
+    private BitVector pattern;
+    private RankSelectIndex index;
+    private int[] positions;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(175195L);
+        vector = BitVectorLogicBenchmark.randomVector(rand, size, density);
+        pattern = BitVectorLogicBenchmark.randomVector(rand, patternSize, 0.5);
+        vector.set(size - patternSize - 7, pattern);
+        index = new RankSelectIndex(vector);
+        positions = new int[QUERIES];
+
+        for (int i = 0; i < QUERIES; i++) {
+            positions[i] = rand.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public void iterateSetBits(Blackhole hole) {
+        for (int i = vector.nextSetBit(0); i != -1; i = vector.nextSetBit(i + 1)) {
+            hole.consume(i);
+        }
+    }
+
+    @Benchmark
+    public void previousSetBit(Blackhole hole) {
+        for (int position : positions) {
+            hole.consume(vector.previousSetBit(position));
+        }
+    }
+
+    @Benchmark
+    public void rank(Blackhole hole) {
+        for (int position : positions) {
+            hole.consume(index.rank1(position));
+        }
+    }
+
+    @Benchmark
+    public void select(Blackhole hole) {
+        int ones = index.ones();
+
+        for (int position : positions) {
+            hole.consume(index.select1(position % ones));
+        }
+    }
+
+    @Benchmark
+    public RankSelectIndex buildIndex() {
+        index.rebuild();
+        return index;
+    }
+
+    @Benchmark
+    public int indexOf() {
+        return vector.indexOf(pattern);
+    }
+
+    @Benchmark
+    public int lastIndexOf() {
+        return vector.lastIndexOf(pattern);
+    }
+}
@@ -26,11 +26,15 @@
 package com.github.psygate.bitutils.bitstreams;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * Created by psygate on 08.10.2017.
  */
 public abstract class AbstractBitInputStream extends InputStream implements DataInput, AutoCloseable {
+    private final static long VARINT_CONTINUATION = 0x8080808080808080L;
+
     protected long position = 0;
 
     public int readBit() throws IOException {
@@ -49,16 +53,104 @@ public abstract class AbstractBitInputStream extends InputStream implements Data
 
     public long readBitsLong(int amount) throws IOException {
         if (amount < 0 || amount > Long.SIZE) {
+            throw new IOException("Requested bit amount exceeds data type. (" + amount + "/" + Long.SIZE + ")");
+        } else {
+            checkAvailable(amount);
+            return readBitsLongUnchecked(amount);
+        }
+    }
+
+    /**
+     * Returns the next amount bits without consuming them. Bits past the end of the stream read as zero, so decoders
+     * can always peek a full window. Actually reading those bits still fails.
+     *
+     * @param amount Amount of bits to peek, between 0 and {@link Long#SIZE}.
+     * @return Long containing the bits, starting at the least significant bit.
+     * @throws IOException If the amount is out of bounds or the stream cannot be read.
+     */
+    public long peekBitsLong(int amount) throws IOException {
+        if (amount < 0 || amount > Long.SIZE) {
+            throw new IOException("Requested bit amount exceeds data type. (" + amount + "/" + Long.SIZE + ")");
+        } else if (amount == 0) {
+            return 0;
+        } else {
+            return peekBitsLongUnchecked(amount);
+        }
+    }
+
+    /**
+     * Returns the next amount bits without consuming them, see {@link #peekBitsLong(int)}.
+     *
+     * @param amount Amount of bits to peek, between 0 and {@link Integer#SIZE}.
+     * @return Int containing the bits, starting at the least significant bit.
+     * @throws IOException If the amount is out of bounds or the stream cannot be read.
+     */
+    public int peekBits(int amount) throws IOException {
+        if (amount < 0 || amount > Integer.SIZE) {
             throw new IOException("Requested bit amount exceeds data type. (" + amount + "/" + Integer.SIZE + ")");
-        } else if (amount <= Integer.SIZE) {
-            return readBits(amount) & 0xFFFFFFFFL;
+        } else if (amount == 0) {
+            return 0;
         } else {
-            long lower = (readBits(Integer.SIZE) & 0xFFFFFFFFL);
-            long upper = (readBits(amount - Integer.SIZE) & 0xFFFFFFFFL) << Integer.SIZE;
-            return lower | upper;
+            return (int) peekBitsLongUnchecked(amount);
         }
     }
 
+    /**
+     * Peeks between 1 and {@link Long#SIZE} bits without moving the position, bits past the end read as zero.
+     */
+    protected abstract long peekBitsLongUnchecked(int amount) throws IOException;
+
+    /**
+     * Skips amount bits.
+     *
+     * @param amount Amount of bits to skip.
+     * @throws IOException If the amount is negative or the stream ends first. Streams that cannot tell their length in
+     *                     advance have skipped to the end in that case.
+     */
+    public void skipBits(long amount) throws IOException {
+        if (amount < 0) {
+            throw new IOException("Cannot skip a negative amount of bits. (" + amount + ")");
+        }
+
+        checkAvailable(amount);
+        long skipped = skipBitsUnchecked(amount);
+        if (skipped < amount) {
+            throw new EOFException("Stream exhausted, skipped " + skipped + " of " + amount + " bits.");
+        }
+    }
+
+    /**
+     * Skips to the next byte boundary, does nothing if the stream is already aligned.
+     *
+     * @throws IOException If the stream ends first.
+     */
+    public void alignToByte() throws IOException {
+        skipBits(-position & 0x7);
+    }
+
+    /**
+     * Skips up to amount bits, stopping at the end of the stream. The default reads and discards the bits.
+     *
+     * @param amount Amount of bits to skip, not negative.
+     * @return The amount of bits skipped.
+     * @throws IOException If the stream cannot be read.
+     */
+    protected long skipBitsUnchecked(long amount) throws IOException {
+        long skipped = 0;
+
+        for (int chunk = Long.SIZE; skipped < amount && chunk > 0; ) {
+            chunk = (int) Math.min(chunk, amount - skipped);
+            try {
+                readBitsLong(chunk);
+                skipped += chunk;
+            } catch (EOFException e) {
+                // Halve the chunk until the rest of the stream is consumed exactly.
+                chunk /= 2;
+            }
+        }
+
+        return skipped;
+    }
 
     public long getPosition() {
         return position;
@@ -70,8 +162,339 @@ public abstract class AbstractBitInputStream extends InputStream implements Data
 
     protected abstract int readBitsUnchecked(int amount) throws IOException;
 
+    /**
+     * Reads up to {@link Long#SIZE} bits after the amount has been checked. Implementations that can extract a long at
+     * once should override this, the default splits the read into two int reads.
+     *
+     * @param amount Amount of bits to read, between 0 and {@link Long#SIZE}.
+     * @return Long containing the bits read, starting at the least significant bit.
+     * @throws IOException If the bits cannot be read.
+     */
+    protected long readBitsLongUnchecked(int amount) throws IOException {
+        if (amount <= Integer.SIZE) {
+            return readBitsUnchecked(amount) & 0xFFFFFFFFL;
+        } else {
+            long lower = (readBitsUnchecked(Integer.SIZE) & 0xFFFFFFFFL);
+            long upper = (readBitsUnchecked(amount - Integer.SIZE) & 0xFFFFFFFFL) << Integer.SIZE;
+            return lower | upper;
+        }
+    }
+
     protected abstract void checkAvailable(long amount) throws IOException;
 
+    /**
+     * Reads len values of bitWidth bits each into dst. The amount of bits is checked once for the whole array and the
+     * values are unpacked from 64 bit words, so this is much faster than calling {@link #readBits(int)} in a loop.
+     *
+     * @param dst      Array to store the values in.
+     * @param off      Index of the first value in dst.
+     * @param len      Amount of values to read.
+     * @param bitWidth Width of every value, between 0 and {@link Integer#SIZE}.
+     * @throws IOException If the width is out of bounds or the stream doesn't contain enough bits.
+     */
+    public void readPacked(int[] dst, int off, int len, int bitWidth) throws IOException {
+        if (bitWidth < 0 || bitWidth > Integer.SIZE) {
+            throw new IOException("Requested bit amount exceeds data type. (" + bitWidth + "/" + Integer.SIZE + ")");
+        }
+        Objects.checkFromIndexSize(off, len, dst.length);
+        checkAvailable((long) len * bitWidth);
+
+        int end = off + len;
+        int i = off;
+        if (bitWidth == 0) {
+            Arrays.fill(dst, off, end, 0);
+        } else if (Long.SIZE % bitWidth == 0) {
+            // Values never straddle words, every word holds exactly perWord values.
+            int mask = fitIntegerMask(bitWidth);
+            int perWord = Long.SIZE / bitWidth;
+            for (; end - i >= perWord; ) {
+                long word = readBitsLongUnchecked(Long.SIZE);
+                for (int k = 0; k < perWord; k++) {
+                    dst[i++] = (int) word & mask;
+                    word >>>= bitWidth;
+                }
+            }
+
+            for (; i < end; i++) {
+                dst[i] = (int) readBitsLongUnchecked(bitWidth);
+            }
+        } else {
+            long mask = fitMask(bitWidth);
+            long remaining = (long) len * bitWidth;
+            long word = 0;
+            int available = 0;
+
+            for (; i < end; i++) {
+                if (available >= bitWidth) {
+                    dst[i] = (int) (word & mask);
+                    word >>>= bitWidth;
+                    available -= bitWidth;
+                } else {
+                    int chunk = (int) Math.min(Long.SIZE, remaining);
+                    long next = readBitsLongUnchecked(chunk);
+                    remaining -= chunk;
+                    dst[i] = (int) ((word | (next << available)) & mask);
+                    int taken = bitWidth - available;
+                    word = next >>> taken;
+                    available = chunk - taken;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads len values of bitWidth bits each into dst, see {@link #readPacked(int[], int, int, int)}.
+     *
+     * @param dst      Array to store the values in.
+     * @param off      Index of the first value in dst.
+     * @param len      Amount of values to read.
+     * @param bitWidth Width of every value, between 0 and {@link Long#SIZE}.
+     * @throws IOException If the width is out of bounds or the stream doesn't contain enough bits.
+     */
+    public void readPacked(long[] dst, int off, int len, int bitWidth) throws IOException {
+        if (bitWidth < 0 || bitWidth > Long.SIZE) {
+            throw new IOException("Requested bit amount exceeds data type. (" + bitWidth + "/" + Long.SIZE + ")");
+        }
+        Objects.checkFromIndexSize(off, len, dst.length);
+        checkAvailable((long) len * bitWidth);
+
+        int end = off + len;
+        int i = off;
+        if (bitWidth == 0) {
+            Arrays.fill(dst, off, end, 0);
+        } else if (Long.SIZE % bitWidth == 0) {
+            long mask = fitMask(bitWidth);
+            int perWord = Long.SIZE / bitWidth;
+            for (; end - i >= perWord; ) {
+                long word = readBitsLongUnchecked(Long.SIZE);
+                for (int k = 0; k < perWord; k++) {
+                    dst[i++] = word & mask;
+                    word >>>= bitWidth;
+                }
+            }
+
+            for (; i < end; i++) {
+                dst[i] = readBitsLongUnchecked(bitWidth);
+            }
+        } else {
+            long mask = fitMask(bitWidth);
+            long remaining = (long) len * bitWidth;
+            long word = 0;
+            int available = 0;
+
+            for (; i < end; i++) {
+                if (available >= bitWidth) {
+                    dst[i] = word & mask;
+                    word >>>= bitWidth;
+                    available -= bitWidth;
+                } else {
+                    int chunk = (int) Math.min(Long.SIZE, remaining);
+                    long next = readBitsLongUnchecked(chunk);
+                    remaining -= chunk;
+                    dst[i] = (word | (next << available)) & mask;
+                    int taken = bitWidth - available;
+                    word = next >>> taken;
+                    available = chunk - taken;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint of at most 32 bits, see {@link AbstractBitOutputStream#writeVarInt(int)}.
+     *
+     * @return The value read.
+     * @throws IOException If the stream ends inside the varint or the value doesn't fit into 32 bits.
+     */
+    public int readVarInt() throws IOException {
+        return toUnsignedInt(readVarLong());
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint. Varints of up to 8 bytes are decoded from a single peeked window, without
+     * looking at the bytes one by one.
+     *
+     * @return The value read.
+     * @throws IOException If the stream ends inside the varint or the varint is malformed.
+     */
+    public long readVarLong() throws IOException {
+        long window = peekBitsLong(Long.SIZE);
+        long stops = ~window & VARINT_CONTINUATION;
+
+        if (stops != 0) {
+            int bits = Long.numberOfTrailingZeros(stops) + 1;
+            readBitsLong(bits);
+            return compact7(window & fitMask(bits));
+        }
+
+        readBitsLong(Long.SIZE);
+        long value = compact7(window);
+        for (int shift = 7 * Long.BYTES; ; shift += 7) {
+            int group = readBits(Byte.SIZE);
+            if (shift == Long.SIZE - 1 && group > 1) {
+                throw new IOException("Malformed varint, value exceeds 64 bits.");
+            }
+
+            value |= (long) (group & 0x7F) << shift;
+            if ((group & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Reads a zigzag encoded signed varint, see {@link AbstractBitOutputStream#writeZigZag(long)}.
+     *
+     * @return The value read.
+     * @throws IOException If the stream ends inside the varint or the varint is malformed.
+     */
+    public long readZigZag() throws IOException {
+        return decodeZigZag(readVarLong());
+    }
+
+    /**
+     * Reads len unsigned varints of at most 32 bits into dst, see {@link #readVarInt()}. Varints that fit into one peeked window are decoded together.
+     *
+     * @param dst Array to store the values in.
+     * @param off Index of the first value in dst.
+     * @param len Amount of values to read.
+     * @throws IOException If the stream ends inside a varint or a varint is malformed or doesn't fit into 32 bits.
+     */
+    public void readVarInt(int[] dst, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, dst.length);
+        readVarInts(dst, off, len, false);
+    }
+
+    /**
+     * Reads len unsigned varints into dst, see {@link #readVarLong()}. Varints that fit into one peeked window are decoded together.
+     *
+     * @param dst Array to store the values in.
+     * @param off Index of the first value in dst.
+     * @param len Amount of values to read.
+     * @throws IOException If the stream ends inside a varint or a varint is malformed.
+     */
+    public void readVarLong(long[] dst, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, dst.length);
+        readVarLongs(dst, off, len, false);
+    }
+
+    /**
+     * Reads len zigzag encoded signed varints of at most 32 bits into dst, see {@link #readZigZag()}. Varints that fit into one peeked window are decoded together.
+     *
+     * @param dst Array to store the values in.
+     * @param off Index of the first value in dst.
+     * @param len Amount of values to read.
+     * @throws IOException If the stream ends inside a varint or a varint is malformed or doesn't fit into 32 bits.
+     */
+    public void readZigZag(int[] dst, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, dst.length);
+        readVarInts(dst, off, len, true);
+    }
+
+    /**
+     * Reads len zigzag encoded signed varints into dst, see {@link #readZigZag()}. Varints that fit into one peeked window are decoded together.
+     *
+     * @param dst Array to store the values in.
+     * @param off Index of the first value in dst.
+     * @param len Amount of values to read.
+     * @throws IOException If the stream ends inside a varint or a varint is malformed.
+     */
+    public void readZigZag(long[] dst, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, dst.length);
+        readVarLongs(dst, off, len, true);
+    }
+
+    /**
+     * Decodes as many varints as fit into one peeked window before consuming them together. Varints crossing the
+     * window take the single value path.
+     */
+    private void readVarLongs(long[] dst, int off, int len, boolean zigZag) throws IOException {
+        int end = off + len;
+        int i = off;
+
+        while (i < end) {
+            long window = peekBitsLong(Long.SIZE);
+            int used = 0;
+
+            while (i < end && used < Long.SIZE) {
+                long stops = ~(window >>> used) & (VARINT_CONTINUATION >>> used);
+                if (stops == 0) {
+                    break;
+                }
+
+                int bits = Long.numberOfTrailingZeros(stops) + 1;
+                long value = compact7((window >>> used) & fitMask(bits));
+                dst[i++] = zigZag ? decodeZigZag(value) : value;
+                used += bits;
+            }
+
+            if (used > 0) {
+                readBitsLong(used);
+            } else {
+                dst[i++] = zigZag ? readZigZag() : readVarLong();
+            }
+        }
+    }
+
+    private void readVarInts(int[] dst, int off, int len, boolean zigZag) throws IOException {
+        int end = off + len;
+        int i = off;
+
+        while (i < end) {
+            long window = peekBitsLong(Long.SIZE);
+            int used = 0;
+
+            while (i < end && used < Long.SIZE) {
+                long stops = ~(window >>> used) & (VARINT_CONTINUATION >>> used);
+                if (stops == 0) {
+                    break;
+                }
+
+                int bits = Long.numberOfTrailingZeros(stops) + 1;
+                long value = compact7((window >>> used) & fitMask(bits));
+                dst[i++] = zigZag ? toSignedInt(decodeZigZag(value)) : toUnsignedInt(value);
+                used += bits;
+            }
+
+            if (used > 0) {
+                readBitsLong(used);
+            } else {
+                dst[i++] = zigZag ? toSignedInt(readZigZag()) : readVarInt();
+            }
+        }
+    }
+
+    /**
+     * Gathers the low 7 bits of each byte into the low 56 bits.
+     */
+    private static long compact7(long value) {
+        long x = value & 0x7F7F7F7F7F7F7F7FL;
+        x = (x & 0x007F007F007F007FL) | (x & 0x7F007F007F007F00L) >>> 1;
+        x = (x & 0x00003FFF00003FFFL) | (x & 0x3FFF00003FFF0000L) >>> 2;
+        x = (x & 0x000000000FFFFFFFL) | (x & 0x0FFFFFFF00000000L) >>> 4;
+        return x;
+    }
+
+    private static long decodeZigZag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private static int toUnsignedInt(long value) throws IOException {
+        if (value >>> Integer.SIZE != 0) {
+            throw new IOException("Varint exceeds 32 bits. (" + Long.toUnsignedString(value) + ")");
+        }
+
+        return (int) value;
+    }
+
+    private static int toSignedInt(long value) throws IOException {
+        if (value != (int) value) {
+            throw new IOException("Zigzag varint exceeds 32 bits. (" + value + ")");
+        }
+
+        return (int) value;
+    }
+
     @Override
     public void readFully(byte[] b) throws IOException {
         readFully(b, 0, b.length);
@@ -89,19 +512,20 @@ public abstract class AbstractBitInputStream extends InputStream implements Data
         }
     }
 
+    /**
+     * Skips n bytes worth of bits, or fewer if the stream ends first.
+     *
+     * @return The amount of whole bytes skipped.
+     * @throws IOException If the stream cannot be read.
+     */
     @Override
-    public int skipBytes(int n) {
-        int discarded = 0;
-        try {
-            for (int i = 0; i < n; i++) {
-                readUnsignedByte();
-                discarded++;
-            }
+    public int skipBytes(int n) throws IOException {
+        return n <= 0 ? 0 : (int) (skipBitsUnchecked(n * 8L) / Byte.SIZE);
+    }
 
-            return n;
-        } catch (IOException e) {
-            return discarded;
-        }
+    @Override
+    public long skip(long n) throws IOException {
+        return n <= 0 ? 0 : skipBitsUnchecked(Math.min(n, Long.MAX_VALUE / Byte.SIZE) * Byte.SIZE) / Byte.SIZE;
     }
 
     @Override
@@ -0,0 +1,429 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Base class for bit output streams. Bits are collected in a 64 bit accumulator, subclasses decide where the drained
+ * bytes go.
+ */
+public abstract class AbstractBitOutputStream extends OutputStream implements AutoCloseable, DataOutput {
+    private final static long VARINT_CONTINUATION = 0x8080808080808080L;
+
+    private long accumulator;
+    private int accumulatedBits;
+    private long position;
+
+    public void writeBits(int bits, int amount) throws IOException {
+        if (amount < 0 || amount > Integer.SIZE) {
+            throw new IllegalArgumentException("Requested amount exceeds data type size. (" + amount + "/" + Integer.SIZE + ")");
+        } else if (amount > 0) {
+            append(bits & fitMask(amount), amount);
+        }
+    }
+
+    public void writeBitsLong(long bits, int amount) throws IOException {
+        if (amount < 0 || amount > Long.SIZE) {
+            throw new IllegalArgumentException("Requested amount exceeds data type size. (" + amount + "/" + Long.SIZE + ")");
+        } else if (amount > 0) {
+            append(bits & fitMask(amount), amount);
+        }
+    }
+
+    /**
+     * Writes len values of bitWidth bits each from src. The values are packed into 64 bit words before they are handed
+     * to the accumulator.
+     *
+     * @param src      Array holding the values, bits above bitWidth are ignored.
+     * @param off      Index of the first value in src.
+     * @param len      Amount of values to write.
+     * @param bitWidth Width of every value, between 0 and {@link Integer#SIZE}.
+     */
+    public void writePacked(int[] src, int off, int len, int bitWidth) throws IOException {
+        if (bitWidth < 0 || bitWidth > Integer.SIZE) {
+            throw new IllegalArgumentException("Requested amount exceeds data type size. (" + bitWidth + "/" + Integer.SIZE + ")");
+        }
+        Objects.checkFromIndexSize(off, len, src.length);
+
+        long mask = fitMask(bitWidth);
+        long word = 0;
+        int filled = 0;
+        for (int i = off; i < off + len && bitWidth > 0; i++) {
+            long value = src[i] & mask;
+            word |= value << filled;
+            filled += bitWidth;
+
+            if (filled >= Long.SIZE) {
+                append(word, Long.SIZE);
+                filled -= Long.SIZE;
+                word = filled == 0 ? 0 : value >>> (bitWidth - filled);
+            }
+        }
+
+        if (filled > 0) {
+            append(word, filled);
+        }
+    }
+
+    /**
+     * Writes len values of bitWidth bits each from src, see {@link #writePacked(int[], int, int, int)}.
+     *
+     * @param src      Array holding the values, bits above bitWidth are ignored.
+     * @param off      Index of the first value in src.
+     * @param len      Amount of values to write.
+     * @param bitWidth Width of every value, between 0 and {@link Long#SIZE}.
+     */
+    public void writePacked(long[] src, int off, int len, int bitWidth) throws IOException {
+        if (bitWidth < 0 || bitWidth > Long.SIZE) {
+            throw new IllegalArgumentException("Requested amount exceeds data type size. (" + bitWidth + "/" + Long.SIZE + ")");
+        }
+        Objects.checkFromIndexSize(off, len, src.length);
+
+        long mask = fitMask(bitWidth);
+        long word = 0;
+        int filled = 0;
+        for (int i = off; i < off + len && bitWidth > 0; i++) {
+            long value = src[i] & mask;
+            word |= value << filled;
+            filled += bitWidth;
+
+            if (filled >= Long.SIZE) {
+                append(word, Long.SIZE);
+                filled -= Long.SIZE;
+                word = filled == 0 ? 0 : value >>> (bitWidth - filled);
+            }
+        }
+
+        if (filled > 0) {
+            append(word, filled);
+        }
+    }
+
+    /**
+     * Appends the bits to the accumulator, draining it when it fills up. The accumulator holds less than
+     * {@link Long#SIZE} bits between calls.
+     *
+     * @param bits   Masked bits to append.
+     * @param amount Amount of bits to append, between 1 and {@link Long#SIZE}.
+     */
+    private void append(long bits, int amount) throws IOException {
+        accumulator |= bits << accumulatedBits;
+        int free = Long.SIZE - accumulatedBits;
+
+        if (amount < free) {
+            accumulatedBits += amount;
+        } else {
+            drainWord(accumulator);
+            // free is only 64 if the accumulator was empty, then the whole value went out with the word.
+            accumulator = free == Long.SIZE ? 0 : bits >>> free;
+            accumulatedBits = amount - free;
+        }
+
+        position += amount;
+    }
+
+    /**
+     * Writes a full accumulator.
+     *
+     * @param word The 8 bytes to write, least significant byte first.
+     */
+    protected abstract void drainWord(long word) throws IOException;
+
+    /**
+     * Writes a single byte.
+     *
+     * @param value Byte to write, in the lower 8 bits.
+     */
+    protected abstract void drainByte(int value) throws IOException;
+
+    /**
+     * Writes a byte range, only called while the stream is byte aligned.
+     */
+    protected abstract void drainBytes(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Moves all complete bytes of the accumulator out.
+     */
+    private void drainWholeBytes() throws IOException {
+        while (accumulatedBits >= Byte.SIZE) {
+            drainByte((int) accumulator & 0xFF);
+            accumulator >>>= Byte.SIZE;
+            accumulatedBits -= Byte.SIZE;
+        }
+    }
+
+    /**
+     * Drains everything in the accumulator, padding an incomplete byte with zeros. Subclasses call this before flushing
+     * or closing their destination.
+     */
+    protected void flushBits() throws IOException {
+        drainWholeBytes();
+        if (accumulatedBits > 0) {
+            drainByte((int) accumulator & 0xFF);
+            accumulator = 0;
+            accumulatedBits = 0;
+        }
+    }
+
+    /**
+     * Writes the value as an unsigned LEB128 varint: 7 bits per byte, least significant group first, with the high
+     * bit of every byte but the last set.
+     *
+     * @param value Value to write, treated as unsigned.
+     */
+    public void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes the value as an unsigned LEB128 varint, see {@link #writeVarInt(int)}. Values below 2^56 take a single
+     * accumulator append.
+     *
+     * @param value Value to write, treated as unsigned.
+     */
+    public void writeVarLong(long value) throws IOException {
+        int bytes = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7);
+
+        if (bytes <= Long.BYTES) {
+            long continuation = VARINT_CONTINUATION & ((1L << (Byte.SIZE * (bytes - 1))) - 1);
+            append(spread7(value) | continuation, Byte.SIZE * bytes);
+        } else {
+            append(spread7(value) | VARINT_CONTINUATION, Long.SIZE);
+            value >>>= 7 * Long.BYTES;
+            for (; value >= 0x80; value >>>= 7) {
+                append(value & 0x7F | 0x80, Byte.SIZE);
+            }
+            append(value, Byte.SIZE);
+        }
+    }
+
+    /**
+     * Writes the signed value zigzag encoded as a varint, so values close to zero take few bytes regardless of sign.
+     *
+     * @param value Value to write.
+     */
+    public void writeZigZag(long value) throws IOException {
+        writeVarLong(value << 1 ^ value >> (Long.SIZE - 1));
+    }
+
+    /**
+     * Writes len values from src as unsigned varints, see {@link #writeVarInt(int)}.
+     *
+     * @param src Array to take the values from.
+     * @param off Index of the first value in src.
+     * @param len Amount of values to write.
+     */
+    public void writeVarInt(int[] src, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            writeVarLong(src[i] & 0xFFFFFFFFL);
+        }
+    }
+
+    /**
+     * Writes len values from src as unsigned varints, see {@link #writeVarLong(long)}.
+     *
+     * @param src Array to take the values from.
+     * @param off Index of the first value in src.
+     * @param len Amount of values to write.
+     */
+    public void writeVarLong(long[] src, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            writeVarLong(src[i]);
+        }
+    }
+
+    /**
+     * Writes len values from src as zigzag encoded varints, see {@link #writeZigZag(long)}.
+     *
+     * @param src Array to take the values from.
+     * @param off Index of the first value in src.
+     * @param len Amount of values to write.
+     */
+    public void writeZigZag(int[] src, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            writeZigZag(src[i]);
+        }
+    }
+
+    /**
+     * Writes len values from src as zigzag encoded varints, see {@link #writeZigZag(long)}.
+     *
+     * @param src Array to take the values from.
+     * @param off Index of the first value in src.
+     * @param len Amount of values to write.
+     */
+    public void writeZigZag(long[] src, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, src.length);
+        for (int i = off; i < off + len; i++) {
+            writeZigZag(src[i]);
+        }
+    }
+
+    /**
+     * Spreads the low 56 bits of value into the low 7 bits of each byte.
+     */
+    private static long spread7(long value) {
+        long x = value & 0x00FFFFFFFFFFFFFFL;
+        x = (x & 0x000000000FFFFFFFL) | (x & 0x00FFFFFFF0000000L) << 4;
+        x = (x & 0x00003FFF00003FFFL) | (x & 0x0FFFC0000FFFC000L) << 2;
+        x = (x & 0x007F007F007F007FL) | (x & 0x3F803F803F803F80L) << 1;
+        return x;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+
+        if (accumulatedBits % Byte.SIZE == 0) {
+            drainWholeBytes();
+            drainBytes(b, off, len);
+            position += len * (long) Byte.SIZE;
+        } else {
+            int i = 0;
+            for (; i + Long.BYTES <= len; i += Long.BYTES) {
+                long word = 0;
+                for (int j = 0; j < Long.BYTES; j++) {
+                    word |= (b[off + i + j] & 0xFFL) << (j * Byte.SIZE);
+                }
+                append(word, Long.SIZE);
+            }
+
+            for (; i < len; i++) {
+                append(b[off + i] & 0xFFL, Byte.SIZE);
+            }
+        }
+    }
+
+    /**
+     * This method is unchecked so amounts bigger the Long.SIZE or amounts smaller than 0 may work.
+     *
+     * @param amount Amount of bits to mask (from the lsb to the msb).
+     * @return Masked value.
+     */
+    private static long fitMask(int amount) {
+        return 0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - amount);
+    }
+
+    /**
+     * @return Current bit position in the stream.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        writeBits((v) ? 1 : 0, Byte.SIZE);
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        writeBits(v, Byte.SIZE);
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        writeBits(v, Short.SIZE);
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        writeBits(v >> (Byte.SIZE), Byte.SIZE); //Write high order bits
+        writeBits(v, Byte.SIZE);    //Write low order bits.
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        writeBits(v, Integer.SIZE);
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        writeBitsLong(v, Long.SIZE);
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        writeInt(Float.floatToIntBits(v));
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        writeLong(Double.doubleToLongBits(v));
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        try {
+            s.chars().map(v -> v & 0xFF).forEach(v -> {
+                try {
+                    writeByte(v);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+        }
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        try {
+            s.chars().forEach(v -> {
+                try {
+                    writeChar(v);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+        }
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        new DataOutputStream(this).writeUTF(s);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        writeBits(b, Byte.SIZE);
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Bit input stream that moves bytes from a buffer into a 64 bit accumulator, so most reads are a single shift and
+ * mask. Subclasses only provide the buffer and the source it is filled from, the accumulator, refills, skipping and
+ * bulk reads are handled here.
+ */
+public abstract class AbstractBufferedBitInputStream extends AbstractBitInputStream {
+    // The accumulator is topped up while it has room for another byte, so it always holds at least this many bits
+    // unless the source is exhausted.
+    private final static int REFILL_GUARANTEE = Long.SIZE - Byte.SIZE + 1;
+
+    private long accumulator;
+    private int accumulatedBits;
+    private boolean exhausted;
+
+    /**
+     * @return Amount of bytes left in the buffer.
+     */
+    protected abstract int bufferedBytes();
+
+    /**
+     * @return Next byte of the buffer, unsigned, which is consumed. The buffer is not empty.
+     */
+    protected abstract int nextBufferedByte();
+
+    /**
+     * @return Next byte of the buffer, unsigned, without consuming it. The buffer is not empty.
+     */
+    protected abstract int peekBufferedByte();
+
+    /**
+     * @return Next eight bytes of the buffer as a little endian long, without consuming them. The buffer holds at
+     * least eight bytes.
+     */
+    protected abstract long peekBufferedLong();
+
+    /**
+     * @param amount Amount of buffered bytes to consume, not more than {@link #bufferedBytes()}.
+     */
+    protected abstract void skipBufferedBytes(int amount);
+
+    /**
+     * Copies bytes out of the buffer, consuming them.
+     *
+     * @param len Amount of bytes to copy, not more than {@link #bufferedBytes()}.
+     */
+    protected abstract void readBufferedBytes(byte[] b, int off, int len);
+
+    /**
+     * @return Size of the buffer in bytes.
+     */
+    protected abstract int bufferCapacity();
+
+    /**
+     * Refills the empty buffer from the source.
+     *
+     * @return Amount of bytes read, -1 if the source is exhausted.
+     */
+    protected abstract int fillBuffer() throws IOException;
+
+    /**
+     * Reads from the source, bypassing the empty buffer.
+     *
+     * @return Amount of bytes read, -1 if the source is exhausted.
+     */
+    protected abstract int readDirect(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Skips bytes in the source, bypassing the empty buffer. Must not skip past the end of the source.
+     *
+     * @return Amount of bytes skipped, 0 if the source cannot skip.
+     */
+    protected abstract long skipDirect(long amount) throws IOException;
+
+    /**
+     * @return Amount of bytes the source can provide without blocking.
+     */
+    protected abstract int availableDirect() throws IOException;
+
+    /**
+     * Closes the source and empties the buffer.
+     */
+    protected abstract void closeSource() throws IOException;
+
+    @Override
+    protected int readBitsUnchecked(final int amount) throws IOException {
+        if (amount > Integer.SIZE || amount < 0) {
+            throw new IllegalArgumentException("Requested amount exceeds data type size. (" + amount + "/" + Integer.SIZE + ")");
+        } else if (amount == 0) {
+            return 0;
+        } else {
+            return (int) take(amount);
+        }
+    }
+
+    @Override
+    protected long readBitsLongUnchecked(int amount) throws IOException {
+        if (amount == 0) {
+            return 0;
+        } else if (amount <= REFILL_GUARANTEE) {
+            return take(amount);
+        }
+
+        if (accumulatedBits < amount) {
+            refill();
+            // A full accumulator lacks at most one byte, which has to be in the buffer before anything is consumed.
+            if (accumulatedBits < amount && bufferedBytes() == 0 && !fill()) {
+                throw new EOFException("Stream exhausted, failed to read " + amount + " bits. (" + accumulatedBits + " bits available.)");
+            }
+        }
+
+        long lower = take(Integer.SIZE);
+        return lower | (take(amount - Integer.SIZE) << Integer.SIZE);
+    }
+
+    @Override
+    protected long peekBitsLongUnchecked(int amount) throws IOException {
+        if (accumulatedBits < amount) {
+            refill();
+            // Unless the source is exhausted the accumulator is now too full for another byte, so one byte from the
+            // buffer covers any amount. The buffer may be refilled here because it is empty.
+            if (accumulatedBits < amount && (bufferedBytes() > 0 || fill())) {
+                return (accumulator | (long) peekBufferedByte() << accumulatedBits) & fitMask(amount);
+            }
+        }
+
+        return accumulator & fitMask(amount);
+    }
+
+    /**
+     * Drops the accumulated bits, then skips whole bytes in the buffer and the source without reading them into the
+     * accumulator.
+     */
+    @Override
+    protected long skipBitsUnchecked(long amount) throws IOException {
+        if (amount <= accumulatedBits) {
+            drop((int) amount);
+            return amount;
+        }
+
+        long skipped = accumulatedBits;
+        drop(accumulatedBits);
+
+        long bytes = (amount - skipped) / Byte.SIZE;
+        long skippedBytes = 0;
+        while (skippedBytes < bytes) {
+            if (bufferedBytes() > 0) {
+                int buffered = (int) Math.min(bytes - skippedBytes, bufferedBytes());
+                skipBufferedBytes(buffered);
+                skippedBytes += buffered;
+            } else {
+                long direct = exhausted ? 0 : skipDirect(bytes - skippedBytes);
+                if (direct > 0) {
+                    skippedBytes += direct;
+                } else if (!fill()) {
+                    break;
+                }
+            }
+        }
+
+        position += skippedBytes * Byte.SIZE;
+        skipped += skippedBytes * Byte.SIZE;
+        refill();
+        int rest = (int) Math.min(amount - skipped, accumulatedBits);
+        drop(rest);
+        return skipped + rest;
+    }
+
+    /**
+     * Drops amount accumulated bits, counting them towards the position.
+     */
+    private void drop(int amount) {
+        accumulator = amount == Long.SIZE ? 0 : accumulator >>> amount;
+        accumulatedBits -= amount;
+        position += amount;
+    }
+
+    /**
+     * Removes amount bits from the accumulator, refilling it first if necessary.
+     *
+     * @param amount Amount of bits to take, between 1 and {@link #REFILL_GUARANTEE}.
+     * @return The bits taken.
+     * @throws EOFException If the stream doesn't contain enough bits.
+     */
+    private long take(int amount) throws IOException {
+        if (accumulatedBits < amount) {
+            refill();
+            if (accumulatedBits < amount) {
+                throw new EOFException("Stream exhausted, failed to read " + amount + " bits. (" + accumulatedBits + " bits available.)");
+            }
+        }
+
+        long value = accumulator & fitMask(amount);
+        accumulator >>>= amount;
+        accumulatedBits -= amount;
+        position += amount;
+
+        return value;
+    }
+
+    /**
+     * Moves bytes from the buffer into the accumulator until it cannot hold another byte or the source is exhausted,
+     * a word at a time while the buffer holds at least eight bytes.
+     */
+    private void refill() throws IOException {
+        while (accumulatedBits < REFILL_GUARANTEE) {
+            int buffered = bufferedBytes();
+            if (buffered >= Long.BYTES) {
+                int bytes = (Long.SIZE - accumulatedBits) / Byte.SIZE;
+                accumulator |= (peekBufferedLong() & fitMask(bytes * Byte.SIZE)) << accumulatedBits;
+                accumulatedBits += bytes * Byte.SIZE;
+                skipBufferedBytes(bytes);
+            } else if (buffered > 0) {
+                accumulator |= (long) nextBufferedByte() << accumulatedBits;
+                accumulatedBits += Byte.SIZE;
+            } else if (!fill()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fills the empty buffer, retrying reads that return no bytes.
+     *
+     * @return True if at least one byte was read, false if the source is exhausted.
+     */
+    private boolean fill() throws IOException {
+        int read = 0;
+
+        while (!exhausted && read == 0) {
+            read = fillBuffer();
+            if (read == -1) {
+                exhausted = true;
+                read = 0;
+            }
+        }
+
+        return read > 0;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        } else if (accumulatedBits % Byte.SIZE != 0) {
+            // Not byte aligned, every byte has to be shifted into place.
+            int read = 0;
+            while (read < len && (accumulatedBits >= Byte.SIZE || refillAvailable())) {
+                b[off + read++] = (byte) take(Byte.SIZE);
+            }
+
+            return read == 0 ? -1 : read;
+        }
+
+        int read = 0;
+        while (read < len && accumulatedBits > 0) {
+            b[off + read++] = (byte) take(Byte.SIZE);
+        }
+
+        int fromAccumulator = read;
+        int buffered = Math.min(len - read, bufferedBytes());
+        readBufferedBytes(b, off + read, buffered);
+        read += buffered;
+
+        if (read < len && !exhausted) {
+            if (len - read >= bufferCapacity()) {
+                // Large requests bypass the buffer entirely.
+                int direct = readDirect(b, off + read, len - read);
+                if (direct == -1) {
+                    exhausted = true;
+                } else {
+                    read += direct;
+                }
+            } else if (read == 0 && fill()) {
+                buffered = Math.min(len, bufferedBytes());
+                readBufferedBytes(b, off, buffered);
+                read = buffered;
+            }
+        }
+
+        position += (read - fromAccumulator) * (long) Byte.SIZE;
+        return read == 0 ? -1 : read;
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        int done = 0;
+        while (done < len) {
+            int read = read(b, off + done, len - done);
+            if (read == -1) {
+                throw new EOFException("Stream exhausted, failed to read " + len + " bytes. (" + done + " bytes read.)");
+            }
+            done += read;
+        }
+    }
+
+    private boolean refillAvailable() throws IOException {
+        refill();
+        return accumulatedBits >= Byte.SIZE;
+    }
+
+    @Override
+    protected void checkAvailable(long amount) {
+
+    }
+
+    @Override
+    public int available() throws IOException {
+        return accumulatedBits / Byte.SIZE + bufferedBytes() + availableDirect();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSource();
+        accumulatedBits = 0;
+        accumulator = 0;
+    }
+}
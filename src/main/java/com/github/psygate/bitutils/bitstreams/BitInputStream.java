@@ -25,22 +25,27 @@
 
 package com.github.psygate.bitutils.bitstreams;
 
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.Objects;
 
 /**
  * Created by psygate on 01.10.2017.
  * <p>
- * A simple BitInputStream wrapper for input streams.
+ * A simple BitInputStream wrapper for input streams. Bytes are read from the underlying stream in blocks and shifted
+ * into a 64 bit accumulator, so most reads are a single shift and mask.
  */
-public class BitInputStream extends AbstractBitInputStream {
-    private final static int BUFFER_SIZE = Byte.SIZE;
+public class BitInputStream extends AbstractBufferedBitInputStream {
+    public final static int DEFAULT_BLOCK_SIZE = 8192;
+    private final static VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
 
     private final InputStream underlying;
-    private int buffer;
-    private int bufferedBits;
+    private final byte[] block;
+    private int blockPosition;
+    private int blockLimit;
 
     /**
      * Constructs a new BitInputStream from the input stream.
@@ -48,76 +53,94 @@ public class BitInputStream extends AbstractBitInputStream {
      * @param in InputStream to read from.
      */
     public BitInputStream(InputStream in) {
-        underlying = Objects.requireNonNull(in, "InputStream to BitInputStream cannot be null.");
+        this(in, DEFAULT_BLOCK_SIZE);
     }
 
-    protected int readBitsUnchecked(final int amount) throws IOException {
-        if (amount > Integer.SIZE || amount < 0) {
-            throw new IllegalArgumentException("Requested amount exceeds data type size. (" + amount + "/" + Integer.SIZE + ")");
-        } else if (amount == 0) {
-            return 0;
-        } else {
-            if (bufferedBits == 0) {
-                fillBuffer();
-            }
-
-            int value = 0;
-            int readBits = 0;
-            while (readBits < amount && bufferedBits > 0) {
-                int remaining = (amount - readBits) < BUFFER_SIZE ? amount - readBits : BUFFER_SIZE;
-
-                if (bufferedBits >= remaining) {
-                    int readValue = (int) (buffer & fitMask(remaining));
-
-                    value |= readValue << readBits;
-                    buffer >>>= remaining;
-                    bufferedBits -= remaining;
-                    readBits += remaining;
-                } else if (bufferedBits > 0) {
-                    int readValue = (int) (buffer & fitMask(remaining));
-
-                    value |= readValue << readBits;
-                    readBits += bufferedBits;
-                    bufferedBits = 0;
-                    buffer = 0;
-                }
-
-                fillBuffer();
-            }
-
-            if (amount - readBits > 0) {
-                throw new EOFException("Stream exhausted, failed to read " + amount + " bits. (" + readBits + " bits read.)");
-            }
-
-            position += amount;
-            return value & fitIntegerMask(amount);
+    /**
+     * Constructs a new BitInputStream from the input stream.
+     *
+     * @param in        InputStream to read from.
+     * @param blockSize Amount of bytes to request from the input stream at once.
+     */
+    public BitInputStream(InputStream in, int blockSize) {
+        underlying = Objects.requireNonNull(in, "InputStream to BitInputStream cannot be null.");
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1. (" + blockSize + ")");
         }
+        block = new byte[blockSize];
     }
 
+    @Override
+    protected int bufferedBytes() {
+        return blockLimit - blockPosition;
+    }
 
-    private void fillBuffer() throws IOException {
-        if (bufferedBits <= 0) {
-            int read = underlying.read();
-            if (read == -1) {
-                bufferedBits = 0;
-                buffer = 0;
-            } else {
-                bufferedBits = Byte.SIZE;
-                buffer = read & 0xFF;
-            }
-        }
+    @Override
+    protected int nextBufferedByte() {
+        return block[blockPosition++] & 0xFF;
+    }
+
+    @Override
+    protected int peekBufferedByte() {
+        return block[blockPosition] & 0xFF;
+    }
+
+    @Override
+    protected long peekBufferedLong() {
+        return (long) LONG_VIEW.get(block, blockPosition);
+    }
+
+    @Override
+    protected void skipBufferedBytes(int amount) {
+        blockPosition += amount;
+    }
+
+    @Override
+    protected void readBufferedBytes(byte[] b, int off, int len) {
+        System.arraycopy(block, blockPosition, b, off, len);
+        blockPosition += len;
+    }
+
+    @Override
+    protected int bufferCapacity() {
+        return block.length;
+    }
+
+    /**
+     * Reads the next block from the underlying stream with a single bulk read.
+     */
+    @Override
+    protected int fillBuffer() throws IOException {
+        int read = underlying.read(block, 0, block.length);
+        blockPosition = 0;
+        blockLimit = Math.max(read, 0);
+        return read;
     }
 
+    @Override
+    protected int readDirect(byte[] b, int off, int len) throws IOException {
+        return underlying.read(b, off, len);
+    }
 
+    /**
+     * Skips at most what the underlying stream reports as available, since {@link InputStream#skip(long)} may move
+     * past the end of the stream. Anything else is read through the block instead.
+     */
     @Override
-    protected void checkAvailable(long amount) {
+    protected long skipDirect(long amount) throws IOException {
+        int available = underlying.available();
+        return available > 0 ? underlying.skip(Math.min(amount, available)) : 0;
+    }
 
+    @Override
+    protected int availableDirect() throws IOException {
+        return underlying.available();
     }
 
     @Override
-    public void close() throws IOException {
+    protected void closeSource() throws IOException {
         underlying.close();
-        bufferedBits = 0;
-        buffer = 0;
+        blockPosition = 0;
+        blockLimit = 0;
     }
 }
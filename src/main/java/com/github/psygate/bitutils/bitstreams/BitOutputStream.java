@@ -25,8 +25,6 @@
 
 package com.github.psygate.bitutils.bitstreams;
 
-import java.io.DataOutput;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Objects;
@@ -34,16 +32,15 @@ import java.util.Objects;
 /**
  * Created by psygate on 01.10.2017.
  * <p>
- * A simple BitInputStream wrapper for input streams.
+ * A simple BitOutputStream wrapper for output streams. Bits are collected in a 64 bit accumulator, which is drained into
+ * a byte block that is handed to the underlying stream with bulk writes.
  */
-public class BitOutputStream extends OutputStream implements AutoCloseable, DataOutput {
-    //This MUST be a multiple of 8.
-    private final static int BUFFER_SIZE = Byte.SIZE;
+public class BitOutputStream extends AbstractBitOutputStream {
+    public final static int DEFAULT_BLOCK_SIZE = 8192;
 
     private final OutputStream underlying;
-    private int buffer;
-    private int bufferedBits;
-    private long position;
+    private final byte[] block;
+    private int blockPosition;
 
     /**
      * Constructs a new BitOutputStream from the output stream.
@@ -51,171 +48,72 @@ public class BitOutputStream extends OutputStream implements AutoCloseable, Data
      * @param out OutputStream to write to.
      */
     public BitOutputStream(OutputStream out) {
-        underlying = Objects.requireNonNull(out, "OutputStream to BitOutputStream cannot be null.");
-    }
-
-    public void writeBits(int bits, int amount) throws IOException {
-        if (amount < 0 || amount > Integer.SIZE) {
-            throw new IllegalArgumentException("Requested amount exceeds data type size. (" + amount + "/" + Integer.SIZE + ")");
-        } else if (amount == 0) {
-            //Skip
-        } else {
-            int writeable = BUFFER_SIZE - bufferedBits;
-
-            if (amount <= writeable) {
-                buffer |= (bits & fitMask(amount)) << bufferedBits;
-                bufferedBits += amount;
-            } else if (amount > writeable) {
-                buffer |= (bits & fitMask(writeable)) << bufferedBits;
-                bufferedBits += writeable;
-                flushBuffer(false);
-                writeBits(bits >>> writeable, amount - writeable);
-            }
-
-            flushBuffer(false);
-            position += amount;
-        }
-    }
-
-    public void writeBitsLong(long bits, int amount) throws IOException {
-        if (amount < 0 || amount > Long.SIZE) {
-            throw new IllegalArgumentException("Requested amount exceeds data type size. (" + amount + "/" + Long.SIZE + ")");
-        } else if (amount == 0) {
-            //Skip
-        } else {
-            int lower = (int) (bits & 0xFFFFFFFF);
-            int upper = (int) ((bits >>> 32) & 0xFFFFFFFF);
-            int lowerwrite = Math.min(amount, 32);
-            int upperwrite = Math.max(0, amount - 32);
-            writeBits(lower, lowerwrite);
-            writeBits(upper, upperwrite);
-
-            position += amount;
-        }
-    }
-
-    private void flushBuffer(final boolean force) throws IOException {
-        if (bufferedBits == BUFFER_SIZE || force) {
-            for (int i = 0; i < BUFFER_SIZE && (i * BUFFER_SIZE) < bufferedBits; i++) {
-                underlying.write((buffer >>> (i * Byte.SIZE)) & 0xFF);
-            }
-            bufferedBits = 0;
-            buffer = 0;
-        }
-    }
-
-
-    @Override
-    public void flush() throws IOException {
-        flushBuffer(bufferedBits > 0);
-        underlying.flush();
-    }
-
-    @Override
-    public void close() throws IOException {
-        flushBuffer(bufferedBits > 0);
-        underlying.close();
+        this(out, DEFAULT_BLOCK_SIZE);
     }
 
     /**
-     * This method is unchecked so amounts bigger the Long.SIZE or amounts smaller than 0 may work.
+     * Constructs a new BitOutputStream from the output stream.
      *
-     * @param amount Amount of bits to mask (from the lsb to the msb).
-     * @return Masked value.
-     */
-    private static long fitMask(int amount) {
-        return 0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - amount);
-    }
-
-    /**
-     * @return Current bit position in the stream.
+     * @param out       OutputStream to write to.
+     * @param blockSize Amount of bytes to collect before handing them to the output stream.
      */
-    public long getPosition() {
-        return position;
-    }
-
-    @Override
-    public void writeBoolean(boolean v) throws IOException {
-        writeBits((v) ? 1 : 0, Byte.SIZE);
-    }
-
-    @Override
-    public void writeByte(int v) throws IOException {
-        writeBits(v, Byte.SIZE);
-    }
-
-    @Override
-    public void writeShort(int v) throws IOException {
-        writeBits(v, Short.SIZE);
-    }
-
-    @Override
-    public void writeChar(int v) throws IOException {
-        writeBits(v >> (Byte.SIZE), Byte.SIZE); //Write high order bits
-        writeBits(v, Byte.SIZE);    //Write low order bits.
+    public BitOutputStream(OutputStream out, int blockSize) {
+        underlying = Objects.requireNonNull(out, "OutputStream to BitOutputStream cannot be null.");
+        if (blockSize < Long.BYTES) {
+            throw new IllegalArgumentException("Block size must be at least " + Long.BYTES + ". (" + blockSize + ")");
+        }
+        block = new byte[blockSize];
     }
 
     @Override
-    public void writeInt(int v) throws IOException {
-        writeBits(v, Integer.SIZE);
-    }
+    protected void drainWord(long word) throws IOException {
+        if (block.length - blockPosition < Long.BYTES) {
+            flushBlock();
+        }
 
-    @Override
-    public void writeLong(long v) throws IOException {
-        writeBitsLong(v, Long.SIZE);
+        for (int i = 0; i < Long.BYTES; i++) {
+            block[blockPosition++] = (byte) (word >>> (i * Byte.SIZE));
+        }
     }
 
     @Override
-    public void writeFloat(float v) throws IOException {
-        writeInt(Float.floatToIntBits(v));
-    }
+    protected void drainByte(int value) throws IOException {
+        if (blockPosition == block.length) {
+            flushBlock();
+        }
 
-    @Override
-    public void writeDouble(double v) throws IOException {
-        writeLong(Double.doubleToLongBits(v));
+        block[blockPosition++] = (byte) value;
     }
 
     @Override
-    public void writeBytes(String s) throws IOException {
-        try {
-            s.chars().map(v -> v & 0xFF).forEach(v -> {
-                try {
-                    writeByte(v);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-        } catch (RuntimeException e) {
-            if (e.getCause() instanceof IOException) {
-                throw (IOException) e.getCause();
-            }
+    protected void drainBytes(byte[] b, int off, int len) throws IOException {
+        if (len >= block.length - blockPosition) {
+            flushBlock();
+            underlying.write(b, off, len);
+        } else {
+            System.arraycopy(b, off, block, blockPosition, len);
+            blockPosition += len;
         }
     }
 
-    @Override
-    public void writeChars(String s) throws IOException {
-        try {
-            s.chars().forEach(v -> {
-                try {
-                    writeChar(v);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-        } catch (RuntimeException e) {
-            if (e.getCause() instanceof IOException) {
-                throw (IOException) e.getCause();
-            }
+    private void flushBlock() throws IOException {
+        if (blockPosition > 0) {
+            underlying.write(block, 0, blockPosition);
+            blockPosition = 0;
         }
     }
 
     @Override
-    public void writeUTF(String s) throws IOException {
-        new DataOutputStream(this).writeUTF(s);
+    public void flush() throws IOException {
+        flushBits();
+        flushBlock();
+        underlying.flush();
     }
 
     @Override
-    public void write(int b) throws IOException {
-        writeBits(b, Byte.SIZE);
+    public void close() throws IOException {
+        flushBits();
+        flushBlock();
+        underlying.close();
     }
 }
@@ -28,11 +28,17 @@ package com.github.psygate.bitutils.bitstreams;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Objects;
 
 /**
  * Created by psygate on 07.10.2017.
  */
 public class ByteArrayBitInputStream extends AbstractBitInputStream {
+    private final static VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
     private final byte[] data;
     private long mark = -1;
 
@@ -67,22 +73,93 @@ public class ByteArrayBitInputStream extends AbstractBitInputStream {
 
     @Override
     protected int readBitsUnchecked(int amount) throws IOException {
-        int output = 0;
+        return (int) readBitsLongUnchecked(amount);
+    }
 
-        for (int i = 0; i < amount; i++) {
-            output |= readBitUnchecked() << i;
+    @Override
+    protected long readBitsLongUnchecked(int amount) {
+        if (amount == 0) {
+            return 0;
         }
 
-        return output;
+        long value = peekBitsLongUnchecked(amount);
+        position += amount;
+        return value;
     }
 
-    private int readBitUnchecked() {
-        int value = (((data[getByteIndex()] & 0xFF) >> getBitIndex()) & 0x1);
+    @Override
+    protected long peekBitsLongUnchecked(int amount) {
+        int byteIndex = getByteIndex();
+        int bitIndex = getBitIndex();
+        long value = loadLong(byteIndex) >>> bitIndex;
+
+        if (bitIndex + amount > Long.SIZE && byteIndex + Long.BYTES < data.length) {
+            // Only reachable with an unaligned position, so the shift is below Long.SIZE.
+            value |= (data[byteIndex + Long.BYTES] & 0xFFL) << (Long.SIZE - bitIndex);
+        }
+
+        return value & fitMask(amount);
+    }
+
+    @Override
+    protected long skipBitsUnchecked(long amount) {
+        long skipped = Math.min(amount, availableBits());
+        position += skipped;
+        return skipped;
+    }
+
+    /**
+     * Loads the 8 bytes starting at index as a little endian long. Bytes past the end of the data read as zero.
+     */
+    private long loadLong(int index) {
+        if (index + Long.BYTES <= data.length) {
+            return (long) LONG_VIEW.get(data, index);
+        }
+
+        long value = 0;
+        for (int i = 0; index + i < data.length; i++) {
+            value |= (data[index + i] & 0xFFL) << (i * Byte.SIZE);
+        }
 
-        position++;
         return value;
     }
 
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        checkAvailable(len * 8L);
+
+        int byteIndex = getByteIndex();
+        int bitIndex = getBitIndex();
+
+        if (bitIndex == 0) {
+            System.arraycopy(data, byteIndex, b, off, len);
+        } else {
+            // Each output byte is the high part of one input byte and the low part of the next.
+            int carry = Byte.SIZE - bitIndex;
+            for (int i = 0; i < len; i++) {
+                int low = (data[byteIndex + i] & 0xFF) >>> bitIndex;
+                int high = data[byteIndex + i + 1] << carry;
+                b[off + i] = (byte) (low | high);
+            }
+        }
+
+        position += len * 8L;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        int amount = (int) Math.min(len, getRemainingBytes());
+
+        if (amount == 0 && len > 0) {
+            return -1;
+        }
+
+        readFully(b, off, amount);
+        return amount;
+    }
+
     public int getByteIndex() {
         return (int) (position / 8L);
     }
@@ -113,10 +190,7 @@ public class ByteArrayBitInputStream extends AbstractBitInputStream {
         int trailingBits = (int) (remainingBits - remainingBytes * 8L);
 
         byte[] output = new byte[(remainingBytes + ((trailingBits > 0) ? 1 : 0))];
-
-        for (int i = 0; i < getRemainingBytes(); i++) {
-            output[i] = readByte();
-        }
+        readFully(output, 0, remainingBytes);
 
         if (trailingBits > 0) {
             output[output.length - 1] = (byte) readBitsUnchecked(trailingBits);
@@ -0,0 +1,143 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Objects;
+
+/**
+ * Bit input stream reading from a blocking {@link ReadableByteChannel} through a reusable direct buffer. Bytes are
+ * moved from the buffer into a 64 bit accumulator a word at a time where possible.
+ */
+public class ChannelBitInputStream extends AbstractBufferedBitInputStream {
+    public final static int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructs a new ChannelBitInputStream from the channel.
+     *
+     * @param channel Channel to read from.
+     */
+    public ChannelBitInputStream(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new ChannelBitInputStream from the channel.
+     *
+     * @param channel    Channel to read from.
+     * @param bufferSize Size of the direct buffer used to read from the channel.
+     */
+    public ChannelBitInputStream(ReadableByteChannel channel, int bufferSize) {
+        this.channel = Objects.requireNonNull(channel, "Channel to ChannelBitInputStream cannot be null.");
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1. (" + bufferSize + ")");
+        }
+        buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(0);
+    }
+
+    @Override
+    protected int bufferedBytes() {
+        return buffer.remaining();
+    }
+
+    @Override
+    protected int nextBufferedByte() {
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    protected int peekBufferedByte() {
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    @Override
+    protected long peekBufferedLong() {
+        return buffer.getLong(buffer.position());
+    }
+
+    @Override
+    protected void skipBufferedBytes(int amount) {
+        buffer.position(buffer.position() + amount);
+    }
+
+    @Override
+    protected void readBufferedBytes(byte[] b, int off, int len) {
+        buffer.get(b, off, len);
+    }
+
+    @Override
+    protected int bufferCapacity() {
+        return buffer.capacity();
+    }
+
+    @Override
+    protected int fillBuffer() throws IOException {
+        buffer.clear();
+        int read = channel.read(buffer);
+        buffer.flip();
+        return read;
+    }
+
+    @Override
+    protected int readDirect(byte[] b, int off, int len) throws IOException {
+        return channel.read(ByteBuffer.wrap(b, off, len));
+    }
+
+    /**
+     * Moves the position of seekable channels, other channels cannot skip.
+     */
+    @Override
+    protected long skipDirect(long amount) throws IOException {
+        if (!(channel instanceof SeekableByteChannel)) {
+            return 0;
+        }
+
+        SeekableByteChannel seekable = (SeekableByteChannel) channel;
+        long current = seekable.position();
+        long target = Math.max(current, Math.min(seekable.size(), current + amount));
+        seekable.position(target);
+        return target - current;
+    }
+
+    @Override
+    protected int availableDirect() {
+        return 0;
+    }
+
+    @Override
+    protected void closeSource() throws IOException {
+        channel.close();
+        buffer.clear().limit(0);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Bit output stream writing to a blocking {@link WritableByteChannel} through a reusable direct buffer. Full
+ * accumulator words are put into the buffer as little endian longs.
+ */
+public class ChannelBitOutputStream extends AbstractBitOutputStream {
+    public final static int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructs a new ChannelBitOutputStream from the channel.
+     *
+     * @param channel Channel to write to.
+     */
+    public ChannelBitOutputStream(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new ChannelBitOutputStream from the channel.
+     *
+     * @param channel    Channel to write to.
+     * @param bufferSize Size of the direct buffer used to write to the channel.
+     */
+    public ChannelBitOutputStream(WritableByteChannel channel, int bufferSize) {
+        this.channel = Objects.requireNonNull(channel, "Channel to ChannelBitOutputStream cannot be null.");
+        if (bufferSize < Long.BYTES) {
+            throw new IllegalArgumentException("Buffer size must be at least " + Long.BYTES + ". (" + bufferSize + ")");
+        }
+        buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    protected void drainWord(long word) throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            flushBuffer();
+        }
+
+        buffer.putLong(word);
+    }
+
+    @Override
+    protected void drainByte(int value) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flushBuffer();
+        }
+
+        buffer.put((byte) value);
+    }
+
+    @Override
+    protected void drainBytes(byte[] b, int off, int len) throws IOException {
+        if (len >= buffer.remaining()) {
+            flushBuffer();
+            writeFully(ByteBuffer.wrap(b, off, len));
+        } else {
+            buffer.put(b, off, len);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBits();
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushBits();
+        flushBuffer();
+        channel.close();
+    }
+}
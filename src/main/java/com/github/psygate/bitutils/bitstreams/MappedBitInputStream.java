@@ -0,0 +1,262 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Random access bit input stream over a memory mapped file. The file is mapped in segments, so files larger than 2GB
+ * can be read without copying them onto the heap. Segments overlap by a few bytes, so every read of up to 64 bits is a
+ * single long load (plus one byte when unaligned) from one segment.
+ * <p>
+ * The mapping is released when the stream is garbage collected, closing it only drops the references.
+ */
+public class MappedBitInputStream extends AbstractBitInputStream {
+    public final static int DEFAULT_SEGMENT_SIZE = 1 << 30;
+    // An unaligned 64 bit read touches 9 bytes, every segment extends this far into the next one.
+    private final static int SEGMENT_OVERLAP = 2 * Long.BYTES;
+
+    private final long length;
+    private final int segmentSize;
+    private ByteBuffer[] segments;
+    private long mark = -1;
+
+    /**
+     * Maps the file for reading.
+     *
+     * @param file File to read.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public MappedBitInputStream(Path file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Maps the file for reading.
+     *
+     * @param file        File to read.
+     * @param segmentSize Amount of bytes each mapped segment starts apart.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public MappedBitInputStream(Path file, int segmentSize) throws IOException {
+        Objects.requireNonNull(file, "File to MappedBitInputStream cannot be null.");
+        if (segmentSize < 1 || segmentSize > Integer.MAX_VALUE - SEGMENT_OVERLAP) {
+            throw new IllegalArgumentException("Segment size out of bounds: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            length = channel.size();
+            segments = new ByteBuffer[(int) Math.max(1, (length + segmentSize - 1) / segmentSize)];
+
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i * segmentSize;
+                long size = Math.min(segmentSize + SEGMENT_OVERLAP, length - start);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, size))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    @Override
+    public void setPosition(long position) {
+        if (position < 0 || position > length * 8L) {
+            throw new IllegalArgumentException("Position out of bounds: " + position + "/" + (length * 8L));
+        }
+
+        this.position = position;
+    }
+
+    @Override
+    protected int readBitsUnchecked(int amount) throws IOException {
+        return (int) readBitsLongUnchecked(amount);
+    }
+
+    @Override
+    protected long readBitsLongUnchecked(int amount) throws IOException {
+        if (amount == 0) {
+            return 0;
+        }
+
+        long value = peekBitsLongUnchecked(amount);
+        position += amount;
+        return value;
+    }
+
+    @Override
+    protected long peekBitsLongUnchecked(int amount) throws IOException {
+        long byteIndex = position >>> 3;
+        if (byteIndex >= length) {
+            return 0;
+        }
+
+        int bitIndex = (int) (position & 0x7);
+        ByteBuffer segment = segment(byteIndex);
+        int offset = (int) (byteIndex % segmentSize);
+        long value = loadLong(segment, offset) >>> bitIndex;
+
+        if (bitIndex + amount > Long.SIZE && offset + Long.BYTES < segment.limit()) {
+            value |= (segment.get(offset + Long.BYTES) & 0xFFL) << (Long.SIZE - bitIndex);
+        }
+
+        return value & fitMask(amount);
+    }
+
+    @Override
+    protected long skipBitsUnchecked(long amount) {
+        long skipped = Math.min(amount, availableBits());
+        position += skipped;
+        return skipped;
+    }
+
+    private ByteBuffer segment(long byteIndex) throws IOException {
+        if (segments == null) {
+            throw new IOException("Stream closed.");
+        }
+
+        return segments[(int) (byteIndex / segmentSize)];
+    }
+
+    /**
+     * Loads the 8 bytes at offset as a little endian long. Bytes past the end of the file read as zero.
+     */
+    private static long loadLong(ByteBuffer segment, int offset) {
+        if (offset + Long.BYTES <= segment.limit()) {
+            return segment.getLong(offset);
+        }
+
+        long value = 0;
+        for (int i = 0; offset + i < segment.limit(); i++) {
+            value |= (segment.get(offset + i) & 0xFFL) << (i * Byte.SIZE);
+        }
+
+        return value;
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        checkAvailable(len * 8L);
+
+        if ((position & 0x7) == 0) {
+            int done = 0;
+            while (done < len) {
+                long byteIndex = (position >>> 3) + done;
+                ByteBuffer segment = segment(byteIndex);
+                int offset = (int) (byteIndex % segmentSize);
+                int amount = Math.min(len - done, segmentSize - offset);
+                segment.position(offset);
+                segment.get(b, off + done, amount);
+                done += amount;
+            }
+
+            position += len * 8L;
+        } else {
+            int i = 0;
+            for (; i + Long.BYTES <= len; i += Long.BYTES) {
+                long word = readBitsLongUnchecked(Long.SIZE);
+                for (int j = 0; j < Long.BYTES; j++) {
+                    b[off + i + j] = (byte) (word >>> (j * Byte.SIZE));
+                }
+            }
+
+            for (; i < len; i++) {
+                b[off + i] = (byte) readBitsLongUnchecked(Byte.SIZE);
+            }
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        int amount = (int) Math.min(len, availableBits() / 8L);
+
+        if (amount == 0 && len > 0) {
+            return -1;
+        }
+
+        readFully(b, off, amount);
+        return amount;
+    }
+
+    @Override
+    protected void checkAvailable(long amount) throws IOException {
+        long available = availableBits();
+        if (available < amount) {
+            throw new IOException("Not enough bits left in stream. (" + available + "/" + amount + ")");
+        }
+    }
+
+    /**
+     * @return Length of the mapped file in bytes.
+     */
+    public long length() {
+        return length;
+    }
+
+    public long availableBits() {
+        return length * 8L - position;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, availableBits() / 8L);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    public synchronized void mark() {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        if (mark == -1) {
+            throw new IOException("Mark not set.");
+        } else {
+            position = mark;
+        }
+    }
+
+    @Override
+    public void close() {
+        segments = null;
+    }
+}
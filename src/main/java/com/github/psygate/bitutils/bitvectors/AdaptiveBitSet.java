@@ -0,0 +1,969 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of non-negative bit indices that picks its representation by its contents. A set starts out as a sorted int
+ * array and moves to a dense {@link BitVector} or a sorted list of runs once one of those takes at most half the
+ * memory of the current representation. The representation is checked whenever the sorted array, the run list or
+ * the dense vector has to grow, after range operations and for the results of logical operations, so a dense set
+ * that is mostly cleared by {@link #clear(int, int)} is shrunk or demoted again.
+ */
+public class AdaptiveBitSet {
+    /**
+     * Representations an {@link AdaptiveBitSet} can use.
+     */
+    public enum Representation {
+        /**
+         * Sorted array of the set indices, 4 bytes per set bit.
+         */
+        SORTED_ARRAY,
+        /**
+         * Bit vector up to the last set index, 1 bit per index.
+         */
+        DENSE,
+        /**
+         * Sorted list of runs of set indices, 8 bytes per run.
+         */
+        RUNS
+    }
+
+    private enum Operation {
+        OR, AND, XOR, AND_NOT;
+
+        boolean apply(boolean a, boolean b) {
+            switch (this) {
+                case OR:
+                    return a | b;
+                case AND:
+                    return a & b;
+                case XOR:
+                    return a ^ b;
+                default:
+                    return a & !b;
+            }
+        }
+
+        long apply(long a, long b) {
+            switch (this) {
+                case OR:
+                    return a | b;
+                case AND:
+                    return a & b;
+                case XOR:
+                    return a ^ b;
+                default:
+                    return a & ~b;
+            }
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Representation representation = Representation.SORTED_ARRAY;
+    private int cardinality;
+
+    private int[] values = new int[INITIAL_CAPACITY];
+    private BitVector dense;
+    private int[] runs;
+    private int runCount;
+
+    /**
+     * @param indices Indices of the bits to set.
+     * @return Set with the given bits set.
+     * @throws IndexOutOfBoundsException If an index is smaller than 0.
+     */
+    public static AdaptiveBitSet of(int... indices) {
+        AdaptiveBitSet set = new AdaptiveBitSet();
+        for (int index : indices) {
+            set.set(index);
+        }
+
+        return set;
+    }
+
+    /**
+     * @param vector Vector whose set bits to copy.
+     * @return Set in the cheapest representation for the set bits of vector.
+     */
+    public static AdaptiveBitSet of(BitVector vector) {
+        AdaptiveBitSet set = new AdaptiveBitSet();
+        long[] words = Arrays.copyOf(vector.words(), BitVector.wordCount(vector.size()));
+        if (words.length > 0) {
+            words[words.length - 1] &= BitVector.tailMask(vector.size());
+        }
+        set.adoptWords(words);
+        set.optimize();
+
+        return set;
+    }
+
+    /**
+     * @return The current representation.
+     */
+    public Representation representation() {
+        return representation;
+    }
+
+    /**
+     * @return Bytes held by the arrays of the current representation.
+     */
+    long storageBytes() {
+        switch (representation) {
+            case SORTED_ARRAY:
+                return (long) Integer.BYTES * values.length;
+            case DENSE:
+                return (long) Long.BYTES * dense.words().length;
+            default:
+                return (long) Integer.BYTES * runs.length;
+        }
+    }
+
+    private static void checkIndex(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index cannot be less than 0. (Index: " + index + ")");
+        }
+    }
+
+    /**
+     * @param index Index of the bit.
+     * @return True if the bit is set.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
+     */
+    public boolean get(int index) {
+        checkIndex(index);
+
+        switch (representation) {
+            case SORTED_ARRAY:
+                return Arrays.binarySearch(values, 0, cardinality, index) >= 0;
+            case DENSE:
+                return index < dense.size() && dense.get(index);
+            default:
+                int run = findRun(index);
+                return run >= 0 && index <= runs[2 * run + 1];
+        }
+    }
+
+    /**
+     * @param index Index of the bit.
+     * @param bit   Value of the bit.
+     * @return This set.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
+     */
+    public AdaptiveBitSet setBit(int index, boolean bit) {
+        return bit ? set(index) : clear(index);
+    }
+
+    /**
+     * @param index Index of the bit to set.
+     * @return This set.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
+     */
+    public AdaptiveBitSet set(int index) {
+        checkIndex(index);
+
+        switch (representation) {
+            case SORTED_ARRAY: {
+                int position = Arrays.binarySearch(values, 0, cardinality, index);
+                if (position >= 0) {
+                    return this;
+                } else if (cardinality == values.length) {
+                    if (adapt(index)) {
+                        return set(index);
+                    }
+                    values = Arrays.copyOf(values, Math.max(values.length * 2, INITIAL_CAPACITY));
+                }
+
+                position = -position - 1;
+                System.arraycopy(values, position, values, position + 1, cardinality - position);
+                values[position] = index;
+                cardinality++;
+                return this;
+            }
+            case DENSE:
+                if (index >= dense.size()) {
+                    // Decide before growing, so a far away index never allocates a vector up to it.
+                    if (adapt(index)) {
+                        return set(index);
+                    }
+                    growDense(index);
+                }
+                if (!dense.get(index)) {
+                    dense.setBit(index, true);
+                    cardinality++;
+                }
+                return this;
+            default:
+                addToRuns(index);
+                return this;
+        }
+    }
+
+    /**
+     * @param index Index of the bit to clear.
+     * @return This set.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
+     */
+    public AdaptiveBitSet clear(int index) {
+        checkIndex(index);
+
+        switch (representation) {
+            case SORTED_ARRAY: {
+                int position = Arrays.binarySearch(values, 0, cardinality, index);
+                if (position >= 0) {
+                    System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+                    cardinality--;
+                }
+                return this;
+            }
+            case DENSE:
+                if (index < dense.size() && dense.get(index)) {
+                    dense.setBit(index, false);
+                    cardinality--;
+                }
+                return this;
+            default:
+                removeFromRuns(index);
+                return this;
+        }
+    }
+
+    /**
+     * Sets all bits from (inclusive) to to (exclusive).
+     *
+     * @param from First index to set.
+     * @param to   Index after the last index to set.
+     * @return This set.
+     * @throws IndexOutOfBoundsException If from is smaller than 0 or greater than to.
+     */
+    public AdaptiveBitSet set(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return this;
+        } else if (representation == Representation.DENSE && (to <= dense.size() || !adapt(to - 1))) {
+            if (to > dense.size()) {
+                growDense(to - 1);
+            }
+            long[] words = dense.words();
+            int first = from / Long.SIZE;
+            int last = (to - 1) / Long.SIZE;
+            cardinality -= countWords(words, first, last + 1);
+            dense.setRangeUnchecked(from, to, true);
+            cardinality += countWords(words, first, last + 1);
+            adapt(lastSetBit());
+            return this;
+        }
+
+        return adopt(combine(this, range(from, to), Operation.OR));
+    }
+
+    /**
+     * Clears all bits from (inclusive) to to (exclusive) and switches to a cheaper representation, if one exists.
+     *
+     * @param from First index to clear.
+     * @param to   Index after the last index to clear.
+     * @return This set.
+     * @throws IndexOutOfBoundsException If from is smaller than 0 or greater than to.
+     */
+    public AdaptiveBitSet clear(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return this;
+        } else if (representation == Representation.DENSE) {
+            to = Math.min(to, dense.size());
+            if (from < to) {
+                long[] words = dense.words();
+                int first = from / Long.SIZE;
+                int last = (to - 1) / Long.SIZE;
+                cardinality -= countWords(words, first, last + 1);
+                dense.setRangeUnchecked(from, to, false);
+                cardinality += countWords(words, first, last + 1);
+            }
+            if (cardinality == 0) {
+                return clear();
+            }
+            trimDense();
+            adapt(lastSetBit());
+            return this;
+        }
+
+        return adopt(combine(this, range(from, to), Operation.AND_NOT));
+    }
+
+    /**
+     * Clears all bits and returns to the sorted array representation.
+     *
+     * @return This set.
+     */
+    public AdaptiveBitSet clear() {
+        return adopt(new AdaptiveBitSet());
+    }
+
+    private static void checkRange(int from, int to) {
+        if (from < 0 || from > to) {
+            throw new IndexOutOfBoundsException("Invalid range. (From: " + from + ", To: " + to + ")");
+        }
+    }
+
+    private static int countWords(long[] words, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            count += Long.bitCount(words[i]);
+        }
+
+        return count;
+    }
+
+    private static AdaptiveBitSet range(int from, int to) {
+        AdaptiveBitSet range = new AdaptiveBitSet();
+        range.representation = Representation.RUNS;
+        range.values = null;
+        range.runs = new int[]{from, to - 1};
+        range.runCount = 1;
+        range.cardinality = to - from;
+
+        return range;
+    }
+
+    /**
+     * @return Amount of set bits.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return True if no bit is set.
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * @param index Index from which to start searching.
+     * @return Index of the first set bit at or after index, -1 if there is none.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
+     */
+    public int nextSetBit(int index) {
+        checkIndex(index);
+
+        switch (representation) {
+            case SORTED_ARRAY: {
+                int position = Arrays.binarySearch(values, 0, cardinality, index);
+                if (position < 0) {
+                    position = -position - 1;
+                }
+                return position < cardinality ? values[position] : -1;
+            }
+            case DENSE:
+                return dense.nextSetBit(index);
+            default: {
+                int run = findRun(index);
+                if (run >= 0 && index <= runs[2 * run + 1]) {
+                    return index;
+                }
+                return run + 1 < runCount ? runs[2 * run + 2] : -1;
+            }
+        }
+    }
+
+    /**
+     * @return Index of the last set bit, -1 if there is none.
+     */
+    public int lastSetBit() {
+        if (cardinality == 0) {
+            return -1;
+        }
+
+        switch (representation) {
+            case SORTED_ARRAY:
+                return values[cardinality - 1];
+            case DENSE:
+                return dense.previousSetBit(dense.size() - 1);
+            default:
+                return runs[2 * runCount - 1];
+        }
+    }
+
+    /**
+     * Passes the indices of all set bits in ascending order to action.
+     *
+     * @param action Action to perform for each set bit.
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action, "Action cannot be null.");
+
+        switch (representation) {
+            case SORTED_ARRAY:
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(values[i]);
+                }
+                break;
+            case DENSE: {
+                long[] words = dense.words();
+                int count = BitVector.wordCount(dense.size());
+                for (int i = 0; i < count; i++) {
+                    long word = words[i];
+                    while (word != 0) {
+                        action.accept(i * Long.SIZE + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+                break;
+            }
+            default:
+                for (int run = 0; run < runCount; run++) {
+                    int end = runs[2 * run + 1];
+                    // Stops on equality, a run ending at Integer.MAX_VALUE would overflow index <= end.
+                    for (int index = runs[2 * run]; ; index++) {
+                        action.accept(index);
+                        if (index == end) {
+                            break;
+                        }
+                    }
+                }
+                break;
+        }
+    }
+
+    /**
+     * @return Indices of all set bits in ascending order.
+     */
+    public int[] toArray() {
+        if (representation == Representation.SORTED_ARRAY) {
+            return Arrays.copyOf(values, cardinality);
+        }
+
+        int[] indices = new int[cardinality];
+        int[] position = new int[1];
+        forEach(index -> indices[position[0]++] = index);
+
+        return indices;
+    }
+
+    /**
+     * @return Dense vector sized to hold the last set bit.
+     * @throws IllegalStateException If {@link Integer#MAX_VALUE} is set, which is beyond the size of a BitVector.
+     */
+    public BitVector toBitVector() {
+        int last = lastSetBit();
+        if (last == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Set bits exceed the size of a BitVector. (Last: " + last + ")");
+        }
+
+        int size = last + 1;
+        return new BitVector(toWords(BitVector.wordCount(size)), size, false);
+    }
+
+    /**
+     * Switches to the representation that takes the least memory for the current contents.
+     *
+     * @return This set.
+     */
+    public AdaptiveBitSet optimize() {
+        if (cardinality == 0) {
+            return clear();
+        } else if (representation == Representation.DENSE) {
+            trimDense();
+        }
+
+        Representation best = cheapest(lastSetBit());
+        if (best != representation) {
+            convert(best);
+        }
+
+        return this;
+    }
+
+    /**
+     * @param other Set to combine with.
+     * @return New set with the bits set in this or other.
+     */
+    public AdaptiveBitSet or(AdaptiveBitSet other) {
+        return combine(this, other, Operation.OR);
+    }
+
+    /**
+     * @param other Set to combine with.
+     * @return New set with the bits set in this and other.
+     */
+    public AdaptiveBitSet and(AdaptiveBitSet other) {
+        return combine(this, other, Operation.AND);
+    }
+
+    /**
+     * @param other Set to combine with.
+     * @return New set with the bits set in either this or other, but not in both.
+     */
+    public AdaptiveBitSet xor(AdaptiveBitSet other) {
+        return combine(this, other, Operation.XOR);
+    }
+
+    /**
+     * @param other Set to combine with.
+     * @return New set with the bits set in this but not in other.
+     */
+    public AdaptiveBitSet andNot(AdaptiveBitSet other) {
+        return combine(this, other, Operation.AND_NOT);
+    }
+
+    /**
+     * @return Independent copy of this set in the same representation.
+     */
+    public AdaptiveBitSet copy() {
+        AdaptiveBitSet copy = new AdaptiveBitSet();
+        copy.representation = representation;
+        copy.cardinality = cardinality;
+        copy.values = values == null ? null : Arrays.copyOf(values, values.length);
+        copy.dense = dense == null ? null : dense.copy();
+        copy.runs = runs == null ? null : Arrays.copyOf(runs, runs.length);
+        copy.runCount = runCount;
+
+        return copy;
+    }
+
+    /**
+     * Combines sorted arrays by merging them, run lists by sweeping over the run boundaries and everything else word
+     * by word.
+     */
+    private static AdaptiveBitSet combine(AdaptiveBitSet a, AdaptiveBitSet b, Operation operation) {
+        AdaptiveBitSet result = new AdaptiveBitSet();
+
+        if (a.representation == Representation.SORTED_ARRAY && b.representation == Representation.SORTED_ARRAY) {
+            result.values = mergeSorted(a.values, a.cardinality, b.values, b.cardinality, operation);
+            result.cardinality = result.values.length;
+        } else if ((a.representation == Representation.DENSE || b.representation == Representation.DENSE)
+                && Math.max(a.lastSetBit(), b.lastSetBit()) < Integer.MAX_VALUE) {
+            int count = BitVector.wordCount(Math.max(a.lastSetBit(), b.lastSetBit()) + 1);
+            long[] words = a.toWords(count);
+            long[] other = b.toWords(count);
+            for (int i = 0; i < count; i++) {
+                words[i] = operation.apply(words[i], other[i]);
+            }
+            result.adoptWords(words);
+        } else {
+            int[] runs = a.toRuns();
+            int[] otherRuns = b.toRuns();
+            result.adoptRuns(sweepRuns(runs, otherRuns, operation));
+        }
+
+        return result.optimize();
+    }
+
+    private static int[] mergeSorted(int[] a, int aCount, int[] b, int bCount, Operation operation) {
+        int[] result = new int[Math.max(aCount + bCount, INITIAL_CAPACITY)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < aCount || j < bCount) {
+            int value;
+            boolean inA;
+            boolean inB;
+            if (j >= bCount || (i < aCount && a[i] < b[j])) {
+                value = a[i++];
+                inA = true;
+                inB = false;
+            } else if (i >= aCount || b[j] < a[i]) {
+                value = b[j++];
+                inA = false;
+                inB = true;
+            } else {
+                value = a[i++];
+                j++;
+                inA = true;
+                inB = true;
+            }
+
+            if (operation.apply(inA, inB)) {
+                result[count++] = value;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Walks the boundaries of both run lists in order and emits a boundary whenever the combined value changes.
+     */
+    private static int[] sweepRuns(int[] a, int[] b, Operation operation) {
+        int[] result = new int[Math.max(a.length + b.length, 2)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        boolean inA = false;
+        boolean inB = false;
+        boolean inResult = false;
+
+        while (i < a.length || j < b.length) {
+            long nextA = i < a.length ? boundary(a, i) : Long.MAX_VALUE;
+            long nextB = j < b.length ? boundary(b, j) : Long.MAX_VALUE;
+            long position = Math.min(nextA, nextB);
+
+            if (nextA == position) {
+                inA = !inA;
+                i++;
+            }
+            if (nextB == position) {
+                inB = !inB;
+                j++;
+            }
+
+            boolean value = operation.apply(inA, inB);
+            if (value != inResult) {
+                result[count++] = (int) (value ? position : position - 1);
+                inResult = value;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return The start of a run for even indices, the index after the end of a run for odd indices.
+     */
+    private static long boundary(int[] runs, int index) {
+        return (index & 1) == 0 ? runs[index] : runs[index] + 1L;
+    }
+
+    private long[] toWords(int count) {
+        if (representation == Representation.DENSE) {
+            long[] words = Arrays.copyOf(dense.words(), count);
+            int own = BitVector.wordCount(dense.size());
+            if (own < count) {
+                Arrays.fill(words, own, count, 0);
+            }
+            return words;
+        }
+
+        long[] words = new long[count];
+        if (representation == Representation.RUNS) {
+            for (int run = 0; run < runCount; run++) {
+                Container.setRange(words, 0, runs[2 * run], runs[2 * run + 1] + 1);
+            }
+        } else {
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] / Long.SIZE] |= 1L << values[i];
+            }
+        }
+
+        return words;
+    }
+
+    private int[] toRuns() {
+        if (representation == Representation.RUNS) {
+            return Arrays.copyOf(runs, 2 * runCount);
+        }
+
+        int[] result = new int[2 * countRuns()];
+        int[] count = {0};
+        forEach(index -> {
+            if (count[0] > 0 && result[count[0] - 1] == index - 1) {
+                result[count[0] - 1] = index;
+            } else {
+                result[count[0]++] = index;
+                result[count[0]++] = index;
+            }
+        });
+
+        return result;
+    }
+
+    private void adoptWords(long[] words) {
+        representation = Representation.DENSE;
+        dense = new BitVector(words, (int) Math.min((long) words.length * Long.SIZE, Integer.MAX_VALUE), false);
+        cardinality = countWords(words, 0, words.length);
+        values = null;
+        runs = null;
+        runCount = 0;
+    }
+
+    private void adoptRuns(int[] pairs) {
+        representation = Representation.RUNS;
+        runs = pairs.length == 0 ? new int[2] : pairs;
+        runCount = pairs.length / 2;
+        cardinality = 0;
+        for (int run = 0; run < runCount; run++) {
+            cardinality += runs[2 * run + 1] - runs[2 * run] + 1;
+        }
+        values = null;
+        dense = null;
+    }
+
+    private AdaptiveBitSet adopt(AdaptiveBitSet other) {
+        representation = other.representation;
+        cardinality = other.cardinality;
+        values = other.values;
+        dense = other.dense;
+        runs = other.runs;
+        runCount = other.runCount;
+
+        return this;
+    }
+
+    private int countRuns() {
+        switch (representation) {
+            case SORTED_ARRAY: {
+                int count = 0;
+                for (int i = 0; i < cardinality; i++) {
+                    if (i == 0 || values[i] != values[i - 1] + 1) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            case DENSE: {
+                long[] words = dense.words();
+                int wordCount = BitVector.wordCount(dense.size());
+                int count = 0;
+                long carry = 0;
+                for (int i = 0; i < wordCount; i++) {
+                    count += Long.bitCount(words[i] & ~((words[i] << 1) | carry));
+                    carry = words[i] >>> (Long.SIZE - 1);
+                }
+                return count;
+            }
+            default:
+                return runCount;
+        }
+    }
+
+    private long cost(Representation candidate, int runs, int last) {
+        switch (candidate) {
+            case SORTED_ARRAY:
+                return (long) Integer.BYTES * cardinality;
+            case DENSE: {
+                if (last == Integer.MAX_VALUE) {
+                    return Long.MAX_VALUE;
+                }
+                int words = BitVector.wordCount(last + 1);
+                if (representation == Representation.DENSE) {
+                    words = Math.max(words, BitVector.wordCount(dense.size()));
+                }
+                return (long) Long.BYTES * words;
+            }
+            default:
+                return 2L * Integer.BYTES * runs;
+        }
+    }
+
+    /**
+     * @param last Index of the last set bit to assume.
+     */
+    private Representation cheapest(int last) {
+        int runs = countRuns();
+        Representation best = representation;
+
+        for (Representation candidate : Representation.values()) {
+            if (cost(candidate, runs, last) < cost(best, runs, last)) {
+                best = candidate;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Switches to the cheapest representation if it takes at most half the memory of the current one. The costs are
+     * computed for the given last index, so callers about to set a bit beyond the current last bit can decide before
+     * any storage grows.
+     *
+     * @param index Index of a bit about to be set, or the current last set bit.
+     * @return True if the representation changed.
+     */
+    private boolean adapt(int index) {
+        int runs = countRuns();
+        int last = Math.max(index, lastSetBit());
+        Representation best = cheapest(last);
+
+        if (best != representation && 2 * cost(best, runs, last) <= cost(representation, runs, last)) {
+            convert(best);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void convert(Representation target) {
+        switch (target) {
+            case SORTED_ARRAY: {
+                int[] indices = toArray();
+                int count = cardinality;
+                adopt(new AdaptiveBitSet());
+                values = Arrays.copyOf(indices, Math.max(count, INITIAL_CAPACITY));
+                cardinality = count;
+                break;
+            }
+            case DENSE:
+                adoptWords(toWords(BitVector.wordCount(lastSetBit() + 1)));
+                break;
+            default:
+                adoptRuns(toRuns());
+                break;
+        }
+    }
+
+    /**
+     * Shrinks the dense vector to the last set bit once it holds at least twice the words it needs.
+     */
+    private void trimDense() {
+        int size = lastSetBit() + 1;
+        if (2 * BitVector.wordCount(size) <= BitVector.wordCount(dense.size())) {
+            dense = new BitVector(toWords(BitVector.wordCount(size)), size, false);
+        }
+    }
+
+    private void growDense(int index) {
+        long grown = Math.max(index + 1L, dense.size() + (dense.size() >> 1));
+        int size = (int) Math.min(grown, Integer.MAX_VALUE);
+        dense = new BitVector(toWords(BitVector.wordCount(size)), size, false);
+    }
+
+    /**
+     * @return Index of the last run starting at or before index, -1 if there is none.
+     */
+    private int findRun(int index) {
+        int low = 0;
+        int high = runCount - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (runs[2 * mid] <= index) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return found;
+    }
+
+    private void insertRun(int run, int start, int end) {
+        if (2 * runCount == runs.length) {
+            runs = Arrays.copyOf(runs, Math.max(runs.length * 2, 2));
+        }
+        System.arraycopy(runs, 2 * run, runs, 2 * run + 2, 2 * (runCount - run));
+        runs[2 * run] = start;
+        runs[2 * run + 1] = end;
+        runCount++;
+    }
+
+    private void deleteRun(int run) {
+        System.arraycopy(runs, 2 * run + 2, runs, 2 * run, 2 * (runCount - run - 1));
+        runCount--;
+    }
+
+    private void addToRuns(int index) {
+        int run = findRun(index);
+        if (run >= 0 && index <= runs[2 * run + 1]) {
+            return;
+        }
+
+        boolean extendsPrevious = run >= 0 && runs[2 * run + 1] + 1 == index;
+        boolean extendsNext = run + 1 < runCount && runs[2 * run + 2] == index + 1;
+
+        if (!extendsPrevious && !extendsNext && 2 * runCount == runs.length && adapt(index)) {
+            set(index);
+            return;
+        }
+
+        if (extendsPrevious && extendsNext) {
+            runs[2 * run + 1] = runs[2 * run + 3];
+            deleteRun(run + 1);
+        } else if (extendsPrevious) {
+            runs[2 * run + 1] = index;
+        } else if (extendsNext) {
+            runs[2 * run + 2] = index;
+        } else {
+            insertRun(run + 1, index, index);
+        }
+        cardinality++;
+    }
+
+    private void removeFromRuns(int index) {
+        int run = findRun(index);
+        if (run < 0 || index > runs[2 * run + 1]) {
+            return;
+        }
+
+        int start = runs[2 * run];
+        int end = runs[2 * run + 1];
+
+        if (start == end) {
+            deleteRun(run);
+        } else if (index == start) {
+            runs[2 * run] = start + 1;
+        } else if (index == end) {
+            runs[2 * run + 1] = end - 1;
+        } else {
+            runs[2 * run + 1] = index - 1;
+            insertRun(run + 1, index + 1, end);
+        }
+        cardinality--;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (!(obj instanceof AdaptiveBitSet)) {
+            return false;
+        }
+
+        AdaptiveBitSet other = (AdaptiveBitSet) obj;
+        return cardinality == other.cardinality && Arrays.equals(toArray(), other.toArray());
+    }
+
+    /**
+     * @return Hash code over the set indices, independent of the representation.
+     */
+    @Override
+    public int hashCode() {
+        int[] hash = {1};
+        forEach(index -> hash[0] = 31 * hash[0] + index);
+
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("AdaptiveBitSet{");
+        forEach(index -> {
+            if (builder.length() > "AdaptiveBitSet{".length()) {
+                builder.append(", ");
+            }
+            builder.append(index);
+        });
+
+        return builder.append('}').toString();
+    }
+}
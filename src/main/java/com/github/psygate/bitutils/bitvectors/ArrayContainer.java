@@ -0,0 +1,241 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Container holding up to {@value #MAX_ARRAY_SIZE} values in a sorted char array.
+ */
+final class ArrayContainer extends Container {
+    private char[] values;
+    private int size;
+
+    ArrayContainer() {
+        this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    static ArrayContainer fromWords(long[] words, int cardinality) {
+        char[] values = new char[cardinality];
+        int size = 0;
+
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                values[size++] = (char) (i * Long.SIZE + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+
+        return new ArrayContainer(values, size);
+    }
+
+    @Override
+    int cardinality() {
+        return size;
+    }
+
+    @Override
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, (char) value) >= 0;
+    }
+
+    @Override
+    Container add(int value) {
+        int index = Arrays.binarySearch(values, 0, size, (char) value);
+        if (index >= 0) {
+            return this;
+        } else if (size >= MAX_ARRAY_SIZE) {
+            return toBitmap().add(value);
+        }
+
+        index = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(Math.max(values.length * 2, 4), MAX_ARRAY_SIZE));
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = (char) value;
+        size++;
+
+        return this;
+    }
+
+    @Override
+    Container remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, (char) value);
+        if (index >= 0) {
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+        }
+
+        return this;
+    }
+
+    @Override
+    int nextValue(int value) {
+        int index = Arrays.binarySearch(values, 0, size, (char) value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        return index < size ? values[index] : -1;
+    }
+
+    @Override
+    int last() {
+        return values[size - 1];
+    }
+
+    @Override
+    int runCount() {
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || values[i] != values[i - 1] + 1) {
+                runs++;
+            }
+        }
+
+        return runs;
+    }
+
+    @Override
+    void orInto(long[] words, int offset) {
+        for (int i = 0; i < size; i++) {
+            int word = offset + values[i] / Long.SIZE;
+            if (word >= words.length) {
+                return;
+            }
+            words[word] |= 1L << values[i];
+        }
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(high | values[i]);
+        }
+    }
+
+    @Override
+    ArrayContainer copy() {
+        return new ArrayContainer(Arrays.copyOf(values, Math.max(size, 1)), size);
+    }
+
+    char valueAt(int index) {
+        return values[index];
+    }
+
+    BitmapContainer toBitmap() {
+        long[] words = new long[WORDS];
+        orInto(words, 0);
+        return new BitmapContainer(words, size);
+    }
+
+    /**
+     * @param other Container to test the values against.
+     * @param keep  True to keep the values contained in other, false to keep the values not contained in other.
+     * @return A new container with the retained values.
+     */
+    ArrayContainer retain(Container other, boolean keep) {
+        char[] result = new char[Math.max(size, 1)];
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (other.contains(values[i]) == keep) {
+                result[count++] = values[i];
+            }
+        }
+
+        return new ArrayContainer(result, count);
+    }
+
+    static ArrayContainer or(ArrayContainer a, ArrayContainer b) {
+        char[] result = new char[Math.max(a.size + b.size, 1)];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+
+        while (i < a.size && j < b.size) {
+            char x = a.values[i];
+            char y = b.values[j];
+            if (x < y) {
+                result[count++] = x;
+                i++;
+            } else if (x > y) {
+                result[count++] = y;
+                j++;
+            } else {
+                result[count++] = x;
+                i++;
+                j++;
+            }
+        }
+        System.arraycopy(a.values, i, result, count, a.size - i);
+        count += a.size - i;
+        System.arraycopy(b.values, j, result, count, b.size - j);
+        count += b.size - j;
+
+        return new ArrayContainer(result, count);
+    }
+
+    static ArrayContainer xor(ArrayContainer a, ArrayContainer b) {
+        char[] result = new char[Math.max(a.size + b.size, 1)];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+
+        while (i < a.size && j < b.size) {
+            char x = a.values[i];
+            char y = b.values[j];
+            if (x < y) {
+                result[count++] = x;
+                i++;
+            } else if (x > y) {
+                result[count++] = y;
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        System.arraycopy(a.values, i, result, count, a.size - i);
+        count += a.size - i;
+        System.arraycopy(b.values, j, result, count, b.size - j);
+        count += b.size - j;
+
+        return new ArrayContainer(result, count);
+    }
+
+    static boolean contentEquals(ArrayContainer a, ArrayContainer b) {
+        return Arrays.equals(a.values, 0, a.size, b.values, 0, b.size);
+    }
+}
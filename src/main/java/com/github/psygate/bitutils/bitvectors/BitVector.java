@@ -27,6 +27,8 @@ package com.github.psygate.bitutils.bitvectors;
 
 import java.util.Arrays;
 
+import static com.github.psygate.bitutils.bitvectors.ArrayUtils.arraySize;
+import static com.github.psygate.bitutils.bitvectors.ArrayUtils.hasRest;
 import static com.github.psygate.bitutils.bitvectors.ArrayUtils.packToLong;
 
 /**
@@ -35,8 +37,14 @@ import static com.github.psygate.bitutils.bitvectors.ArrayUtils.packToLong;
  * Implementation of a BitVector. This implementation is modifying in place and will only return a new vector where explicitly required. All set & write methods return this vector.
  */
 public class BitVector {
+    private static final int MAX_WORDS = arraySize(Integer.MAX_VALUE, Long.SIZE);
+
     private long[] bits;
     private int size;
+    private int modCount;
+    private int hash;
+    private int hashModCount;
+    private boolean hashValid;
 
     public static BitVector of(boolean[] values) {
         return new BitVector(packToLong(values), values.length, false);
@@ -100,7 +108,22 @@ public class BitVector {
         return new BitVector(packToLong(values), values.length(), false);
     }
 
-    private BitVector(long[] values, int size, boolean copy) {
+    /**
+     * Creates an empty vector that can hold $capacity bits before it has to grow.
+     *
+     * @param capacity Amount of bits to reserve.
+     * @return Empty vector with the requested capacity.
+     * @throws IllegalArgumentException If the capacity is smaller than 0.
+     */
+    public static BitVector withCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be less than 0. (Capacity: " + capacity + ")");
+        }
+
+        return new BitVector(new long[wordCount(capacity)], 0, false);
+    }
+
+    BitVector(long[] values, int size, boolean copy) {
         if (copy) {
             this.bits = Arrays.copyOf(values, values.length);
         } else {
@@ -110,7 +133,7 @@ public class BitVector {
     }
 
     public BitVector(int size) {
-        this.bits = new long[size / Long.SIZE];
+        this.bits = new long[wordCount(size)];
         this.size = size;
     }
 
@@ -129,17 +152,7 @@ public class BitVector {
      * @return Vector with the written bit.
      */
     public BitVector writeBit(boolean bit) {
-        if (isEmpty()) {
-            bits = new long[]{bit ? 1L : 0L};
-            size = 1;
-            return this;
-        }
-
-        if (bits.length * Long.SIZE <= size()) {
-            long[] oldbits = bits;
-            bits = new long[oldbits.length + 1];
-            System.arraycopy(oldbits, 0, bits, 0, oldbits.length);
-        }
+        ensureCapacity(size + 1);
 
         int longIdx = size / Long.SIZE;
         int bitOffset = size % Long.SIZE;
@@ -153,11 +166,50 @@ public class BitVector {
         }
 
         bits[longIdx] = value;
+        modCount++;
 
         size++;
         return this;
     }
 
+    /**
+     * Makes sure the vector can hold at least $capacity bits without reallocating. The backing array grows by at least
+     * half of its length each time, so appending n bits costs amortized O(n / Long.SIZE) copies.
+     *
+     * @param capacity Minimum amount of bits the vector has to be able to hold.
+     * @throws IllegalArgumentException If the capacity is smaller than 0.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be less than 0. (Capacity: " + capacity + ")");
+        }
+
+        int required = wordCount(capacity);
+
+        if (required > bits.length) {
+            int grown = Math.min(bits.length + (bits.length >> 1), MAX_WORDS);
+            bits = Arrays.copyOf(bits, Math.max(required, grown));
+        }
+    }
+
+    /**
+     * Releases all words of the backing array that are not needed to hold {@link #size()} bits.
+     */
+    public void trimToSize() {
+        int required = wordCount(size());
+
+        if (required < bits.length) {
+            bits = Arrays.copyOf(bits, required);
+        }
+    }
+
+    /**
+     * @return Amount of bits this vector can hold before the backing array has to grow.
+     */
+    public int capacity() {
+        return (int) Math.min((long) bits.length * Long.SIZE, Integer.MAX_VALUE);
+    }
+
 
     /**
      * @param index Index in the BitVector where to set the bit.
@@ -177,6 +229,7 @@ public class BitVector {
         }
 
         bits[longIdx] = value;
+        modCount++;
 
         return this;
     }
@@ -188,6 +241,54 @@ public class BitVector {
         return size;
     }
 
+    /**
+     * Returns the backing array of this vector. Only the first {@link #wordCount(int)} words are in use, and the bits
+     * of the last used word beyond {@link #size()} are unspecified.
+     *
+     * @return Backing array of this vector, not a copy.
+     */
+    long[] words() {
+        return bits;
+    }
+
+    /**
+     * @return Counter that changes whenever the contents of this vector are modified, so derived structures can detect
+     * that they are stale.
+     */
+    int modCount() {
+        return modCount;
+    }
+
+    /**
+     * Sets or clears all bits from (inclusive) to to (exclusive) word by word, without performing any checks.
+     *
+     * @param from First index to change.
+     * @param to   Index after the last index to change, at most {@link #size()}.
+     * @param bit  Value to set the bits to.
+     * @return This vector.
+     */
+    BitVector setRangeUnchecked(int from, int to, boolean bit) {
+        if (from >= to) {
+            return this;
+        }
+
+        int first = from / Long.SIZE;
+        int last = (to - 1) / Long.SIZE;
+        for (int i = first; i <= last; i++) {
+            long mask = -1L;
+            if (i == first) {
+                mask &= -1L << from;
+            }
+            if (i == last) {
+                mask &= -1L >>> -to;
+            }
+            bits[i] = bit ? bits[i] | mask : bits[i] & ~mask;
+        }
+
+        modCount++;
+        return this;
+    }
+
     /**
      * Returns a bit without performing any checks.
      *
@@ -209,12 +310,7 @@ public class BitVector {
      * @return BitVector containing the bits from position to position + length.
      */
     protected BitVector subVectorUnchecked(int position, int length) {
-        BitVector vec = new BitVector();
-        for (int i = 0; i < length; i++) {
-            vec.writeBit(get(position + i));
-        }
-
-        return vec;
+        return withCapacity(length).write(this, position, length);
     }
 
     /**
@@ -232,7 +328,7 @@ public class BitVector {
      * @return Copy of this vector.
      */
     public BitVector copy() {
-        return new BitVector(bits, size(), true);
+        return new BitVector(Arrays.copyOf(bits, wordCount(size())), size(), false);
     }
 
     public static BitVector emptyVector() {
@@ -255,15 +351,47 @@ public class BitVector {
         if (found == -1) {
             return this;
         } else {
-            BitVector head = subVectorUnchecked(0, found);
-            BitVector tail = subVectorUnchecked(found + find.size(), size() - (found + find.size()));
+            int end = found + find.size();
+            BitVector vec = withCapacity(size() - find.size() + replace.size());
+
+            return vec.write(this, 0, found).write(replace).write(this, end, size() - end);
+        }
+    }
+
+    /**
+     * Replaces all non overlapping occurrences of find, from left to right. An empty find inserts replace before every
+     * bit and at the end, like {@link String#replace(CharSequence, CharSequence)}.
+     *
+     * @param find    Substring to find within this BitVector.
+     * @param replace Replacement string to insert instead of $find within this BitVector.
+     * @return BitVector with all occurrences of $find replaced with $replace, or this vector if there are none.
+     */
+    public BitVector replaceAll(BitVector find, BitVector replace) {
+        if (find.isEmpty()) {
+            BitVector vec = withCapacity(size() + (size() + 1) * replace.size());
+
+            for (int i = 0; i < size(); i++) {
+                vec.write(replace).writeBit(getUnchecked(i));
+            }
+
+            return vec.write(replace);
+        }
 
-            BitVector vec = (BitVector) head.write(replace);
+        int found = indexOf(0, find);
+        if (found == -1) {
+            return this;
+        }
 
-            vec = (BitVector) vec.write(tail);
+        BitVector vec = withCapacity(size());
+        int position = 0;
 
-            return vec;
+        while (found != -1) {
+            vec.write(this, position, found - position).write(replace);
+            position = found + find.size();
+            found = BitVectorSearch.indexOf(this, find, position);
         }
+
+        return vec.write(this, position, size() - position);
     }
 
     /**
@@ -271,63 +399,150 @@ public class BitVector {
      * @return Bitwise Or product of this and other vector.
      */
     protected BitVector uncheckedOr(BitVector other) {
-        long[] buffer = new long[bits.length];
+        return copy().uncheckedOrInPlace(other);
+    }
 
-        for (int i = 0; i < size(); i++) {
-            int longIndex = i / Long.SIZE;
-            int bitIndex = i % Long.SIZE;
+    /**
+     * @param other Returns a bitvector that is the bitwise and of this and the other bitvector.
+     * @return Bitwise And product of this and other vector.
+     */
+    protected BitVector uncheckedAnd(BitVector other) {
+        return copy().uncheckedAndInPlace(other);
+    }
+
+    /**
+     * @param other Returns a bitvector that is the bitwise xor of this and the other bitvector.
+     * @return Bitwise Xor product of this and other vector.
+     */
+    protected BitVector uncheckedXor(BitVector other) {
+        return copy().uncheckedXorInPlace(other);
+    }
+
+    /**
+     * @param other Returns a bitvector that is the bitwise and of this and the complement of the other bitvector.
+     * @return Bitwise And Not product of this and other vector.
+     */
+    protected BitVector uncheckedAndNot(BitVector other) {
+        return copy().uncheckedAndNotInPlace(other);
+    }
+
+    /**
+     * Ors the other vector into this vector word by word.
+     *
+     * @param other Vector of the same size as this vector.
+     * @return This vector.
+     */
+    protected BitVector uncheckedOrInPlace(BitVector other) {
+        long[] words = bits;
+        long[] otherWords = other.bits;
+        int count = wordCount(size());
 
-            buffer[longIndex] |= (other.getBit(i) | getBit(i)) << bitIndex;
+        for (int i = 0; i < count; i++) {
+            words[i] |= otherWords[i];
         }
 
-        return new BitVector(buffer, size(), false);
+        modCount++;
+        return maskTail();
     }
 
     /**
-     * @param other Returns a bitvector that is the bitwise and of this and the other bitvector.
-     * @return Bitwise And product of this and other vector.
+     * Ands the other vector into this vector word by word.
+     *
+     * @param other Vector of the same size as this vector.
+     * @return This vector.
      */
-    protected BitVector uncheckedAnd(BitVector other) {
-        long[] buffer = new long[bits.length];
+    protected BitVector uncheckedAndInPlace(BitVector other) {
+        long[] words = bits;
+        long[] otherWords = other.bits;
+        int count = wordCount(size());
 
-        for (int i = 0; i < size(); i++) {
-            int longIndex = i / Long.SIZE;
-            int bitIndex = i % Long.SIZE;
+        for (int i = 0; i < count; i++) {
+            words[i] &= otherWords[i];
+        }
+
+        modCount++;
+        return maskTail();
+    }
 
-            buffer[longIndex] |= (other.getBit(i) & getBit(i)) << bitIndex;
+    /**
+     * Xors the other vector into this vector word by word.
+     *
+     * @param other Vector of the same size as this vector.
+     * @return This vector.
+     */
+    protected BitVector uncheckedXorInPlace(BitVector other) {
+        long[] words = bits;
+        long[] otherWords = other.bits;
+        int count = wordCount(size());
+
+        for (int i = 0; i < count; i++) {
+            words[i] ^= otherWords[i];
         }
 
-        return new BitVector(buffer, size(), false);
+        modCount++;
+        return maskTail();
     }
 
     /**
-     * @param other Returns a bitvector that is the bitwise xor of this and the other bitvector.
-     * @return Bitwise Xor product of this and other vector.
+     * Clears all bits in this vector that are set in the other vector, word by word.
+     *
+     * @param other Vector of the same size as this vector.
+     * @return This vector.
      */
-    protected BitVector uncheckedXor(BitVector other) {
-        long[] buffer = new long[bits.length];
+    protected BitVector uncheckedAndNotInPlace(BitVector other) {
+        long[] words = bits;
+        long[] otherWords = other.bits;
+        int count = wordCount(size());
 
-        for (int i = 0; i < size(); i++) {
-            int longIndex = i / Long.SIZE;
-            int bitIndex = i % Long.SIZE;
+        for (int i = 0; i < count; i++) {
+            words[i] &= ~otherWords[i];
+        }
 
-            buffer[longIndex] |= (other.getBit(i) ^ getBit(i)) << bitIndex;
+        modCount++;
+        return maskTail();
+    }
+
+    /**
+     * Clears the bits of the last word that lie beyond {@link #size()}, so word level operations never see stale bits.
+     *
+     * @return This vector.
+     */
+    private BitVector maskTail() {
+        if (hasRest(size(), Long.SIZE)) {
+            bits[size() / Long.SIZE] &= tailMask(size());
         }
 
-        return new BitVector(buffer, size(), false);
+        return this;
+    }
+
+    /**
+     * @param size Size of a vector in bits.
+     * @return Amount of longs needed to hold $size bits.
+     */
+    static int wordCount(int size) {
+        return arraySize(size, Long.SIZE);
+    }
+
+    /**
+     * @param size Size of a vector in bits.
+     * @return Mask selecting the used bits of the last word of a vector with $size bits. All bits are selected if the last word is full.
+     */
+    static long tailMask(int size) {
+        return 0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - size % Long.SIZE) % Long.SIZE;
     }
 
     /**
      * @return Returns the bitwise not of this vector.
      */
     public BitVector not() {
-        long[] buffer = new long[bits.length];
+        int count = wordCount(size());
+        long[] buffer = new long[count];
 
-        for (int i = 0; i < bits.length; i++) {
+        for (int i = 0; i < count; i++) {
             buffer[i] = ~bits[i];
         }
 
-        return new BitVector(buffer, size(), false);
+        return new BitVector(buffer, size(), false).maskTail();
     }
 
     /**
@@ -413,13 +628,8 @@ public class BitVector {
         checkPosition(position);
         checkSize(size, Integer.SIZE);
         checkAvailable(position, size);
-        int value = 0;
 
-        for (int i = 0; i < size; i++) {
-            value |= getBit(position + i) << i;
-        }
-
-        return value;
+        return (int) getBitsUnchecked(position, size);
     }
 
     /**
@@ -434,12 +644,82 @@ public class BitVector {
         checkSize(amount, Long.SIZE);
         checkAvailable(position, amount);
 
-        long value = 0;
-        for (int i = 0; i < amount; i++) {
-            value |= ((long) getBit(position + i)) << i;
+        return getBitsUnchecked(position, amount);
+    }
+
+    /**
+     * Reads up to {@link Long#SIZE} bits without performing any checks. The bits are read from at most two words.
+     *
+     * @param position Position to read the bits from.
+     * @param amount   Amount of bits to read, between 0 and {@link Long#SIZE}.
+     * @return Long containing the bits from position to position + amount, starting at the least significant bit.
+     */
+    protected long getBitsUnchecked(int position, int amount) {
+        if (amount == 0) {
+            return 0;
+        }
+
+        int longIdx = position / Long.SIZE;
+        int bitOffset = position % Long.SIZE;
+        long value = bits[longIdx] >>> bitOffset;
+
+        if (bitOffset + amount > Long.SIZE) {
+            value |= bits[longIdx + 1] << (Long.SIZE - bitOffset);
+        }
+
+        return value & fitMask(amount);
+    }
+
+    /**
+     * Overwrites up to {@link Long#SIZE} bits without performing any checks. At most two words are modified.
+     *
+     * @param position Position to write the bits to.
+     * @param value    Value of which to write the bits from least significant to most significant bit.
+     * @param amount   Amount of bits to write, between 0 and {@link Long#SIZE}.
+     * @return This vector.
+     */
+    protected BitVector setBitsUnchecked(int position, long value, int amount) {
+        if (amount == 0) {
+            return this;
+        }
+
+        long mask = fitMask(amount);
+        long field = value & mask;
+        int longIdx = position / Long.SIZE;
+        int bitOffset = position % Long.SIZE;
+
+        bits[longIdx] = (bits[longIdx] & ~(mask << bitOffset)) | (field << bitOffset);
+
+        if (bitOffset + amount > Long.SIZE) {
+            int written = Long.SIZE - bitOffset;
+            bits[longIdx + 1] = (bits[longIdx + 1] & ~(mask >>> written)) | (field >>> written);
         }
 
-        return value;
+        modCount++;
+        return this;
+    }
+
+    /**
+     * Appends up to {@link Long#SIZE} bits without checking the amount.
+     *
+     * @param value  Value of which to write the bits from least significant to most significant bit.
+     * @param amount Amount of bits to write, between 0 and {@link Long#SIZE}.
+     * @return This vector.
+     */
+    protected BitVector writeBitsUnchecked(long value, int amount) {
+        ensureCapacity(size + amount);
+        setBitsUnchecked(size, value, amount);
+        size += amount;
+
+        return this;
+    }
+
+    /**
+     * @param amount Amount of bits to mask (from the lsb to the msb), between 1 and {@link Long#SIZE}.
+     * @return Mask with the lower $amount bits set.
+     */
+    private static long fitMask(int amount) {
+        return 0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - amount);
     }
 
     /**
@@ -457,7 +737,7 @@ public class BitVector {
         byte[] byteArray = new byte[length];
 
         for (int i = 0; i < length; i++) {
-            byteArray[i] = getByte(position + i * Byte.SIZE);
+            byteArray[i] = (byte) getBitsUnchecked(position + i * Byte.SIZE, Byte.SIZE);
         }
 
         return byteArray;
@@ -504,6 +784,43 @@ public class BitVector {
         return subVectorUnchecked(position, length);
     }
 
+    /**
+     * Same as view(position, {@link #size()} - position). See {@link #view(int, int)}
+     */
+    public BitVectorView view(int position) {
+        return view(position, size() - position);
+    }
+
+    /**
+     * Creates a read only view of this vector that shares the backing array instead of copying it. Changes to this
+     * vector are visible through the view.
+     *
+     * @param position Position from which to create the view.
+     * @param length   Length of the view.
+     * @return View of the bits from position to position + length.
+     * @throws IndexOutOfBoundsException If the view exceeds the vector.
+     */
+    public BitVectorView view(int position, int length) {
+        checkReadRange(position, length);
+
+        return new BitVectorView(this, position, length);
+    }
+
+    /**
+     * Creates a writable view of this vector that shares the backing array instead of copying it. Changes made through
+     * the view modify this vector.
+     *
+     * @param position Position from which to create the view.
+     * @param length   Length of the view.
+     * @return Writable view of the bits from position to position + length.
+     * @throws IndexOutOfBoundsException If the view exceeds the vector.
+     */
+    public WritableBitVectorView writableView(int position, int length) {
+        checkReadRange(position, length);
+
+        return new WritableBitVectorView(this, position, length);
+    }
+
     /**
      * Returns a subvector of the range $from to $to.
      *
@@ -550,16 +867,13 @@ public class BitVector {
      * @return True if all bits at position startIndex to startIndex + other.size() match all bits in the other vector.
      */
     public boolean matches(int startIndex, BitVector other) {
-        if (startIndex + other.size() > size()) {
+        if (startIndex < 0) {
+            throw new IndexOutOfBoundsException("Start index cannot be less than 0. (Start index: " + startIndex + ")");
+        } else if ((long) startIndex + other.size() > size()) {
             return false;
         }
-        for (int i = 0; i < other.size(); i++) {
-            if (get(i + startIndex) != other.get(i)) {
-                return false;
-            }
-        }
 
-        return true;
+        return BitVectorSearch.matchesUnchecked(this, startIndex, other);
     }
 
     /**
@@ -571,26 +885,62 @@ public class BitVector {
 
     /**
      * Returns the first index after startIndex at which this vector matches the other. Searching for an empty vector will always return 0.
+     * Patterns of up to {@link Long#SIZE} bits are matched against 64 positions at once, longer patterns use a skip table.
      *
-     * @param startIndex
-     * @param other
-     * @return
+     * @param startIndex Index from which to start searching.
+     * @param other      Vector to search for.
+     * @return First index at or after startIndex where other occurs in this vector, -1 if it doesn't occur.
+     * @throws IndexOutOfBoundsException If startIndex is smaller than 0.
      */
     public int indexOf(int startIndex, BitVector other) {
         if (other.isEmpty()) {// || this.empty()) {
             return 0;
 //            return -1;
+        } else if (startIndex < 0) {
+            throw new IndexOutOfBoundsException("Start index cannot be less than 0. (Start index: " + startIndex + ")");
         }
 
-        if (startIndex + other.size() <= size()) {
-            for (int i = startIndex; i < size(); i++) {
-                if (matches(i, other)) {
-                    return i;
-                }
-            }
+        return BitVectorSearch.indexOf(this, other, startIndex);
+    }
+
+    /**
+     * Same as lastIndexOf({@link #size()}, other). See {@link #lastIndexOf(int, BitVector)}
+     */
+    public int lastIndexOf(BitVector other) {
+        return lastIndexOf(size(), other);
+    }
+
+    /**
+     * Returns the last index at or before fromIndex at which this vector matches the other. Searching for an empty
+     * vector returns fromIndex, limited to {@link #size()}.
+     *
+     * @param fromIndex Index from which to start searching backwards.
+     * @param other     Vector to search for.
+     * @return Last index at or before fromIndex where other occurs in this vector, -1 if it doesn't occur.
+     */
+    public int lastIndexOf(int fromIndex, BitVector other) {
+        if (fromIndex < 0) {
+            return -1;
+        } else if (other.isEmpty()) {
+            return Math.min(fromIndex, size());
+        }
+
+        return BitVectorSearch.lastIndexOf(this, other, fromIndex);
+    }
+
+    /**
+     * Returns all indices at which this vector matches the other, including overlapping matches.
+     *
+     * @param other Non empty vector to search for.
+     * @return Ascending indices of all occurrences of other in this vector.
+     * @throws IllegalArgumentException If other is empty.
+     */
+    public int[] indexOfAll(BitVector other) {
+        if (other.isEmpty()) {
+            throw new IllegalArgumentException("Cannot search for all occurrences of an empty vector.");
         }
 
-        return -1;
+        return BitVectorSearch.indexOfAll(this, other);
     }
 
     /**
@@ -611,11 +961,11 @@ public class BitVector {
         byte[] out = new byte[arraySize];
 
         for (int i = 0; i < (size() / Byte.SIZE); i++) {
-            out[i] = getByte(i * Byte.SIZE);
+            out[i] = (byte) getBitsUnchecked(i * Byte.SIZE, Byte.SIZE);
         }
 
         if (remaining != 0) {
-            out[out.length - 1] = (byte) getBits(size() - remaining, remaining);
+            out[out.length - 1] = (byte) getBitsUnchecked(size() - remaining, remaining);
         }
 
         return out;
@@ -665,6 +1015,44 @@ public class BitVector {
         }
     }
 
+    /**
+     * Checks if the range from index to index + amount lies within the vector, so it can be overwritten.
+     *
+     * @param index  Position of the first bit to overwrite.
+     * @param amount Amount of bits to overwrite.
+     * @throws IndexOutOfBoundsException If the range exceeds the vector.
+     */
+    protected void checkSetRange(int index, int amount) {
+        if (index < 0 || amount < 0 || (long) index + amount > size()) {
+            throw new IndexOutOfBoundsException("Cannot set bits outside of vector range. (Index: " + index + ", Amount: " + amount + ", Size: " + size() + ")");
+        }
+    }
+
+    /**
+     * Checks if the range from offset to offset + amount lies within the vector, so it can be read.
+     *
+     * @param offset Position of the first bit to read.
+     * @param amount Amount of bits to read.
+     * @throws IndexOutOfBoundsException If the range exceeds the vector.
+     */
+    protected void checkReadRange(int offset, int amount) {
+        if (offset < 0 || amount < 0 || (long) offset + amount > size()) {
+            throw new IndexOutOfBoundsException("Cannot read bits outside of vector range. (Offset: " + offset + ", Amount: " + amount + ", Size: " + size() + ")");
+        }
+    }
+
+    /**
+     * Checks if the other vector has the same size as this vector.
+     *
+     * @param other Vector to check.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    protected void checkSameSize(BitVector other) {
+        if (other.size() != size()) {
+            throw new IllegalArgumentException("Size mismatch: " + size() + "/" + other.size());
+        }
+    }
+
     /**
      * Returns a string containing the bits in this vector as "1" and "0".
      *
@@ -693,16 +1081,43 @@ public class BitVector {
             BitVector other = (BitVector) obj;
             if (other.size() != size()) {
                 return false;
+            } else if (hashValid && other.hashValid && hashModCount == modCount && other.hashModCount == other.modCount && hash != other.hash) {
+                return false;
             } else {
-                for (int i = 0; i < size(); i++) {
-                    if (get(i) != other.get(i)) {
+                int last = wordCount(size()) - 1;
+                for (int i = 0; i < last; i++) {
+                    if (bits[i] != other.bits[i]) {
                         return false;
                     }
                 }
 
-                return true;
+                return last < 0 || ((bits[last] ^ other.bits[last]) & tailMask(size())) == 0;
+            }
+        }
+    }
+
+    /**
+     * Hashes whole words, ignoring the bits of the last word beyond {@link #size()}. The hash is cached until the vector
+     * is modified.
+     *
+     * @return Hash code consistent with {@link #equals(Object)}.
+     */
+    public int hashCode() {
+        if (!hashValid || hashModCount != modCount) {
+            int last = wordCount(size()) - 1;
+            long h = 1234;
+
+            for (int i = 0; i <= last; i++) {
+                long word = (i == last) ? bits[i] & tailMask(size()) : bits[i];
+                h ^= word * (i + 1);
             }
+
+            hash = 31 * size() + (int) ((h >> 32) ^ h);
+            hashModCount = modCount;
+            hashValid = true;
         }
+
+        return hash;
     }
 
 
@@ -718,38 +1133,146 @@ public class BitVector {
     }
 
     /**
+     * Scans whole words and skips words without set bits.
+     *
      * @param index Index from which to start searching the first set bit.
      * @return Index of the first set bit in the bitvector, if none are set, -1 is returned.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
      */
     public int nextSetBit(int index) {
-        for (int i = index; i < size(); i++) {
-            if (get(i)) {
-                return i;
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index cannot be less than 0. (Index: " + index + ")");
+        } else if (index >= size()) {
+            return -1;
+        }
+
+        int longIdx = index / Long.SIZE;
+        int lastIdx = wordCount(size()) - 1;
+        long word = bits[longIdx] & (0xFFFFFFFFFFFFFFFFL << (index % Long.SIZE));
+
+        while (word == 0) {
+            if (++longIdx > lastIdx) {
+                return -1;
             }
+            word = bits[longIdx];
         }
 
-        return -1;
+        int found = longIdx * Long.SIZE + Long.numberOfTrailingZeros(word);
+
+        return found < size() ? found : -1;
     }
 
     /**
      * @return Shorthand for {@link #nextUnsetBit(int)} with 0 as argument.
      */
     public int nextUnsetBit() {
-        return nextSetBit(0);
+        return nextUnsetBit(0);
     }
 
     /**
+     * Scans whole words and skips words with all bits set.
+     *
      * @param index Index from which to start searching the first unset bit.
-     * @return Index of the first unset bit in the bitvector, if none are set, -1 is returned.
+     * @return Index of the first unset bit in the bitvector, if none are unset, -1 is returned.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
      */
     public int nextUnsetBit(int index) {
-        for (int i = index; i < size(); i++) {
-            if (!get(i)) {
-                return i;
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index cannot be less than 0. (Index: " + index + ")");
+        } else if (index >= size()) {
+            return -1;
+        }
+
+        int longIdx = index / Long.SIZE;
+        int lastIdx = wordCount(size()) - 1;
+        long word = ~bits[longIdx] & (0xFFFFFFFFFFFFFFFFL << (index % Long.SIZE));
+
+        while (word == 0) {
+            if (++longIdx > lastIdx) {
+                return -1;
+            }
+            word = ~bits[longIdx];
+        }
+
+        int found = longIdx * Long.SIZE + Long.numberOfTrailingZeros(word);
+
+        return found < size() ? found : -1;
+    }
+
+    /**
+     * @return Shorthand for {@link #previousSetBit(int)} with {@link #size()} - 1 as argument.
+     */
+    public int previousSetBit() {
+        return previousSetBit(size() - 1);
+    }
+
+    /**
+     * Scans whole words backwards and skips words without set bits.
+     *
+     * @param index Index from which to start searching backwards for the last set bit. Indices beyond the vector start
+     *              the search at the last bit, -1 returns -1.
+     * @return Index of the last set bit at or before index, if none are set, -1 is returned.
+     * @throws IndexOutOfBoundsException If the index is smaller than -1.
+     */
+    public int previousSetBit(int index) {
+        if (index < -1) {
+            throw new IndexOutOfBoundsException("Index cannot be less than -1. (Index: " + index + ")");
+        }
+
+        int start = Math.min(index, size() - 1);
+        if (start < 0) {
+            return -1;
+        }
+
+        int longIdx = start / Long.SIZE;
+        long word = bits[longIdx] & (0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - 1 - start % Long.SIZE));
+
+        while (word == 0) {
+            if (--longIdx < 0) {
+                return -1;
+            }
+            word = bits[longIdx];
+        }
+
+        return longIdx * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
+    }
+
+    /**
+     * @return Shorthand for {@link #previousUnsetBit(int)} with {@link #size()} - 1 as argument.
+     */
+    public int previousUnsetBit() {
+        return previousUnsetBit(size() - 1);
+    }
+
+    /**
+     * Scans whole words backwards and skips words with all bits set.
+     *
+     * @param index Index from which to start searching backwards for the last unset bit. Indices beyond the vector
+     *              start the search at the last bit, -1 returns -1.
+     * @return Index of the last unset bit at or before index, if none are unset, -1 is returned.
+     * @throws IndexOutOfBoundsException If the index is smaller than -1.
+     */
+    public int previousUnsetBit(int index) {
+        if (index < -1) {
+            throw new IndexOutOfBoundsException("Index cannot be less than -1. (Index: " + index + ")");
+        }
+
+        int start = Math.min(index, size() - 1);
+        if (start < 0) {
+            return -1;
+        }
+
+        int longIdx = start / Long.SIZE;
+        long word = ~bits[longIdx] & (0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - 1 - start % Long.SIZE));
+
+        while (word == 0) {
+            if (--longIdx < 0) {
+                return -1;
             }
+            word = ~bits[longIdx];
         }
 
-        return -1;
+        return longIdx * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
     }
 
     /**
@@ -782,13 +1305,7 @@ public class BitVector {
      * @return Vector with the written byte.
      */
     public BitVector writeByte(int value) {
-        BitVector v = this;
-
-        for (int i = 0; i < Byte.SIZE; i++) {
-            v = v.writeBit(value >>> i);
-        }
-
-        return v;
+        return writeBitsUnchecked(value, Byte.SIZE);
     }
 
     /**
@@ -804,12 +1321,7 @@ public class BitVector {
      * @return Vector with the written short value.
      */
     public BitVector writeShort(int value) {
-        BitVector v = this;
-        for (int i = 0; i < Short.SIZE; i++) {
-            v = v.writeBit(value >>> i);
-        }
-
-        return v;
+        return writeBitsUnchecked(value, Short.SIZE);
     }
 
     /**
@@ -817,12 +1329,7 @@ public class BitVector {
      * @return Vector with the written int value.
      */
     public BitVector writeInt(int value) {
-        BitVector v = this;
-        for (int i = 0; i < Integer.SIZE; i++) {
-            v = v.writeBit(value >>> i);
-        }
-
-        return v;
+        return writeBitsUnchecked(value, Integer.SIZE);
     }
 
     /**
@@ -830,12 +1337,7 @@ public class BitVector {
      * @return Vector with the written long value.
      */
     public BitVector writeLong(long value) {
-        BitVector v = this;
-        for (int i = 0; i < Long.SIZE; i++) {
-            v.writeBit(value >>> i);
-        }
-
-        return v;
+        return writeBitsUnchecked(value, Long.SIZE);
     }
 
     /**
@@ -850,12 +1352,7 @@ public class BitVector {
             throw new IllegalArgumentException("Bit count exceeds maximum size. " + amount + "/" + Integer.SIZE);
         }
 
-        BitVector v = this;
-        for (int i = 0; i < amount; i++) {
-            v = v.writeBit(value >>> i);
-        }
-
-        return v;
+        return writeBitsUnchecked(value, amount);
     }
 
     /**
@@ -870,13 +1367,7 @@ public class BitVector {
             throw new IllegalArgumentException("Bit count exceeds maximum size. " + amount + "/" + Long.SIZE);
         }
 
-        BitVector v = this;
-
-        for (int i = 0; i < amount; i++) {
-            v = v.writeBit(value >>> i);
-        }
-
-        return v;
+        return writeBitsUnchecked(value, amount);
     }
 
     /**
@@ -886,12 +1377,7 @@ public class BitVector {
      * @return Vector with the written bytes.
      */
     public BitVector writeBytes(byte[] data) {
-        BitVector v = this;
-        for (int i = 0; i < data.length; i++) {
-            v = v.writeByte(data[i]);
-        }
-
-        return v;
+        return writeBytes(data, 0, data.length);
     }
 
     /**
@@ -903,12 +1389,13 @@ public class BitVector {
      * @return Vector with the written bytes.
      */
     public BitVector writeBytes(byte[] data, int offset, int length) {
-        BitVector v = this;
+        ensureCapacity(size() + length * Byte.SIZE);
+
         for (int i = 0; i < length; i++) {
-            v = v.writeByte(data[offset + i]);
+            writeBitsUnchecked(data[offset + i], Byte.SIZE);
         }
 
-        return v;
+        return this;
     }
 
     /**
@@ -1000,31 +1487,35 @@ public class BitVector {
     /**
      * @param index  Index in the BitVector where to set the bits.
      * @param value  Value of which to write the bits from least significant to most significant bit.
-     * @param amount Amount of bits to write.
-     * @return
+     * @param amount Amount of bits to write. Amounts larger than {@link Integer#SIZE} repeat the value.
+     * @return Vector with the bits from $index to $index + $amount set to $value.
+     * @throws IndexOutOfBoundsException If the bits to set lie outside of the vector.
      */
     public BitVector setBits(int index, int value, int amount) {
-        BitVector v = this;
-        for (int i = 0; i < amount; i++) {
-            v = v.setBit(index + i, value >>> i);
+        checkSetRange(index, amount);
+
+        for (int written = 0; written < amount; written += Integer.SIZE) {
+            setBitsUnchecked(index + written, value, Math.min(Integer.SIZE, amount - written));
         }
 
-        return v;
+        return this;
     }
 
     /**
      * @param index  Index in the BitVector where to set the bits.
      * @param value  Value of which to write the bits from least significant to most significant bit.
-     * @param amount Amount of bits to write.
-     * @return
+     * @param amount Amount of bits to write. Amounts larger than {@link Long#SIZE} repeat the value.
+     * @return Vector with the bits from $index to $index + $amount set to $value.
+     * @throws IndexOutOfBoundsException If the bits to set lie outside of the vector.
      */
     public BitVector setBits(int index, long value, int amount) {
-        BitVector v = this;
-        for (int i = 0; i < amount; i++) {
-            v = v.setBit(index + i, value >>> i);
+        checkSetRange(index, amount);
+
+        for (int written = 0; written < amount; written += Long.SIZE) {
+            setBitsUnchecked(index + written, value, Math.min(Long.SIZE, amount - written));
         }
 
-        return v;
+        return this;
     }
 
     /**
@@ -1034,12 +1525,7 @@ public class BitVector {
      * @return Vector with the written bytes.
      */
     public BitVector setBytes(int index, byte[] data) {
-        BitVector v = this;
-        for (int i = 0; i < data.length; i++) {
-            v = v.setByte(index, data[i]);
-        }
-
-        return v;
+        return setBytes(index, data, 0, data.length);
     }
 
     /**
@@ -1051,12 +1537,13 @@ public class BitVector {
      * @return Vector with the written bytes.
      */
     public BitVector setBytes(int index, byte[] data, int offset, int length) {
-        BitVector v = this;
+        checkSetRange(index, length * Byte.SIZE);
+
         for (int i = 0; i < length; i++) {
-            v = v.setByte(index, data[offset + i]);
+            setBitsUnchecked(index + i * Byte.SIZE, data[offset + i], Byte.SIZE);
         }
 
-        return v;
+        return this;
     }
 
     /**
@@ -1074,12 +1561,15 @@ public class BitVector {
      * @return
      */
     public BitVector write(BitVector other, int offset, int amount) {
-        BitVector v = this;
+        other.checkReadRange(offset, amount);
+        ensureCapacity(size() + amount);
 
-        for (int i = 0; i < amount; i++) {
-            v = v.writeBit(other.get(offset + i));
+        int written = 0;
+        for (; written + Long.SIZE <= amount; written += Long.SIZE) {
+            writeBitsUnchecked(other.getBitsUnchecked(offset + written, Long.SIZE), Long.SIZE);
         }
-        return v;
+
+        return writeBitsUnchecked(other.getBitsUnchecked(offset + written, amount - written), amount - written);
     }
 
     /**
@@ -1096,12 +1586,22 @@ public class BitVector {
      * @return
      */
     public BitVector write(boolean[] values, int amount) {
-        BitVector v = this;
-        for (int i = 0; i < amount; i++) {
-            v = v.writeBit(values[i]);
+        ensureCapacity(size() + amount);
+
+        for (int written = 0; written < amount; written += Long.SIZE) {
+            int chunk = Math.min(Long.SIZE, amount - written);
+            long value = 0;
+
+            for (int i = 0; i < chunk; i++) {
+                if (values[written + i]) {
+                    value |= 1L << i;
+                }
+            }
+
+            writeBitsUnchecked(value, chunk);
         }
 
-        return v;
+        return this;
     }
 
     /**
@@ -1121,12 +1621,17 @@ public class BitVector {
      * @return BitVector with the bits of other set at $index.
      */
     public BitVector set(int index, BitVector other, int offset, int amount) {
-        BitVector v = this;
+        other.checkReadRange(offset, amount);
+        checkSetRange(index, amount);
+
+        BitVector source = (other == this) ? copy() : other;
 
-        for (int i = 0; i < amount; i++) {
-            v = v.setBit(index + i, other.get(offset + i));
+        for (int written = 0; written < amount; written += Long.SIZE) {
+            int chunk = Math.min(Long.SIZE, amount - written);
+            setBitsUnchecked(index + written, source.getBitsUnchecked(offset + written, chunk), chunk);
         }
-        return v;
+
+        return this;
     }
 
     /**
@@ -1145,9 +1650,7 @@ public class BitVector {
      * @throws IllegalArgumentException If the other vector is too short or too long.
      */
     public BitVector or(BitVector other) {
-        if (other.size() != size()) {
-            throw new IllegalArgumentException("Size mismatch: " + size() + "/" + other.size());
-        }
+        checkSameSize(other);
 
         return uncheckedOr(other);
     }
@@ -1158,9 +1661,7 @@ public class BitVector {
      * @throws IllegalArgumentException If the other vector is too short or too long.
      */
     public BitVector and(BitVector other) {
-        if (other.size() != size()) {
-            throw new IllegalArgumentException("Size mismatch: " + size() + "/" + other.size());
-        }
+        checkSameSize(other);
 
         return uncheckedAnd(other);
     }
@@ -1171,10 +1672,258 @@ public class BitVector {
      * @throws IllegalArgumentException If the other vector is too short or too long.
      */
     public BitVector xor(BitVector other) {
-        if (other.size() != size()) {
-            throw new IllegalArgumentException("Size mismatch: " + size() + "/" + other.size());
-        }
+        checkSameSize(other);
 
         return uncheckedXor(other);
     }
+
+    /**
+     * @param other Returns a bitvector that is the logical and of this and the complement of the other bitvector.
+     * @return Logical And Not product of this and other vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public BitVector andNot(BitVector other) {
+        checkSameSize(other);
+
+        return uncheckedAndNot(other);
+    }
+
+    /**
+     * Ors the other vector into this vector without allocating a new vector.
+     *
+     * @param other Vector to or into this vector.
+     * @return This vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public BitVector orInPlace(BitVector other) {
+        checkSameSize(other);
+
+        return uncheckedOrInPlace(other);
+    }
+
+    /**
+     * Ands the other vector into this vector without allocating a new vector.
+     *
+     * @param other Vector to and into this vector.
+     * @return This vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public BitVector andInPlace(BitVector other) {
+        checkSameSize(other);
+
+        return uncheckedAndInPlace(other);
+    }
+
+    /**
+     * Xors the other vector into this vector without allocating a new vector.
+     *
+     * @param other Vector to xor into this vector.
+     * @return This vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public BitVector xorInPlace(BitVector other) {
+        checkSameSize(other);
+
+        return uncheckedXorInPlace(other);
+    }
+
+    /**
+     * Clears all bits in this vector that are set in the other vector, without allocating a new vector.
+     *
+     * @param other Vector whose set bits are cleared in this vector.
+     * @return This vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public BitVector andNotInPlace(BitVector other) {
+        checkSameSize(other);
+
+        return uncheckedAndNotInPlace(other);
+    }
+
+    /**
+     * Moves every bit n positions towards the end of the vector, in place. The first n bits become 0, bits moved past
+     * {@link #size()} are dropped.
+     *
+     * @param n Amount of positions to shift by.
+     * @return This vector.
+     * @throws IllegalArgumentException If n is smaller than 0.
+     */
+    public BitVector shiftLeft(int n) {
+        checkShift(n);
+        maskTail();
+        shiftWordsUp(Math.min(n, size()), wordCount(size()));
+
+        return maskTail();
+    }
+
+    /**
+     * Moves every bit n positions towards the start of the vector, in place. The last n bits become 0, bits moved
+     * before position 0 are dropped.
+     *
+     * @param n Amount of positions to shift by.
+     * @return This vector.
+     * @throws IllegalArgumentException If n is smaller than 0.
+     */
+    public BitVector shiftRight(int n) {
+        checkShift(n);
+        maskTail();
+        shiftWordsDown(Math.min(n, size()), wordCount(size()));
+
+        return this;
+    }
+
+    /**
+     * Inserts n zero bits at the start of the vector, moving every bit n positions towards the end. The vector grows by
+     * n bits and no bits are dropped.
+     *
+     * @param n Amount of positions to shift by.
+     * @return This vector.
+     * @throws IllegalArgumentException If n is smaller than 0.
+     */
+    public BitVector shiftLeftAndGrow(int n) {
+        checkShift(n);
+        int grown = size() + n;
+        ensureCapacity(grown);
+        maskTail();
+        Arrays.fill(bits, wordCount(size()), wordCount(grown), 0L);
+
+        size = grown;
+        shiftWordsUp(n, wordCount(grown));
+
+        return this;
+    }
+
+    /**
+     * Removes the first n bits of the vector, moving every bit n positions towards the start. The vector shrinks by n
+     * bits.
+     *
+     * @param n Amount of positions to shift by.
+     * @return This vector.
+     * @throws IllegalArgumentException If n is smaller than 0 or larger than {@link #size()}.
+     */
+    public BitVector shiftRightAndShrink(int n) {
+        checkShift(n);
+        if (n > size()) {
+            throw new IllegalArgumentException("Cannot shrink vector by more than its size. (Shift: " + n + ", Size: " + size() + ")");
+        }
+
+        shiftRight(n);
+        size -= n;
+
+        return this;
+    }
+
+    /**
+     * Moves every bit n positions towards the end of the vector, in place. Bits moved past {@link #size()} reappear at
+     * the start. The bits that wrap around are buffered, which takes at most half of the vector in extra space.
+     *
+     * @param n Amount of positions to rotate by.
+     * @return This vector.
+     * @throws IllegalArgumentException If n is smaller than 0.
+     */
+    public BitVector rotateLeft(int n) {
+        checkShift(n);
+        if (isEmpty()) {
+            return this;
+        }
+
+        int distance = n % size();
+        if (distance > size() / 2) {
+            return rotateRight(size() - distance);
+        }
+
+        long[] wrapped = copyBits(size() - distance, distance);
+        shiftLeft(distance);
+
+        return pasteBits(0, wrapped, distance);
+    }
+
+    /**
+     * Moves every bit n positions towards the start of the vector, in place. Bits moved before position 0 reappear at
+     * the end. The bits that wrap around are buffered, which takes at most half of the vector in extra space.
+     *
+     * @param n Amount of positions to rotate by.
+     * @return This vector.
+     * @throws IllegalArgumentException If n is smaller than 0.
+     */
+    public BitVector rotateRight(int n) {
+        checkShift(n);
+        if (isEmpty()) {
+            return this;
+        }
+
+        int distance = n % size();
+        if (distance > size() / 2) {
+            return rotateLeft(size() - distance);
+        }
+
+        long[] wrapped = copyBits(0, distance);
+        shiftRight(distance);
+
+        return pasteBits(size() - distance, wrapped, distance);
+    }
+
+    /**
+     * Moves the first count words n bits towards the end, starting with the highest word so the move can be done in
+     * place.
+     */
+    private void shiftWordsUp(int n, int count) {
+        int wordShift = n / Long.SIZE;
+        int bitShift = n % Long.SIZE;
+
+        for (int i = count - 1; i >= wordShift; i--) {
+            long value = bits[i - wordShift] << bitShift;
+            if (bitShift != 0 && i - wordShift - 1 >= 0) {
+                value |= bits[i - wordShift - 1] >>> (Long.SIZE - bitShift);
+            }
+            bits[i] = value;
+        }
+
+        Arrays.fill(bits, 0, Math.min(wordShift, count), 0L);
+        modCount++;
+    }
+
+    /**
+     * Moves the first count words n bits towards the start, starting with the lowest word so the move can be done in
+     * place. Words from count on are treated as 0.
+     */
+    private void shiftWordsDown(int n, int count) {
+        int wordShift = n / Long.SIZE;
+        int bitShift = n % Long.SIZE;
+
+        for (int i = 0; i < count - wordShift; i++) {
+            long value = bits[i + wordShift] >>> bitShift;
+            if (bitShift != 0 && i + wordShift + 1 < count) {
+                value |= bits[i + wordShift + 1] << (Long.SIZE - bitShift);
+            }
+            bits[i] = value;
+        }
+
+        Arrays.fill(bits, Math.max(count - wordShift, 0), count, 0L);
+        modCount++;
+    }
+
+    private long[] copyBits(int position, int amount) {
+        long[] copy = new long[wordCount(amount)];
+
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = getBitsUnchecked(position + i * Long.SIZE, Math.min(Long.SIZE, amount - i * Long.SIZE));
+        }
+
+        return copy;
+    }
+
+    private BitVector pasteBits(int position, long[] words, int amount) {
+        for (int i = 0; i < words.length; i++) {
+            setBitsUnchecked(position + i * Long.SIZE, words[i], Math.min(Long.SIZE, amount - i * Long.SIZE));
+        }
+
+        return this;
+    }
+
+    private static void checkShift(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Shift distance cannot be less than 0. (Distance: " + n + ")");
+        }
+    }
 }
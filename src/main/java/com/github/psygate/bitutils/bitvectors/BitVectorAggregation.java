@@ -0,0 +1,267 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Combines many vectors of the same size at once. The inputs are processed in column blocks of {@value #BLOCK_WORDS}
+ * words: every input is folded into the same block of a single output buffer before the next block is touched, so
+ * no intermediate vectors are allocated and the output block stays in cache. AND stops folding a block once it is
+ * all zeros; OR stops once it is all ones.
+ * <p>
+ * The parallel variants split the words into ranges of {@value #PARALLEL_CHUNK_WORDS} words and combine them on the
+ * common fork join pool. Inputs smaller than two ranges are combined sequentially.
+ */
+public class BitVectorAggregation {
+    static final int BLOCK_WORDS = 64;
+    static final int PARALLEL_CHUNK_WORDS = 1 << 14;
+
+    private BitVectorAggregation() {
+    }
+
+    private interface Kernel {
+        /**
+         * Combines the words from (inclusive) to to (exclusive) of all inputs into output.
+         */
+        void apply(long[][] inputs, long[] output, int from, int to);
+    }
+
+    /**
+     * @param vectors Vectors of the same size.
+     * @return Vector with the bits set that are set in any input.
+     * @throws IllegalArgumentException If no vectors are given or their sizes differ.
+     */
+    public static BitVector or(BitVector... vectors) {
+        return aggregate(vectors, BitVectorAggregation::orKernel, false);
+    }
+
+    /**
+     * @param vectors Vectors of the same size.
+     * @return Vector with the bits set that are set in all inputs.
+     * @throws IllegalArgumentException If no vectors are given or their sizes differ.
+     */
+    public static BitVector and(BitVector... vectors) {
+        return aggregate(vectors, BitVectorAggregation::andKernel, false);
+    }
+
+    /**
+     * @param vectors Vectors of the same size.
+     * @return Vector with the bits set that are set in an odd amount of inputs.
+     * @throws IllegalArgumentException If no vectors are given or their sizes differ.
+     */
+    public static BitVector xor(BitVector... vectors) {
+        return aggregate(vectors, BitVectorAggregation::xorKernel, false);
+    }
+
+    /**
+     * Counts the inputs per bit with bit sliced counters, so every input costs a few word operations per word.
+     *
+     * @param threshold Minimum amount of inputs in which a bit has to be set.
+     * @param vectors   Vectors of the same size.
+     * @return Vector with the bits set that are set in at least threshold inputs.
+     * @throws IllegalArgumentException If no vectors are given or their sizes differ.
+     */
+    public static BitVector atLeast(int threshold, BitVector... vectors) {
+        return aggregate(vectors, thresholdKernel(threshold, vectors), false);
+    }
+
+    /**
+     * Parallel variant of {@link #or(BitVector...)}.
+     */
+    public static BitVector parallelOr(BitVector... vectors) {
+        return aggregate(vectors, BitVectorAggregation::orKernel, true);
+    }
+
+    /**
+     * Parallel variant of {@link #and(BitVector...)}.
+     */
+    public static BitVector parallelAnd(BitVector... vectors) {
+        return aggregate(vectors, BitVectorAggregation::andKernel, true);
+    }
+
+    /**
+     * Parallel variant of {@link #xor(BitVector...)}.
+     */
+    public static BitVector parallelXor(BitVector... vectors) {
+        return aggregate(vectors, BitVectorAggregation::xorKernel, true);
+    }
+
+    /**
+     * Parallel variant of {@link #atLeast(int, BitVector...)}.
+     */
+    public static BitVector parallelAtLeast(int threshold, BitVector... vectors) {
+        return aggregate(vectors, thresholdKernel(threshold, vectors), true);
+    }
+
+    private static BitVector aggregate(BitVector[] vectors, Kernel kernel, boolean parallel) {
+        Objects.requireNonNull(vectors, "Vectors cannot be null.");
+        if (vectors.length == 0) {
+            throw new IllegalArgumentException("At least one vector is required.");
+        }
+
+        int size = vectors[0].size();
+        long[][] inputs = new long[vectors.length][];
+        for (int i = 0; i < vectors.length; i++) {
+            Objects.requireNonNull(vectors[i], "Vector " + i + " cannot be null.");
+            if (vectors[i].size() != size) {
+                throw new IllegalArgumentException("Size mismatch: " + size + "/" + vectors[i].size());
+            }
+            inputs[i] = vectors[i].words();
+        }
+
+        int count = BitVector.wordCount(size);
+        long[] output = new long[count];
+
+        if (parallel && count >= 2 * PARALLEL_CHUNK_WORDS) {
+            int chunks = ArrayUtils.arraySize(count, PARALLEL_CHUNK_WORDS);
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int from = chunk * PARALLEL_CHUNK_WORDS;
+                kernel.apply(inputs, output, from, Math.min(from + PARALLEL_CHUNK_WORDS, count));
+            });
+        } else {
+            kernel.apply(inputs, output, 0, count);
+        }
+
+        if (count > 0) {
+            output[count - 1] &= BitVector.tailMask(size);
+        }
+
+        return new BitVector(output, size, false);
+    }
+
+    private static void orKernel(long[][] inputs, long[] output, int from, int to) {
+        for (int block = from; block < to; block += BLOCK_WORDS) {
+            int end = Math.min(block + BLOCK_WORDS, to);
+            System.arraycopy(inputs[0], block, output, block, end - block);
+
+            for (int v = 1; v < inputs.length; v++) {
+                long[] input = inputs[v];
+                long all = -1L;
+                for (int i = block; i < end; i++) {
+                    all &= (output[i] |= input[i]);
+                }
+                if (all == -1L) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void andKernel(long[][] inputs, long[] output, int from, int to) {
+        for (int block = from; block < to; block += BLOCK_WORDS) {
+            int end = Math.min(block + BLOCK_WORDS, to);
+            System.arraycopy(inputs[0], block, output, block, end - block);
+
+            for (int v = 1; v < inputs.length; v++) {
+                long[] input = inputs[v];
+                long any = 0;
+                for (int i = block; i < end; i++) {
+                    any |= (output[i] &= input[i]);
+                }
+                if (any == 0) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void xorKernel(long[][] inputs, long[] output, int from, int to) {
+        for (int block = from; block < to; block += BLOCK_WORDS) {
+            int end = Math.min(block + BLOCK_WORDS, to);
+            System.arraycopy(inputs[0], block, output, block, end - block);
+
+            for (int v = 1; v < inputs.length; v++) {
+                long[] input = inputs[v];
+                for (int i = block; i < end; i++) {
+                    output[i] ^= input[i];
+                }
+            }
+        }
+    }
+
+    private static Kernel thresholdKernel(int threshold, BitVector[] vectors) {
+        Objects.requireNonNull(vectors, "Vectors cannot be null.");
+
+        if (threshold <= 0) {
+            return (inputs, output, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    output[i] = -1L;
+                }
+            };
+        } else if (threshold == 1) {
+            return BitVectorAggregation::orKernel;
+        } else if (threshold == vectors.length) {
+            return BitVectorAggregation::andKernel;
+        } else if (threshold > vectors.length) {
+            return (inputs, output, from, to) -> {
+            };
+        }
+
+        return (inputs, output, from, to) -> thresholdKernel(threshold, inputs, output, from, to);
+    }
+
+    /**
+     * Keeps one counter word per bit of the count for every word of the block. Adding an input is a ripple carry
+     * add of a single bit per position, comparing against the threshold walks the counter bits from the top.
+     */
+    private static void thresholdKernel(int threshold, long[][] inputs, long[] output, int from, int to) {
+        int levels = Integer.SIZE - Integer.numberOfLeadingZeros(inputs.length);
+        long[][] counters = new long[levels][BLOCK_WORDS];
+
+        for (int block = from; block < to; block += BLOCK_WORDS) {
+            int length = Math.min(block + BLOCK_WORDS, to) - block;
+            for (long[] counter : counters) {
+                Arrays.fill(counter, 0, length, 0);
+            }
+
+            for (long[] input : inputs) {
+                for (int i = 0; i < length; i++) {
+                    long carry = input[block + i];
+                    for (int level = 0; carry != 0; level++) {
+                        long counter = counters[level][i];
+                        counters[level][i] = counter ^ carry;
+                        carry &= counter;
+                    }
+                }
+            }
+
+            for (int i = 0; i < length; i++) {
+                long greater = 0;
+                long equal = -1L;
+                for (int level = levels - 1; level >= 0; level--) {
+                    long bit = ((threshold >>> level) & 1) != 0 ? -1L : 0;
+                    long counter = counters[level][i];
+                    greater |= equal & counter & ~bit;
+                    equal &= ~(counter ^ bit);
+                }
+                output[block + i] = greater | equal;
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Arrays;
+
+/**
+ * Word parallel substring search over BitVectors. Patterns of up to {@link Long#SIZE} bits are matched against 64
+ * candidate positions at once: for every pattern bit the text is shifted by that bit's offset and anded into a
+ * candidate mask, which usually drops to zero after a few pattern bits. Longer patterns are searched with a Horspool
+ * skip table over {@value #GRAM_SIZE} bit grams and verified a word at a time.
+ */
+class BitVectorSearch {
+    static final int GRAM_SIZE = 12;
+
+    private BitVectorSearch() {
+    }
+
+    /**
+     * @param text    Vector to search in.
+     * @param pattern Non empty pattern to search for.
+     * @param from    First position at which a match may start, not less than 0.
+     * @return First position at or after from where the pattern occurs, -1 if it doesn't occur.
+     */
+    static int indexOf(BitVector text, BitVector pattern, int from) {
+        int last = text.size() - pattern.size();
+
+        if (from > last) {
+            return -1;
+        } else if (pattern.size() <= Long.SIZE) {
+            return shiftAndForward(text, pattern, from, last);
+        } else {
+            return horspoolForward(text, pattern, from, last);
+        }
+    }
+
+    /**
+     * @param text    Vector to search in.
+     * @param pattern Non empty pattern to search for.
+     * @param from    Last position at which a match may start.
+     * @return Last position at or before from where the pattern occurs, -1 if it doesn't occur.
+     */
+    static int lastIndexOf(BitVector text, BitVector pattern, int from) {
+        int first = Math.min(from, text.size() - pattern.size());
+
+        if (first < 0) {
+            return -1;
+        } else if (pattern.size() <= Long.SIZE) {
+            return shiftAndBackward(text, pattern, first);
+        } else {
+            return horspoolBackward(text, pattern, first);
+        }
+    }
+
+    /**
+     * @param text    Vector to search in.
+     * @param pattern Non empty pattern to search for.
+     * @return All positions where the pattern occurs, including overlapping occurrences, in ascending order.
+     */
+    static int[] indexOfAll(BitVector text, BitVector pattern) {
+        int[] hits = new int[8];
+        int count = 0;
+        int found = indexOf(text, pattern, 0);
+
+        while (found != -1) {
+            if (count == hits.length) {
+                hits = Arrays.copyOf(hits, hits.length * 2);
+            }
+            hits[count++] = found;
+            found = indexOf(text, pattern, found + 1);
+        }
+
+        return Arrays.copyOf(hits, count);
+    }
+
+    /**
+     * Compares the pattern against the text a word at a time.
+     *
+     * @param text     Vector to compare against.
+     * @param position Position in text, so that position + pattern.size() lies within the text.
+     * @param pattern  Pattern to compare.
+     * @return True if all bits of the pattern match the text at position.
+     */
+    static boolean matchesUnchecked(BitVector text, int position, BitVector pattern) {
+        int size = pattern.size();
+
+        for (int offset = 0; offset < size; offset += Long.SIZE) {
+            int chunk = Math.min(Long.SIZE, size - offset);
+            if (text.getBitsUnchecked(position + offset, chunk) != pattern.getBitsUnchecked(offset, chunk)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int shiftAndForward(BitVector text, BitVector pattern, int from, int last) {
+        int size = pattern.size();
+        long bits = pattern.getBitsUnchecked(0, size);
+
+        for (int base = from; base <= last; base += Long.SIZE) {
+            int count = Math.min(Long.SIZE, last - base + 1);
+            long candidates = candidates(text, bits, size, base, count);
+
+            if (candidates != 0) {
+                return base + Long.numberOfTrailingZeros(candidates);
+            }
+        }
+
+        return -1;
+    }
+
+    private static int shiftAndBackward(BitVector text, BitVector pattern, int first) {
+        int size = pattern.size();
+        long bits = pattern.getBitsUnchecked(0, size);
+
+        for (int top = first; top >= 0; top -= Long.SIZE) {
+            int base = Math.max(0, top - Long.SIZE + 1);
+            int count = top - base + 1;
+            long candidates = candidates(text, bits, size, base, count);
+
+            if (candidates != 0) {
+                return base + Long.SIZE - 1 - Long.numberOfLeadingZeros(candidates);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return Mask of the positions base to base + count at which the pattern bits match the text.
+     */
+    private static long candidates(BitVector text, long pattern, int size, int base, int count) {
+        long candidates = 0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - count);
+
+        for (int i = 0; i < size && candidates != 0; i++) {
+            long shifted = text.getBitsUnchecked(base + i, count);
+            candidates &= ((pattern >>> i) & 1L) != 0 ? shifted : ~shifted;
+        }
+
+        return candidates;
+    }
+
+    private static int horspoolForward(BitVector text, BitVector pattern, int from, int last) {
+        int size = pattern.size();
+        int[] shift = new int[1 << GRAM_SIZE];
+        Arrays.fill(shift, size - GRAM_SIZE + 1);
+
+        for (int i = 0; i < size - GRAM_SIZE; i++) {
+            shift[(int) pattern.getBitsUnchecked(i, GRAM_SIZE)] = size - GRAM_SIZE - i;
+        }
+
+        int position = from;
+        while (position <= last) {
+            if (matchesUnchecked(text, position, pattern)) {
+                return position;
+            }
+
+            position += shift[(int) text.getBitsUnchecked(position + size - GRAM_SIZE, GRAM_SIZE)];
+        }
+
+        return -1;
+    }
+
+    private static int horspoolBackward(BitVector text, BitVector pattern, int first) {
+        int size = pattern.size();
+        int[] shift = new int[1 << GRAM_SIZE];
+        Arrays.fill(shift, size - GRAM_SIZE + 1);
+
+        for (int i = size - GRAM_SIZE; i > 0; i--) {
+            shift[(int) pattern.getBitsUnchecked(i, GRAM_SIZE)] = i;
+        }
+
+        int position = first;
+        while (position >= 0) {
+            if (matchesUnchecked(text, position, pattern)) {
+                return position;
+            }
+
+            position -= shift[(int) text.getBitsUnchecked(position, GRAM_SIZE)];
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+/**
+ * Read only window into a {@link BitVector}. The view shares the backing array of the vector, so creating it is free
+ * and changes to the vector are visible through the view. Use {@link #materialize()} to get an independent copy.
+ * <p>
+ * A view keeps its offset and length. If the vector shrinks below the end of the view, every access throws an
+ * {@link IllegalStateException}.
+ */
+public class BitVectorView {
+    protected final BitVector parent;
+    protected final int offset;
+    protected final int length;
+
+    BitVectorView(BitVector parent, int offset, int length) {
+        this.parent = parent;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return Size of the view in bits.
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * @return True if the view doesn't contain anything, else false.
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * @return Position of the first bit of this view in the underlying vector.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @param position Position of the bit to return.
+     * @return Boolean representing the value of the bit at that position. (true = 1, false = 0)
+     */
+    public boolean get(int position) {
+        checkPosition(position);
+
+        return parent.getUnchecked(offset + position);
+    }
+
+    /**
+     * @param position Position of the bit to return.
+     * @return Integer representing the value of the bit at that position.
+     */
+    public int getBit(int position) {
+        return get(position) ? 1 : 0;
+    }
+
+    /**
+     * Gets the specified amount of bits from the view, and packs it into the int.
+     *
+     * @param position Position to read the bits from.
+     * @param amount   Amount of bits to read.
+     * @return Int containing the specified amount of bits.
+     */
+    public int getBits(int position, int amount) {
+        checkRange(position, amount, Integer.SIZE);
+
+        return (int) parent.getBitsUnchecked(offset + position, amount);
+    }
+
+    /**
+     * Gets the specified amount of bits from the view, and packs it into the long.
+     *
+     * @param position Position to read the bits from.
+     * @param amount   Amount of bits to read.
+     * @return Long containing the specified amount of bits.
+     */
+    public long getBitsLong(int position, int amount) {
+        checkRange(position, amount, Long.SIZE);
+
+        return parent.getBitsUnchecked(offset + position, amount);
+    }
+
+    /**
+     * @param index Index from which to start searching the first set bit.
+     * @return Index of the first set bit in the view, if none are set, -1 is returned.
+     */
+    public int nextSetBit(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index cannot be less than 0. (Index: " + index + ")");
+        }
+        checkParent();
+
+        for (int position = index; position < length; position += Long.SIZE) {
+            int chunk = Math.min(Long.SIZE, length - position);
+            long word = parent.getBitsUnchecked(offset + position, chunk);
+
+            if (word != 0) {
+                return position + Long.numberOfTrailingZeros(word);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param index Index from which to start searching the first unset bit.
+     * @return Index of the first unset bit in the view, if none are unset, -1 is returned.
+     */
+    public int nextUnsetBit(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index cannot be less than 0. (Index: " + index + ")");
+        }
+        checkParent();
+
+        for (int position = index; position < length; position += Long.SIZE) {
+            int chunk = Math.min(Long.SIZE, length - position);
+            long word = ~parent.getBitsUnchecked(offset + position, chunk) & (0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - chunk));
+
+            if (word != 0) {
+                return position + Long.numberOfTrailingZeros(word);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return Amount of set bits in the view.
+     */
+    public int cardinality() {
+        checkParent();
+        int count = 0;
+
+        for (int position = 0; position < length; position += Long.SIZE) {
+            count += Long.bitCount(parent.getBitsUnchecked(offset + position, Math.min(Long.SIZE, length - position)));
+        }
+
+        return count;
+    }
+
+    /**
+     * @param position Position in this view at which to compare.
+     * @param other    Vector to compare against.
+     * @return True if all bits of the other vector match the bits of this view from position on.
+     */
+    public boolean matches(int position, BitVector other) {
+        if (position < 0) {
+            throw new IndexOutOfBoundsException("Position cannot be less than 0. (Position: " + position + ")");
+        } else if ((long) position + other.size() > length) {
+            return false;
+        }
+        checkParent();
+
+        return BitVectorSearch.matchesUnchecked(parent, offset + position, other);
+    }
+
+    /**
+     * Creates a view of a part of this view, sharing the same backing array.
+     *
+     * @param position Position in this view from which to create the view.
+     * @param length   Length of the view.
+     * @return View of the bits from position to position + length.
+     */
+    public BitVectorView subView(int position, int length) {
+        checkRange(position, length, this.length);
+
+        return new BitVectorView(parent, offset + position, length);
+    }
+
+    /**
+     * @return Independent vector containing a copy of the bits of this view.
+     */
+    public BitVector materialize() {
+        checkParent();
+
+        return BitVector.withCapacity(length).write(parent, offset, length);
+    }
+
+    /**
+     * @return Boolean array containing the bits of this view.
+     */
+    public boolean[] toBooleanArray() {
+        checkParent();
+        boolean[] values = new boolean[length];
+
+        for (int i = 0; i < length; i++) {
+            values[i] = parent.getUnchecked(offset + i);
+        }
+
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{offset=" + offset + ", " + materialize().bitString() + "}";
+    }
+
+    /**
+     * @throws IllegalStateException If the vector shrank below the end of this view.
+     */
+    protected void checkParent() {
+        if ((long) offset + length > parent.size()) {
+            throw new IllegalStateException("Vector shrank below the end of the view. (Offset: " + offset + ", Length: " + length + ", Vector size: " + parent.size() + ")");
+        }
+    }
+
+    /**
+     * @param position Position to check.
+     * @throws IndexOutOfBoundsException If the position is outside the view.
+     * @throws IllegalStateException     If the vector shrank below the end of this view.
+     */
+    protected void checkPosition(int position) {
+        if (position < 0 || position >= length) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of bounds. (Size: " + length + ")");
+        }
+        checkParent();
+    }
+
+    /**
+     * @param position Position of the first bit.
+     * @param amount   Amount of bits from position on.
+     * @param maximum  Maximum permitted amount.
+     * @throws IndexOutOfBoundsException If the amount is invalid or the bits lie outside the view.
+     * @throws IllegalStateException     If the vector shrank below the end of this view.
+     */
+    protected void checkRange(int position, int amount, int maximum) {
+        if (amount < 0 || amount > maximum) {
+            throw new IndexOutOfBoundsException("Amount out of range. (Amount: " + amount + ", Maximum: " + maximum + ")");
+        } else if (position < 0 || (long) position + amount > length) {
+            throw new IndexOutOfBoundsException("Range outside of view. (Position: " + position + ", Amount: " + amount + ", Size: " + length + ")");
+        }
+        checkParent();
+    }
+}
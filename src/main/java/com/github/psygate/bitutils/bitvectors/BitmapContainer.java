@@ -0,0 +1,152 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Container holding more than {@value #MAX_ARRAY_SIZE} values as a bitmap of {@value #WORDS} words.
+ */
+final class BitmapContainer extends Container {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int value) {
+        return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(int value) {
+        long word = words[value >>> 6];
+        long bit = 1L << value;
+        if ((word & bit) == 0) {
+            words[value >>> 6] = word | bit;
+            cardinality++;
+        }
+
+        return this;
+    }
+
+    @Override
+    Container remove(int value) {
+        long word = words[value >>> 6];
+        long bit = 1L << value;
+        if ((word & bit) != 0) {
+            words[value >>> 6] = word & ~bit;
+            cardinality--;
+
+            if (cardinality <= MAX_ARRAY_SIZE) {
+                return ArrayContainer.fromWords(words, cardinality);
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    int nextValue(int value) {
+        int index = value >>> 6;
+        long word = words[index] & (-1L << value);
+
+        while (word == 0) {
+            if (++index == WORDS) {
+                return -1;
+            }
+            word = words[index];
+        }
+
+        return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    int last() {
+        int index = WORDS - 1;
+        while (words[index] == 0) {
+            index--;
+        }
+
+        return index * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[index]);
+    }
+
+    @Override
+    int runCount() {
+        int runs = 0;
+        long carry = 0;
+
+        for (long word : words) {
+            runs += Long.bitCount(word & ~((word << 1) | carry));
+            carry = word >>> (Long.SIZE - 1);
+        }
+
+        return runs;
+    }
+
+    @Override
+    void orInto(long[] target, int offset) {
+        int end = Math.min(WORDS, target.length - offset);
+        for (int i = 0; i < end; i++) {
+            target[offset + i] |= words[i];
+        }
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+        for (int i = 0; i < WORDS; i++) {
+            long word = words[i];
+            while (word != 0) {
+                action.accept(high | (i * Long.SIZE + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+    }
+
+    @Override
+    BitmapContainer copy() {
+        return new BitmapContainer(Arrays.copyOf(words, WORDS), cardinality);
+    }
+
+    @Override
+    long[] toWords() {
+        return Arrays.copyOf(words, WORDS);
+    }
+
+    @Override
+    long[] wordsView() {
+        return words;
+    }
+}
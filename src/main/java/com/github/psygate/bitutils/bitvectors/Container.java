@@ -0,0 +1,213 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Holds the low 16 bits of the values of one chunk of a {@link SparseBitVector}. Containers are either sorted arrays,
+ * plain bitmaps or lists of runs, and operations return whichever container fits the result. A container may return
+ * itself or a new container from mutating operations, callers have to keep the returned one.
+ */
+abstract class Container {
+    static final int CHUNK_SIZE = 1 << 16;
+    static final int WORDS = CHUNK_SIZE / Long.SIZE;
+    static final int MAX_ARRAY_SIZE = 4096;
+
+    abstract int cardinality();
+
+    abstract boolean contains(int value);
+
+    abstract Container add(int value);
+
+    abstract Container remove(int value);
+
+    /**
+     * @param value Value from which to start searching.
+     * @return Smallest value in the container greater than or equal to value, -1 if there is none.
+     */
+    abstract int nextValue(int value);
+
+    abstract int last();
+
+    abstract int runCount();
+
+    /**
+     * Sets the bits of the container in words, starting at the word offset. Words beyond the end of the array are
+     * ignored.
+     */
+    abstract void orInto(long[] words, int offset);
+
+    abstract void forEach(int high, IntConsumer action);
+
+    abstract Container copy();
+
+    /**
+     * @return The container itself or an equal array or bitmap container if the container holds runs.
+     */
+    Container unrun() {
+        return this;
+    }
+
+    /**
+     * @return The smallest of the three representations of the container.
+     */
+    Container runOptimize() {
+        int cardinality = cardinality();
+        int runBytes = 4 * runCount();
+        int otherBytes = cardinality <= MAX_ARRAY_SIZE ? 2 * cardinality : WORDS * Long.BYTES;
+
+        if (runBytes < otherBytes) {
+            return this instanceof RunContainer ? this : RunContainer.of(this);
+        } else {
+            return unrun();
+        }
+    }
+
+    long[] toWords() {
+        long[] words = new long[WORDS];
+        orInto(words, 0);
+        return words;
+    }
+
+    /**
+     * @return The bits of the container, possibly backed by the container itself. The array must not be modified.
+     */
+    long[] wordsView() {
+        return toWords();
+    }
+
+    /**
+     * Wraps words without copying them.
+     *
+     * @return An array container if the words hold few values, a bitmap container otherwise.
+     */
+    static Container fromWords(long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+
+        if (cardinality <= MAX_ARRAY_SIZE) {
+            return ArrayContainer.fromWords(words, cardinality);
+        } else {
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    static Container and(Container a, Container b) {
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).retain(b, true);
+        } else if (b instanceof ArrayContainer) {
+            return ((ArrayContainer) b).retain(a, true);
+        } else if (a instanceof RunContainer && b instanceof RunContainer) {
+            return RunContainer.and((RunContainer) a, (RunContainer) b).runOptimize();
+        }
+
+        long[] result = a.toWords();
+        long[] other = b.wordsView();
+        for (int i = 0; i < WORDS; i++) {
+            result[i] &= other[i];
+        }
+
+        return fromWords(result);
+    }
+
+    static Container or(Container a, Container b) {
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer
+                && a.cardinality() + b.cardinality() <= MAX_ARRAY_SIZE) {
+            return ArrayContainer.or((ArrayContainer) a, (ArrayContainer) b);
+        } else if (a instanceof RunContainer && b instanceof RunContainer) {
+            return RunContainer.or((RunContainer) a, (RunContainer) b).runOptimize();
+        }
+
+        long[] result = a.toWords();
+        b.orInto(result, 0);
+
+        return fromWords(result);
+    }
+
+    static Container xor(Container a, Container b) {
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer
+                && a.cardinality() + b.cardinality() <= MAX_ARRAY_SIZE) {
+            return ArrayContainer.xor((ArrayContainer) a, (ArrayContainer) b);
+        }
+
+        long[] result = a.toWords();
+        long[] other = b.wordsView();
+        for (int i = 0; i < WORDS; i++) {
+            result[i] ^= other[i];
+        }
+
+        return fromWords(result);
+    }
+
+    static Container andNot(Container a, Container b) {
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).retain(b, false);
+        }
+
+        long[] result = a.toWords();
+        long[] other = b.wordsView();
+        for (int i = 0; i < WORDS; i++) {
+            result[i] &= ~other[i];
+        }
+
+        return fromWords(result);
+    }
+
+    static boolean contentEquals(Container a, Container b) {
+        if (a.cardinality() != b.cardinality()) {
+            return false;
+        } else if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+            return ArrayContainer.contentEquals((ArrayContainer) a, (ArrayContainer) b);
+        } else {
+            return Arrays.equals(a.toWords(), b.toWords());
+        }
+    }
+
+    /**
+     * Sets the bits from (inclusive) to to (exclusive) in words, relative to the word offset. Bits beyond the end of
+     * the array are ignored.
+     */
+    static void setRange(long[] words, int offset, int from, int to) {
+        int firstWord = offset + from / Long.SIZE;
+        int lastWord = offset + (to - 1) / Long.SIZE;
+        int end = Math.min(lastWord, words.length - 1);
+
+        for (int i = firstWord; i <= end; i++) {
+            long mask = -1L;
+            if (i == firstWord) {
+                mask &= -1L << from;
+            }
+            if (i == lastWord) {
+                mask &= -1L >>> -to;
+            }
+            words[i] |= mask;
+        }
+    }
+}
@@ -0,0 +1,623 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Append-only bit vector compressed with enhanced word-aligned hybrid (EWAH) run-length encoding. The vector is a
+ * sequence of 64 bit words, stored as marker words, each followed by its literal words. A marker holds a run of
+ * words that are all 0 or all 1 and the amount of literal words that follow the run:
+ * <pre>
+ * bit 0        value of the run
+ * bits 1..32   length of the run in words
+ * bits 33..63  amount of literal words after the run
+ * </pre>
+ * Bits of the last, incomplete word are kept uncompressed until the word is full. Logical operations work on runs
+ * and literals directly, so long runs cost a single step, regardless of their length.
+ */
+public class EWAHBitVector {
+    private static final int RUN_SHIFT = 1;
+    private static final int LITERAL_SHIFT = 33;
+    private static final long MAX_RUN_LENGTH = (1L << (LITERAL_SHIFT - RUN_SHIFT)) - 1;
+    private static final long MAX_LITERALS = (1L << (Long.SIZE - LITERAL_SHIFT)) - 1;
+
+    private long[] buffer;
+    private int bufferSize;
+    private int marker;
+    private long tail;
+    private int size;
+
+    public EWAHBitVector() {
+        this.buffer = new long[4];
+        this.bufferSize = 1;
+    }
+
+    /**
+     * Compresses a vector word by word.
+     *
+     * @param vector Vector to compress.
+     * @return Compressed vector with the same bits as vector.
+     */
+    public static EWAHBitVector of(BitVector vector) {
+        Objects.requireNonNull(vector, "BitVector to compress cannot be null.");
+        EWAHBitVector result = new EWAHBitVector();
+        long[] words = vector.words();
+        int full = vector.size() / Long.SIZE;
+
+        for (int i = 0; i < full; i++) {
+            result.addWord(words[i]);
+        }
+        if (vector.size() % Long.SIZE != 0) {
+            result.tail = words[full] & BitVector.tailMask(vector.size());
+        }
+        result.size = vector.size();
+
+        return result;
+    }
+
+    /**
+     * Expands runs with {@link Arrays#fill(long[], int, int, long)} and copies literals with
+     * {@link System#arraycopy(Object, int, Object, int, int)}.
+     *
+     * @return Uncompressed vector with the same bits.
+     */
+    public BitVector toBitVector() {
+        long[] words = new long[BitVector.wordCount(size)];
+        Cursor cursor = new Cursor(this);
+        int index = 0;
+
+        while (cursor.hasNext()) {
+            if (cursor.run > 0) {
+                int run = (int) cursor.run;
+                if (cursor.runBit) {
+                    Arrays.fill(words, index, index + run, -1L);
+                }
+                index += run;
+                cursor.skipRun(run);
+            } else {
+                System.arraycopy(buffer, cursor.position, words, index, cursor.literals);
+                index += cursor.literals;
+                cursor.skipLiterals(cursor.literals);
+            }
+        }
+        if (size % Long.SIZE != 0) {
+            words[index] = tail;
+        }
+
+        return new BitVector(words, size, false);
+    }
+
+    /**
+     * @return Size of the vector in bits.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Size of the compressed words in bytes.
+     */
+    public long sizeInBytes() {
+        return (long) (bufferSize + 1) * Long.BYTES;
+    }
+
+    /**
+     * Releases unused capacity of the compressed buffer.
+     */
+    public void trimToSize() {
+        buffer = Arrays.copyOf(buffer, bufferSize);
+    }
+
+    private void checkGrowth(long amount) {
+        if (size + amount > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Vector cannot grow beyond " + Integer.MAX_VALUE + " bits. (Size: " + size + ", Amount: " + amount + ")");
+        }
+    }
+
+    /**
+     * @param bit Bit to append.
+     * @return This vector.
+     */
+    public EWAHBitVector writeBit(boolean bit) {
+        return writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * @param value  Bits to append, least significant bit first.
+     * @param amount Amount of bits to append, between 0 and 64.
+     * @return This vector.
+     * @throws IllegalArgumentException If the amount is out of range.
+     */
+    public EWAHBitVector writeBits(long value, int amount) {
+        if (amount < 0 || amount > Long.SIZE) {
+            throw new IllegalArgumentException("Amount must be between 0 and " + Long.SIZE + ". (Amount: " + amount + ")");
+        }
+        checkGrowth(amount);
+
+        int used = size % Long.SIZE;
+        value &= -1L >>> (Long.SIZE - amount);
+        if (amount == 0) {
+            return this;
+        }
+
+        tail |= value << used;
+        size += amount;
+        if (used + amount >= Long.SIZE) {
+            addWord(tail);
+            tail = used == 0 ? 0 : value >>> (Long.SIZE - used);
+        }
+
+        return this;
+    }
+
+    /**
+     * Appends amount copies of bit. Whole words of the run are added to the compressed form as a single run.
+     *
+     * @param bit    Bit to append.
+     * @param amount Amount of bits to append.
+     * @return This vector.
+     * @throws IllegalArgumentException If the amount is smaller than 0.
+     */
+    public EWAHBitVector writeRun(boolean bit, int amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount cannot be less than 0. (Amount: " + amount + ")");
+        }
+        checkGrowth(amount);
+
+        long fill = bit ? -1L : 0;
+        int used = size % Long.SIZE;
+        if (used != 0) {
+            int head = Math.min(amount, Long.SIZE - used);
+            writeBits(fill, head);
+            amount -= head;
+        }
+
+        int words = amount / Long.SIZE;
+        if (words > 0) {
+            addClean(bit, words);
+            size += words * Long.SIZE;
+        }
+
+        return writeBits(fill, amount % Long.SIZE);
+    }
+
+    /**
+     * Appends unset bits up to index and a set bit at index.
+     *
+     * @param index Index of the bit to set, at least {@link #size()}.
+     * @return This vector.
+     * @throws IllegalArgumentException If the index is before the end of the vector.
+     */
+    public EWAHBitVector set(int index) {
+        if (index < size) {
+            throw new IllegalArgumentException("Bits can only be appended. (Index: " + index + ", Size: " + size + ")");
+        }
+
+        return writeRun(false, index - size).writeBit(true);
+    }
+
+    private void push(long word) {
+        if (bufferSize == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[bufferSize++] = word;
+    }
+
+    private void newMarker() {
+        push(0);
+        marker = bufferSize - 1;
+    }
+
+    private void addWord(long word) {
+        if (word == 0 || word == -1L) {
+            addClean(word != 0, 1);
+        } else {
+            addLiteral(word);
+        }
+    }
+
+    private void addLiteral(long word) {
+        if (buffer[marker] >>> LITERAL_SHIFT == MAX_LITERALS) {
+            newMarker();
+        }
+        buffer[marker] += 1L << LITERAL_SHIFT;
+        push(word);
+    }
+
+    private void addClean(boolean bit, long amount) {
+        while (amount > 0) {
+            long word = buffer[marker];
+            long run = (word >>> RUN_SHIFT) & MAX_RUN_LENGTH;
+
+            if (word >>> LITERAL_SHIFT == 0 && (run == 0 || (word & 1) == (bit ? 1 : 0)) && run < MAX_RUN_LENGTH) {
+                long take = Math.min(amount, MAX_RUN_LENGTH - run);
+                buffer[marker] = (bit ? 1 : 0) | ((run + take) << RUN_SHIFT);
+                amount -= take;
+            } else {
+                newMarker();
+            }
+        }
+    }
+
+    /**
+     * Walks the markers up to the word of the position.
+     *
+     * @param position Position of the bit to return.
+     * @return True if the bit is set.
+     * @throws IndexOutOfBoundsException If the position is outside the vector.
+     */
+    public boolean get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of bounds. (Size: " + size + ")");
+        }
+
+        long word = position / Long.SIZE;
+        if (word == size / Long.SIZE) {
+            return (tail & (1L << position)) != 0;
+        }
+
+        Cursor cursor = new Cursor(this);
+        while (cursor.hasNext()) {
+            if (word < cursor.run) {
+                return cursor.runBit;
+            }
+            word -= cursor.run;
+            if (word < cursor.literals) {
+                return (buffer[cursor.position + (int) word] & (1L << position)) != 0;
+            }
+            word -= cursor.literals;
+            cursor.skipRun(cursor.run);
+            cursor.skipLiterals(cursor.literals);
+        }
+
+        throw new IllegalStateException("Compressed words end before position " + position + ".");
+    }
+
+    /**
+     * @return Amount of set bits, counting runs of ones without expanding them.
+     */
+    public long cardinality() {
+        long cardinality = Long.bitCount(tail);
+        Cursor cursor = new Cursor(this);
+
+        while (cursor.hasNext()) {
+            if (cursor.runBit) {
+                cardinality += cursor.run * Long.SIZE;
+            }
+            for (int i = 0; i < cursor.literals; i++) {
+                cardinality += Long.bitCount(buffer[cursor.position + i]);
+            }
+            cursor.skipRun(cursor.run);
+            cursor.skipLiterals(cursor.literals);
+        }
+
+        return cardinality;
+    }
+
+    /**
+     * Skips runs of zeros in a single step.
+     *
+     * @param index Index from which to start searching the first set bit.
+     * @return Index of the first set bit at or after index, if none are set, -1 is returned.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
+     */
+    public int nextSetBit(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index cannot be less than 0. (Index: " + index + ")");
+        } else if (index >= size) {
+            return -1;
+        }
+
+        long target = index / Long.SIZE;
+        long mask = -1L << index;
+        long word = 0;
+        Cursor cursor = new Cursor(this);
+
+        while (cursor.hasNext()) {
+            if (cursor.run > 0) {
+                if (cursor.runBit && word + cursor.run > target) {
+                    return (int) Math.max(index, word * Long.SIZE);
+                }
+                word += cursor.run;
+                cursor.skipRun(cursor.run);
+            } else {
+                for (int i = 0; i < cursor.literals; i++, word++) {
+                    if (word >= target) {
+                        long literal = buffer[cursor.position + i] & (word == target ? mask : -1L);
+                        if (literal != 0) {
+                            return (int) (word * Long.SIZE + Long.numberOfTrailingZeros(literal));
+                        }
+                    }
+                }
+                cursor.skipLiterals(cursor.literals);
+            }
+        }
+
+        long last = tail & (word == target ? mask : -1L);
+        return last != 0 ? (int) (word * Long.SIZE + Long.numberOfTrailingZeros(last)) : -1;
+    }
+
+    /**
+     * @param other Vector of the same size.
+     * @return Logical Or product of this and other vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public EWAHBitVector or(EWAHBitVector other) {
+        return combine(other, (a, b) -> a | b);
+    }
+
+    /**
+     * @param other Vector of the same size.
+     * @return Logical And product of this and other vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public EWAHBitVector and(EWAHBitVector other) {
+        return combine(other, (a, b) -> a & b);
+    }
+
+    /**
+     * @param other Vector of the same size.
+     * @return Logical Xor product of this and other vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public EWAHBitVector xor(EWAHBitVector other) {
+        return combine(other, (a, b) -> a ^ b);
+    }
+
+    /**
+     * @param other Vector of the same size.
+     * @return Logical And Not product of this and other vector.
+     * @throws IllegalArgumentException If the other vector is too short or too long.
+     */
+    public EWAHBitVector andNot(EWAHBitVector other) {
+        return combine(other, (a, b) -> a & ~b);
+    }
+
+    /**
+     * @return Bitwise not of this vector.
+     */
+    public EWAHBitVector not() {
+        return combine(this, (a, b) -> ~a);
+    }
+
+    /**
+     * Combines two vectors run by run. Overlapping runs produce a single run, a run against literals either produces
+     * a single run, if the run decides the result on its own, or one word per literal.
+     */
+    private EWAHBitVector combine(EWAHBitVector other, LongBinaryOperator operator) {
+        if (other.size != size) {
+            throw new IllegalArgumentException("Size mismatch: " + size + "/" + other.size);
+        }
+
+        EWAHBitVector result = new EWAHBitVector();
+        Cursor a = new Cursor(this);
+        Cursor b = new Cursor(other);
+
+        while (a.hasNext() && b.hasNext()) {
+            if (a.run > 0 && b.run > 0) {
+                long amount = Math.min(a.run, b.run);
+                result.addClean(operator.applyAsLong(a.runWord(), b.runWord()) != 0, amount);
+                a.skipRun(amount);
+                b.skipRun(amount);
+            } else if (a.run > 0) {
+                int amount = (int) Math.min(a.run, b.literals);
+                result.addRunAgainstLiterals(a.runWord(), b, amount, operator);
+                a.skipRun(amount);
+            } else if (b.run > 0) {
+                int amount = (int) Math.min(b.run, a.literals);
+                result.addRunAgainstLiterals(b.runWord(), a, amount, (x, y) -> operator.applyAsLong(y, x));
+                b.skipRun(amount);
+            } else {
+                int amount = Math.min(a.literals, b.literals);
+                for (int i = 0; i < amount; i++) {
+                    result.addWord(operator.applyAsLong(a.buffer[a.position + i], b.buffer[b.position + i]));
+                }
+                a.skipLiterals(amount);
+                b.skipLiterals(amount);
+            }
+        }
+
+        result.tail = operator.applyAsLong(tail, other.tail) & BitVector.tailMask(size);
+        if (size % Long.SIZE == 0) {
+            result.tail = 0;
+        }
+        result.size = size;
+
+        return result;
+    }
+
+    /**
+     * @param operator Operator taking the run word first and the literal second.
+     */
+    private void addRunAgainstLiterals(long runWord, Cursor literals, int amount, LongBinaryOperator operator) {
+        long withZeros = operator.applyAsLong(runWord, 0);
+        long withOnes = operator.applyAsLong(runWord, -1L);
+
+        if (withZeros == withOnes && (withZeros == 0 || withZeros == -1L)) {
+            addClean(withZeros != 0, amount);
+        } else {
+            for (int i = 0; i < amount; i++) {
+                addWord(operator.applyAsLong(runWord, literals.buffer[literals.position + i]));
+            }
+        }
+        literals.skipLiterals(amount);
+    }
+
+    /**
+     * @return Independent copy of this vector.
+     */
+    public EWAHBitVector copy() {
+        EWAHBitVector copy = new EWAHBitVector();
+        copy.buffer = Arrays.copyOf(buffer, Math.max(bufferSize, 1));
+        copy.bufferSize = bufferSize;
+        copy.marker = marker;
+        copy.tail = tail;
+        copy.size = size;
+
+        return copy;
+    }
+
+    /**
+     * Compares runs and literals without expanding runs.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (!(obj instanceof EWAHBitVector)) {
+            return false;
+        }
+
+        EWAHBitVector other = (EWAHBitVector) obj;
+        if (other.size != size || other.tail != tail) {
+            return false;
+        }
+
+        Cursor a = new Cursor(this);
+        Cursor b = new Cursor(other);
+        while (a.hasNext() && b.hasNext()) {
+            if (a.run > 0 && b.run > 0) {
+                if (a.runBit != b.runBit) {
+                    return false;
+                }
+                long amount = Math.min(a.run, b.run);
+                a.skipRun(amount);
+                b.skipRun(amount);
+            } else if (a.run > 0 || b.run > 0) {
+                Cursor run = a.run > 0 ? a : b;
+                Cursor literals = a.run > 0 ? b : a;
+                int amount = (int) Math.min(run.run, literals.literals);
+                for (int i = 0; i < amount; i++) {
+                    if (literals.buffer[literals.position + i] != run.runWord()) {
+                        return false;
+                    }
+                }
+                run.skipRun(amount);
+                literals.skipLiterals(amount);
+            } else {
+                int amount = Math.min(a.literals, b.literals);
+                for (int i = 0; i < amount; i++) {
+                    if (a.buffer[a.position + i] != b.buffer[b.position + i]) {
+                        return false;
+                    }
+                }
+                a.skipLiterals(amount);
+                b.skipLiterals(amount);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Sums every word multiplied by its index plus one, so runs of ones are hashed in closed form and the hash does not
+     * depend on how the words are split into markers.
+     *
+     * @return Hash code consistent with {@link #equals(Object)}.
+     */
+    @Override
+    public int hashCode() {
+        long h = 0;
+        long word = 0;
+        Cursor cursor = new Cursor(this);
+
+        while (cursor.hasNext()) {
+            long run = cursor.run;
+            if (cursor.runBit) {
+                h -= run * (word + 1) + run * (run - 1) / 2;
+            }
+            word += run;
+            cursor.skipRun(run);
+
+            for (int i = 0; i < cursor.literals; i++, word++) {
+                h += (word + 1) * buffer[cursor.position + i];
+            }
+            cursor.skipLiterals(cursor.literals);
+        }
+        h += (word + 1) * tail;
+
+        return 31 * size + (int) ((h >> 32) ^ h);
+    }
+
+    @Override
+    public String toString() {
+        return "EWAHBitVector{size=" + size + ", cardinality=" + cardinality() + ", words=" + bufferSize + "}";
+    }
+
+    /**
+     * Position in the compressed words of a vector, tracking the remaining run and literal words of the current
+     * marker.
+     */
+    private static final class Cursor {
+        private final long[] buffer;
+        private final int end;
+        private int position;
+        private long run;
+        private boolean runBit;
+        private int literals;
+
+        Cursor(EWAHBitVector vector) {
+            this.buffer = vector.buffer;
+            this.end = vector.bufferSize;
+            this.position = 0;
+        }
+
+        /**
+         * Loads markers until a run or literal words remain.
+         *
+         * @return False if all words were consumed.
+         */
+        boolean hasNext() {
+            while (run == 0 && literals == 0) {
+                if (position >= end) {
+                    return false;
+                }
+                long word = buffer[position++];
+                runBit = (word & 1) != 0;
+                run = (word >>> RUN_SHIFT) & MAX_RUN_LENGTH;
+                literals = (int) (word >>> LITERAL_SHIFT);
+            }
+
+            return true;
+        }
+
+        long runWord() {
+            return runBit ? -1L : 0;
+        }
+
+        void skipRun(long amount) {
+            run -= amount;
+        }
+
+        void skipLiterals(int amount) {
+            position += amount;
+            literals -= amount;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Objects;
+
+/**
+ * Immutable non-decreasing sequence of non-negative values in Elias-Fano encoding. Each value is split into its lower
+ * {@link #lowerBits()} bits, which are packed into a long array, and its upper bits, which are stored in unary in a
+ * {@link BitVector}: value i sets the bit at (value &gt;&gt;&gt; lowerBits) + i. This takes about 2 + log(u / n) bits
+ * per value for n values up to u.
+ * <p>
+ * Every {@value #SAMPLE_RATE}th set and unset bit of the upper bits is sampled, so finding a value by index or the
+ * first value of a bucket only scans a few words.
+ */
+public class EliasFanoSequence {
+    static final int SAMPLE_RATE = 256;
+
+    private final int size;
+    private final int lowerBits;
+    private final long lowerMask;
+    private final long[] lower;
+    private final BitVector upper;
+    private final long[] upperWords;
+    private final int[] oneSamples;
+    private final int[] zeroSamples;
+    private final long last;
+
+    private EliasFanoSequence(long[] values, int offset, int length) {
+        checkOrder(values, offset, length);
+        this.size = length;
+        this.last = length == 0 ? 0 : values[offset + length - 1];
+        this.lowerBits = length == 0 || last / length == 0 ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(last / length);
+        this.lowerMask = (1L << lowerBits) - 1;
+
+        long upperSize = length + (last >>> lowerBits) + 1;
+        if (upperSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many values for the upper bound. (Values: " + length + ", Last: " + last + ")");
+        }
+
+        this.lower = new long[(int) (((long) length * lowerBits + Long.SIZE - 1) / Long.SIZE) + 1];
+        long[] words = new long[BitVector.wordCount((int) upperSize)];
+
+        for (int i = 0; i < length; i++) {
+            long value = values[offset + i];
+            long bitPosition = (long) i * lowerBits;
+            int word = (int) (bitPosition / Long.SIZE);
+            int shift = (int) (bitPosition % Long.SIZE);
+            long low = value & lowerMask;
+            lower[word] |= low << shift;
+            if (shift + lowerBits > Long.SIZE) {
+                lower[word + 1] |= low >>> (Long.SIZE - shift);
+            }
+
+            long high = (value >>> lowerBits) + i;
+            words[(int) (high / Long.SIZE)] |= 1L << high;
+        }
+
+        this.upper = new BitVector(words, (int) upperSize, false);
+        this.upperWords = words;
+        this.oneSamples = sample(words, (int) upperSize, length, false);
+        this.zeroSamples = sample(words, (int) upperSize, (int) upperSize - length, true);
+    }
+
+    /**
+     * Checks the values before anything is sized from the last one, since an unsorted input would otherwise overrun
+     * the upper bits.
+     */
+    private static void checkOrder(long[] values, int offset, int length) {
+        long previous = 0;
+
+        for (int i = 0; i < length; i++) {
+            long value = values[offset + i];
+            if (value < previous) {
+                throw new IllegalArgumentException("Values must be non-negative and non-decreasing. (Index: " + i + ", Value: " + value + ")");
+            }
+            previous = value;
+        }
+    }
+
+    /**
+     * @param values Non-negative values in non-decreasing order.
+     * @return Sequence holding the values.
+     * @throws IllegalArgumentException If the values are not sorted or negative.
+     */
+    public static EliasFanoSequence of(long[] values) {
+        Objects.requireNonNull(values, "Values cannot be null.");
+        return new EliasFanoSequence(values, 0, values.length);
+    }
+
+    /**
+     * @param values Non-negative values in non-decreasing order.
+     * @return Sequence holding the values.
+     * @throws IllegalArgumentException If the values are not sorted or negative.
+     */
+    public static EliasFanoSequence of(int[] values) {
+        Objects.requireNonNull(values, "Values cannot be null.");
+        long[] widened = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            widened[i] = values[i];
+        }
+
+        return new EliasFanoSequence(widened, 0, widened.length);
+    }
+
+    /**
+     * @return Positions of every {@value #SAMPLE_RATE}th set (or unset, if zeros is true) bit.
+     */
+    private static int[] sample(long[] words, int size, int count, boolean zeros) {
+        int[] samples = new int[(count + SAMPLE_RATE - 1) / SAMPLE_RATE];
+        int seen = 0;
+
+        for (int i = 0; i < words.length && seen < count; i++) {
+            long word = zeros ? ~words[i] : words[i];
+            if (i == words.length - 1) {
+                word &= BitVector.tailMask(size);
+            }
+
+            int bits = Long.bitCount(word);
+            int next = (seen + SAMPLE_RATE - 1) / SAMPLE_RATE * SAMPLE_RATE;
+            while (next < seen + bits) {
+                samples[next / SAMPLE_RATE] = i * Long.SIZE + RankSelectIndex.selectInWord(word, next - seen);
+                next += SAMPLE_RATE;
+            }
+            seen += bits;
+        }
+
+        return samples;
+    }
+
+    private int select(int rank, int[] samples, boolean zeros) {
+        int position = samples[rank / SAMPLE_RATE];
+        int remaining = rank % SAMPLE_RATE;
+        int index = position / Long.SIZE;
+        long word = (zeros ? ~upperWords[index] : upperWords[index]) & (-1L << position);
+        int count;
+
+        while ((count = Long.bitCount(word)) <= remaining) {
+            remaining -= count;
+            index++;
+            word = zeros ? ~upperWords[index] : upperWords[index];
+        }
+
+        return index * Long.SIZE + RankSelectIndex.selectInWord(word, remaining);
+    }
+
+    private long lowAt(int index) {
+        long bitPosition = (long) index * lowerBits;
+        int word = (int) (bitPosition / Long.SIZE);
+        int shift = (int) (bitPosition % Long.SIZE);
+        long low = lower[word] >>> shift;
+        if (shift + lowerBits > Long.SIZE) {
+            low |= lower[word + 1] << (Long.SIZE - shift);
+        }
+
+        return low & lowerMask;
+    }
+
+    /**
+     * @return Amount of values in the sequence.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Amount of lower bits stored per value in the packed array.
+     */
+    public int lowerBits() {
+        return lowerBits;
+    }
+
+    /**
+     * @return Bit vector holding the upper bits in unary.
+     */
+    public BitVector upperBits() {
+        return upper.copy();
+    }
+
+    /**
+     * @return Size of the encoded values in bits, excluding the sampled select positions.
+     */
+    public long sizeInBits() {
+        return (long) size * lowerBits + upper.size();
+    }
+
+    /**
+     * @param index Index of the value.
+     * @return Value at index.
+     * @throws IndexOutOfBoundsException If the index is outside the sequence.
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds. (Size: " + size + ")");
+        }
+
+        long high = select(index, oneSamples, false) - index;
+        return (high << lowerBits) | lowAt(index);
+    }
+
+    /**
+     * Jumps to the bucket of value with the sampled unset bits and scans only the values sharing its upper bits.
+     *
+     * @param value Value to search for.
+     * @return Index of the first value greater than or equal to value, {@link #size()} if there is none.
+     */
+    public int indexOfGEQ(long value) {
+        if (size == 0 || value > last) {
+            return size;
+        } else if (value <= 0) {
+            return 0;
+        }
+
+        long high = value >>> lowerBits;
+        int position = high == 0 ? 0 : select((int) high - 1, zeroSamples, true) + 1;
+        int index = (int) (position - high);
+
+        while (index < size) {
+            position = upper.nextSetBit(position);
+            long current = ((long) (position - index) << lowerBits) | lowAt(index);
+            if (current >= value) {
+                return index;
+            }
+            position++;
+            index++;
+        }
+
+        return size;
+    }
+
+    /**
+     * @param value Value to search for.
+     * @return First value greater than or equal to value, -1 if there is none.
+     */
+    public long nextGEQ(long value) {
+        int index = indexOfGEQ(value);
+        return index < size ? get(index) : -1;
+    }
+
+    /**
+     * Decodes consecutive values, walking the set bits of the upper words and the packed lower bits sequentially.
+     *
+     * @param index       Index of the first value to decode.
+     * @param destination Array to decode into.
+     * @param offset      Offset into the destination array.
+     * @param length      Amount of values to decode.
+     * @throws IndexOutOfBoundsException If the range is outside the sequence or the destination array.
+     */
+    public void decode(int index, long[] destination, int offset, int length) {
+        Objects.checkFromIndexSize(index, length, size);
+        Objects.checkFromIndexSize(offset, length, destination.length);
+        if (length == 0) {
+            return;
+        }
+
+        int position = select(index, oneSamples, false);
+        int word = position / Long.SIZE;
+        long bits = upperWords[word] & (-1L << position);
+        long bitPosition = (long) index * lowerBits;
+        int end = index + length;
+
+        for (int i = index; i < end; i++) {
+            while (bits == 0) {
+                bits = upperWords[++word];
+            }
+            long high = word * (long) Long.SIZE + Long.numberOfTrailingZeros(bits) - i;
+            bits &= bits - 1;
+
+            int lowWord = (int) (bitPosition / Long.SIZE);
+            int shift = (int) (bitPosition % Long.SIZE);
+            long low = lower[lowWord] >>> shift;
+            if (shift + lowerBits > Long.SIZE) {
+                low |= lower[lowWord + 1] << (Long.SIZE - shift);
+            }
+            bitPosition += lowerBits;
+
+            destination[offset++] = (high << lowerBits) | (low & lowerMask);
+        }
+    }
+
+    /**
+     * @return All values of the sequence.
+     */
+    public long[] toLongArray() {
+        long[] values = new long[size];
+        decode(0, values, 0, size);
+        return values;
+    }
+
+    /**
+     * Decodes consecutive values into an int array, in chunks through a small long buffer.
+     *
+     * @param index       Index of the first value to decode.
+     * @param destination Array to decode into.
+     * @param offset      Offset into the destination array.
+     * @param length      Amount of values to decode.
+     * @throws IndexOutOfBoundsException If the range is outside the sequence or the destination array.
+     * @throws IllegalStateException     If a value does not fit into an int.
+     */
+    public void decode(int index, int[] destination, int offset, int length) {
+        Objects.checkFromIndexSize(index, length, size);
+        Objects.checkFromIndexSize(offset, length, destination.length);
+        if (length > 0 && get(index + length - 1) > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Values exceed the int range. (Last: " + get(index + length - 1) + ")");
+        }
+
+        long[] chunk = new long[Math.min(length, 1024)];
+        while (length > 0) {
+            int amount = Math.min(length, chunk.length);
+            decode(index, chunk, 0, amount);
+            for (int i = 0; i < amount; i++) {
+                destination[offset + i] = (int) chunk[i];
+            }
+            index += amount;
+            offset += amount;
+            length -= amount;
+        }
+    }
+
+    /**
+     * @return All values of the sequence.
+     * @throws IllegalStateException If a value does not fit into an int.
+     */
+    public int[] toIntArray() {
+        int[] values = new int[size];
+        decode(0, values, 0, size);
+        return values;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Objects;
+
+/**
+ * Rank and select index attached to a {@link BitVector}. The index stores an absolute count of set bits for every
+ * superblock of {@value #SUPERBLOCK_SIZE} bits and a count relative to the superblock for every block of
+ * {@value #BLOCK_SIZE} bits, which amounts to less than 4% of the size of the vector. Rank queries are answered in
+ * constant time, select queries in logarithmic time.
+ * <p>
+ * The index does not copy the vector. If the vector is modified, the index is rebuilt on the next query.
+ */
+public class RankSelectIndex {
+    static final int BLOCK_SIZE = 512;
+    static final int SUPERBLOCK_SIZE = 4096;
+    private static final int WORDS_PER_BLOCK = BLOCK_SIZE / Long.SIZE;
+    private static final int BLOCKS_PER_SUPERBLOCK = SUPERBLOCK_SIZE / BLOCK_SIZE;
+
+    private final BitVector vector;
+    private int[] superblocks;
+    private char[] blocks;
+    private int ones;
+    private int size;
+    private int modCount;
+
+    /**
+     * Constructs a new index over the vector.
+     *
+     * @param vector Vector to index.
+     */
+    public RankSelectIndex(BitVector vector) {
+        this.vector = Objects.requireNonNull(vector, "BitVector to RankSelectIndex cannot be null.");
+        rebuild();
+    }
+
+    /**
+     * @return The indexed vector.
+     */
+    public BitVector vector() {
+        return vector;
+    }
+
+    /**
+     * Recomputes the block counts from the vector. This happens automatically on the next query after the vector was
+     * modified.
+     */
+    public void rebuild() {
+        long[] words = vector.words();
+        int wordCount = BitVector.wordCount(vector.size());
+        int blockCount = ArrayUtils.arraySize(wordCount, WORDS_PER_BLOCK) + 1;
+
+        superblocks = new int[ArrayUtils.arraySize(blockCount, BLOCKS_PER_SUPERBLOCK)];
+        blocks = new char[blockCount];
+
+        int total = 0;
+        int relative = 0;
+
+        for (int block = 0; block < blockCount; block++) {
+            if (block % BLOCKS_PER_SUPERBLOCK == 0) {
+                superblocks[block / BLOCKS_PER_SUPERBLOCK] = total;
+                relative = 0;
+            }
+
+            blocks[block] = (char) relative;
+
+            int end = Math.min((block + 1) * WORDS_PER_BLOCK, wordCount);
+            for (int word = block * WORDS_PER_BLOCK; word < end; word++) {
+                int count = Long.bitCount(word == wordCount - 1 ? words[word] & BitVector.tailMask(vector.size()) : words[word]);
+                total += count;
+                relative += count;
+            }
+        }
+
+        ones = total;
+        size = vector.size();
+        modCount = vector.modCount();
+    }
+
+    /**
+     * @return Amount of set bits in the vector.
+     */
+    public int ones() {
+        ensureCurrent();
+        return ones;
+    }
+
+    /**
+     * @return Amount of unset bits in the vector.
+     */
+    public int zeros() {
+        ensureCurrent();
+        return size - ones;
+    }
+
+    /**
+     * @param position Position up to which to count, between 0 and {@link BitVector#size()}.
+     * @return Amount of set bits before position.
+     * @throws IndexOutOfBoundsException If the position is outside the vector.
+     */
+    public int rank1(int position) {
+        ensureCurrent();
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException("Position out of bounds. (Position: " + position + ", Size: " + size + ")");
+        }
+
+        return rankUnchecked(position);
+    }
+
+    /**
+     * @param position Position up to which to count, between 0 and {@link BitVector#size()}.
+     * @return Amount of unset bits before position.
+     * @throws IndexOutOfBoundsException If the position is outside the vector.
+     */
+    public int rank0(int position) {
+        return position - rank1(position);
+    }
+
+    /**
+     * @param rank Rank of the set bit to find, starting at 0.
+     * @return Position of the set bit with the given rank, -1 if the vector has no more than rank set bits.
+     * @throws IndexOutOfBoundsException If the rank is smaller than 0.
+     */
+    public int select1(int rank) {
+        ensureCurrent();
+        if (rank < 0) {
+            throw new IndexOutOfBoundsException("Rank cannot be less than 0. (Rank: " + rank + ")");
+        } else if (rank >= ones) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = superblocks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (superblocks[mid] <= rank) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int block = low * BLOCKS_PER_SUPERBLOCK;
+        int remaining = rank - superblocks[low];
+        int lastBlock = Math.min(block + BLOCKS_PER_SUPERBLOCK, blocks.length) - 1;
+        while (block < lastBlock && blocks[block + 1] <= remaining) {
+            block++;
+        }
+        remaining -= blocks[block];
+
+        long[] words = vector.words();
+        int word = block * WORDS_PER_BLOCK;
+        int count;
+        while ((count = Long.bitCount(words[word])) <= remaining) {
+            remaining -= count;
+            word++;
+        }
+
+        return word * Long.SIZE + selectInWord(words[word], remaining);
+    }
+
+    /**
+     * @param rank Rank of the unset bit to find, starting at 0.
+     * @return Position of the unset bit with the given rank, -1 if the vector has no more than rank unset bits.
+     * @throws IndexOutOfBoundsException If the rank is smaller than 0.
+     */
+    public int select0(int rank) {
+        ensureCurrent();
+        if (rank < 0) {
+            throw new IndexOutOfBoundsException("Rank cannot be less than 0. (Rank: " + rank + ")");
+        } else if (rank >= size - ones) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = superblocks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mid * SUPERBLOCK_SIZE - superblocks[mid] <= rank) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        int block = low * BLOCKS_PER_SUPERBLOCK;
+        int remaining = rank - (low * SUPERBLOCK_SIZE - superblocks[low]);
+        int lastBlock = Math.min(block + BLOCKS_PER_SUPERBLOCK, blocks.length) - 1;
+        while (block < lastBlock && (block + 1 - low * BLOCKS_PER_SUPERBLOCK) * BLOCK_SIZE - blocks[block + 1] <= remaining) {
+            block++;
+        }
+        remaining -= (block - low * BLOCKS_PER_SUPERBLOCK) * BLOCK_SIZE - blocks[block];
+
+        long[] words = vector.words();
+        int word = block * WORDS_PER_BLOCK;
+        int count;
+        while ((count = Long.bitCount(~words[word])) <= remaining) {
+            remaining -= count;
+            word++;
+        }
+
+        return word * Long.SIZE + selectInWord(~words[word], remaining);
+    }
+
+    private int rankUnchecked(int position) {
+        long[] words = vector.words();
+        int word = position / Long.SIZE;
+        int block = position / BLOCK_SIZE;
+        int rank = superblocks[position / SUPERBLOCK_SIZE] + blocks[block];
+
+        for (int i = block * WORDS_PER_BLOCK; i < word; i++) {
+            rank += Long.bitCount(words[i]);
+        }
+
+        int offset = position % Long.SIZE;
+        if (offset != 0) {
+            rank += Long.bitCount(words[word] & (0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - offset)));
+        }
+
+        return rank;
+    }
+
+    /**
+     * @param word Word to search.
+     * @param rank Rank of the set bit to find, smaller than the amount of set bits in word.
+     * @return Position of the set bit with the given rank within the word.
+     */
+    static int selectInWord(long word, int rank) {
+        int offset = 0;
+        int count;
+
+        while ((count = Long.bitCount(word & 0xFFL)) <= rank) {
+            rank -= count;
+            word >>>= Byte.SIZE;
+            offset += Byte.SIZE;
+        }
+
+        for (int i = 0; i < rank; i++) {
+            word &= word - 1;
+        }
+
+        return offset + Long.numberOfTrailingZeros(word);
+    }
+
+    private void ensureCurrent() {
+        if (vector.modCount() != modCount || vector.size() != size) {
+            rebuild();
+        }
+    }
+}
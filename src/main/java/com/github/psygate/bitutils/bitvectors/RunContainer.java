@@ -0,0 +1,343 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Container holding values as a sorted list of runs. Each run is stored as its first value followed by its length
+ * minus one.
+ */
+final class RunContainer extends Container {
+    private char[] runs;
+    private int count;
+    private int cardinality;
+
+    RunContainer() {
+        this.runs = new char[4];
+    }
+
+    static RunContainer of(Container container) {
+        RunContainer result = new RunContainer();
+
+        if (container instanceof ArrayContainer) {
+            ArrayContainer array = (ArrayContainer) container;
+            int size = array.cardinality();
+            int i = 0;
+            while (i < size) {
+                int start = array.valueAt(i);
+                int end = start;
+                while (++i < size && array.valueAt(i) == end + 1) {
+                    end++;
+                }
+                result.append(start, end);
+            }
+        } else {
+            long[] words = container.wordsView();
+            int start = nextSet(words, 0);
+            while (start >= 0) {
+                int end = nextUnset(words, start);
+                result.append(start, end - 1);
+                start = end < CHUNK_SIZE ? nextSet(words, end) : -1;
+            }
+        }
+
+        return result;
+    }
+
+    private static int nextSet(long[] words, int from) {
+        int index = from >>> 6;
+        long word = words[index] & (-1L << from);
+
+        while (word == 0) {
+            if (++index == WORDS) {
+                return -1;
+            }
+            word = words[index];
+        }
+
+        return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+    private static int nextUnset(long[] words, int from) {
+        int index = from >>> 6;
+        long word = ~words[index] & (-1L << from);
+
+        while (word == 0) {
+            if (++index == WORDS) {
+                return CHUNK_SIZE;
+            }
+            word = ~words[index];
+        }
+
+        return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+    private int start(int run) {
+        return runs[2 * run];
+    }
+
+    private int end(int run) {
+        return runs[2 * run] + runs[2 * run + 1];
+    }
+
+    private void setRun(int run, int start, int end) {
+        runs[2 * run] = (char) start;
+        runs[2 * run + 1] = (char) (end - start);
+    }
+
+    /**
+     * Appends a run behind all existing runs. The run must start after the end of the last run.
+     */
+    private void append(int start, int end) {
+        insertRun(count, start, end);
+    }
+
+    private void insertRun(int run, int start, int end) {
+        if (2 * count == runs.length) {
+            runs = Arrays.copyOf(runs, runs.length * 2);
+        }
+        System.arraycopy(runs, 2 * run, runs, 2 * run + 2, 2 * (count - run));
+        setRun(run, start, end);
+        count++;
+        cardinality += end - start + 1;
+    }
+
+    private void deleteRun(int run) {
+        cardinality -= end(run) - start(run) + 1;
+        System.arraycopy(runs, 2 * run + 2, runs, 2 * run, 2 * (count - run - 1));
+        count--;
+    }
+
+    /**
+     * @return Index of the last run starting at or before value, -1 if there is none.
+     */
+    private int findRun(int value) {
+        int low = 0;
+        int high = count - 1;
+        int found = -1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (start(mid) <= value) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return found;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int value) {
+        int run = findRun(value);
+        return run >= 0 && value <= end(run);
+    }
+
+    @Override
+    Container add(int value) {
+        int run = findRun(value);
+        if (run >= 0 && value <= end(run)) {
+            return this;
+        }
+
+        boolean extendsPrevious = run >= 0 && value == end(run) + 1;
+        boolean extendsNext = run + 1 < count && value + 1 == start(run + 1);
+
+        if (extendsPrevious && extendsNext) {
+            int end = end(run + 1);
+            deleteRun(run + 1);
+            cardinality += end - start(run) + 1 - (value - start(run));
+            setRun(run, start(run), end);
+        } else if (extendsPrevious) {
+            setRun(run, start(run), value);
+            cardinality++;
+        } else if (extendsNext) {
+            setRun(run + 1, value, end(run + 1));
+            cardinality++;
+        } else {
+            insertRun(run + 1, value, value);
+        }
+
+        return this;
+    }
+
+    @Override
+    Container remove(int value) {
+        int run = findRun(value);
+        if (run < 0 || value > end(run)) {
+            return this;
+        }
+
+        int start = start(run);
+        int end = end(run);
+
+        if (start == end) {
+            deleteRun(run);
+            return this;
+        } else if (value == start) {
+            setRun(run, start + 1, end);
+        } else if (value == end) {
+            setRun(run, start, end - 1);
+        } else {
+            setRun(run, start, value - 1);
+            insertRun(run + 1, value + 1, end);
+            cardinality -= end - value;
+        }
+        cardinality--;
+
+        return this;
+    }
+
+    @Override
+    int nextValue(int value) {
+        int run = findRun(value);
+        if (run >= 0 && value <= end(run)) {
+            return value;
+        }
+
+        return run + 1 < count ? start(run + 1) : -1;
+    }
+
+    @Override
+    int last() {
+        return end(count - 1);
+    }
+
+    @Override
+    int runCount() {
+        return count;
+    }
+
+    @Override
+    void orInto(long[] words, int offset) {
+        for (int run = 0; run < count; run++) {
+            setRange(words, offset, start(run), end(run) + 1);
+        }
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+        for (int run = 0; run < count; run++) {
+            int end = end(run);
+            for (int value = start(run); value <= end; value++) {
+                action.accept(high | value);
+            }
+        }
+    }
+
+    @Override
+    RunContainer copy() {
+        RunContainer copy = new RunContainer();
+        copy.runs = Arrays.copyOf(runs, runs.length);
+        copy.count = count;
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    @Override
+    Container unrun() {
+        if (cardinality > MAX_ARRAY_SIZE) {
+            return new BitmapContainer(toWords(), cardinality);
+        }
+
+        char[] values = new char[Math.max(cardinality, 1)];
+        int size = 0;
+        for (int run = 0; run < count; run++) {
+            int end = end(run);
+            for (int value = start(run); value <= end; value++) {
+                values[size++] = (char) value;
+            }
+        }
+
+        return new ArrayContainer(values, size);
+    }
+
+    static RunContainer and(RunContainer a, RunContainer b) {
+        RunContainer result = new RunContainer();
+        int i = 0;
+        int j = 0;
+
+        while (i < a.count && j < b.count) {
+            int start = Math.max(a.start(i), b.start(j));
+            int end = Math.min(a.end(i), b.end(j));
+            if (start <= end) {
+                result.append(start, end);
+            }
+
+            if (a.end(i) < b.end(j)) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return result;
+    }
+
+    static RunContainer or(RunContainer a, RunContainer b) {
+        RunContainer result = new RunContainer();
+        int i = 0;
+        int j = 0;
+        int start = -1;
+        int end = -2;
+
+        while (i < a.count || j < b.count) {
+            int nextStart;
+            int nextEnd;
+            if (j >= b.count || (i < a.count && a.start(i) <= b.start(j))) {
+                nextStart = a.start(i);
+                nextEnd = a.end(i++);
+            } else {
+                nextStart = b.start(j);
+                nextEnd = b.end(j++);
+            }
+
+            if (nextStart <= end + 1) {
+                end = Math.max(end, nextEnd);
+            } else {
+                if (start >= 0) {
+                    result.append(start, end);
+                }
+                start = nextStart;
+                end = nextEnd;
+            }
+        }
+        if (start >= 0) {
+            result.append(start, end);
+        }
+
+        return result;
+    }
+}
@@ -25,73 +25,445 @@
 
 package com.github.psygate.bitutils.bitvectors;
 
-import com.github.psygate.bitutils.bitvectors.BitVector;
-
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
 
 /**
  * Created by psygate on 19.09.2017.
+ * <p>
+ * Sparse set of bits over the full unsigned 32 bit index range. Indices are split into chunks of 2^16 bits, keyed by
+ * their upper 16 bits. Every chunk holding set bits is stored in a container that adapts to its contents: a sorted
+ * array for few bits, a bitmap for many bits or a list of runs after {@link #runOptimize()}. The chunk keys are kept
+ * in a sorted char array.
+ * <p>
+ * Indices are treated as unsigned, so negative indices address the upper half of the range and iterate after all
+ * positive indices. Logical operations combine matching containers directly and never expand to a dense vector.
  */
-public class SparseBitVector extends BitVector {
-    private TreeMap<Integer, BitVector> vectors = new TreeMap<>();
+public class SparseBitVector {
+    private static final int INITIAL_CAPACITY = 4;
 
-    @Override
-    public SparseBitVector writeBit(boolean bit) {
-        throw new UnsupportedOperationException();
+    private char[] keys;
+    private Container[] containers;
+    private int count;
+
+    public SparseBitVector() {
+        this(INITIAL_CAPACITY);
     }
 
-    @Override
-    protected SparseBitVector setBitUnchecked(int index, boolean bit) {
-        throw new UnsupportedOperationException();
+    private SparseBitVector(int capacity) {
+        this.keys = new char[capacity];
+        this.containers = new Container[capacity];
     }
 
-    @Override
-    public SparseBitVector replaceFirst(int index, BitVector find, BitVector replace) {
-        throw new UnsupportedOperationException();
+    /**
+     * @param indices Indices of the bits to set.
+     * @return Vector with the given bits set.
+     */
+    public static SparseBitVector of(int... indices) {
+        SparseBitVector vector = new SparseBitVector();
+        for (int index : indices) {
+            vector.set(index);
+        }
+
+        return vector;
     }
 
-    @Override
-    protected SparseBitVector uncheckedOr(BitVector other) {
-        throw new UnsupportedOperationException();
+    /**
+     * Converts a dense vector chunk by chunk, without inspecting single bits.
+     *
+     * @param vector Vector to convert.
+     * @return Sparse vector with the same set bits as vector.
+     */
+    public static SparseBitVector of(BitVector vector) {
+        Objects.requireNonNull(vector, "BitVector to convert cannot be null.");
+        long[] words = vector.words();
+        int wordCount = BitVector.wordCount(vector.size());
+        SparseBitVector result = new SparseBitVector(Math.max(ArrayUtils.arraySize(wordCount, Container.WORDS), 1));
+
+        for (int offset = 0; offset < wordCount; offset += Container.WORDS) {
+            long[] chunk = new long[Container.WORDS];
+            int length = Math.min(Container.WORDS, wordCount - offset);
+            System.arraycopy(words, offset, chunk, 0, length);
+            if (offset + length == wordCount) {
+                chunk[length - 1] &= BitVector.tailMask(vector.size());
+            }
+
+            Container container = Container.fromWords(chunk);
+            if (container.cardinality() > 0) {
+                result.insert(result.count, offset / Container.WORDS, container);
+            }
+        }
+
+        return result;
     }
 
-    @Override
-    protected SparseBitVector uncheckedAnd(BitVector other) {
-        throw new UnsupportedOperationException();
+    private int find(int key) {
+        return Arrays.binarySearch(keys, 0, count, (char) key);
     }
 
-    @Override
-    protected SparseBitVector uncheckedXor(BitVector other) {
-        throw new UnsupportedOperationException();
+    private void insert(int position, int key, Container container) {
+        if (count == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, position, keys, position + 1, count - position);
+        System.arraycopy(containers, position, containers, position + 1, count - position);
+        keys[position] = (char) key;
+        containers[position] = container;
+        count++;
     }
 
-    @Override
-    public SparseBitVector not() {
-        throw new UnsupportedOperationException();
+    private void delete(int position) {
+        System.arraycopy(keys, position + 1, keys, position, count - position - 1);
+        System.arraycopy(containers, position + 1, containers, position, count - position - 1);
+        containers[--count] = null;
     }
 
-    @Override
-    public int size() {
-        throw new UnsupportedOperationException();
+    private void append(int key, Container container) {
+        if (container.cardinality() > 0) {
+            insert(count, key, container);
+        }
     }
 
-    @Override
-    protected boolean getUnchecked(int position) {
-        return false;
+    /**
+     * @param index Index of the bit.
+     * @return True if the bit is set.
+     */
+    public boolean get(int index) {
+        int position = find(index >>> 16);
+        return position >= 0 && containers[position].contains(index & 0xFFFF);
+    }
+
+    /**
+     * @param index Index of the bit.
+     * @param bit   Value of the bit.
+     * @return This vector.
+     */
+    public SparseBitVector setBit(int index, boolean bit) {
+        return bit ? set(index) : clear(index);
+    }
+
+    /**
+     * @param index Index of the bit to set.
+     * @return This vector.
+     */
+    public SparseBitVector set(int index) {
+        int key = index >>> 16;
+        int position = find(key);
+        if (position < 0) {
+            position = -position - 1;
+            insert(position, key, new ArrayContainer());
+        }
+        containers[position] = containers[position].add(index & 0xFFFF);
+
+        return this;
+    }
+
+    /**
+     * @param index Index of the bit to clear.
+     * @return This vector.
+     */
+    public SparseBitVector clear(int index) {
+        int position = find(index >>> 16);
+        if (position >= 0) {
+            Container container = containers[position].remove(index & 0xFFFF);
+            if (container.cardinality() == 0) {
+                delete(position);
+            } else {
+                containers[position] = container;
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * @return Amount of set bits.
+     */
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < count; i++) {
+            cardinality += containers[i].cardinality();
+        }
+
+        return cardinality;
+    }
+
+    /**
+     * @return True if no bit is set.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param index Unsigned index from which to start searching, between 0 and 2^32.
+     * @return Unsigned index of the first set bit at or after index, -1 if there is none.
+     * @throws IndexOutOfBoundsException If the index is smaller than 0.
+     */
+    public long nextSetBit(long index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index cannot be less than 0. (Index: " + index + ")");
+        } else if (index > 0xFFFF_FFFFL) {
+            return -1;
+        }
+
+        int key = (int) (index >>> 16);
+        int position = find(key);
+        if (position >= 0) {
+            int value = containers[position].nextValue((int) index & 0xFFFF);
+            if (value >= 0) {
+                return ((long) key << 16) | value;
+            }
+            position++;
+        } else {
+            position = -position - 1;
+        }
+
+        return position < count ? ((long) keys[position] << 16) | containers[position].nextValue(0) : -1;
+    }
+
+    /**
+     * @return Unsigned index of the last set bit, -1 if there is none.
+     */
+    public long lastSetBit() {
+        return count == 0 ? -1 : ((long) keys[count - 1] << 16) | containers[count - 1].last();
+    }
+
+    /**
+     * Passes the indices of all set bits in unsigned ascending order to action.
+     *
+     * @param action Action to perform for each set bit.
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action, "Action cannot be null.");
+        for (int i = 0; i < count; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * @return Indices of all set bits in unsigned ascending order.
+     * @throws IllegalStateException If more bits are set than fit into an array.
+     */
+    public int[] toArray() {
+        long cardinality = cardinality();
+        if (cardinality > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many set bits for an array. (Cardinality: " + cardinality + ")");
+        }
+
+        int[] indices = new int[(int) cardinality];
+        int[] position = new int[1];
+        forEach(index -> indices[position[0]++] = index);
+
+        return indices;
+    }
+
+    /**
+     * Converts the vector chunk by chunk into a dense vector, sized to hold the last set bit.
+     *
+     * @return Dense vector with the same set bits.
+     * @throws IllegalStateException If a bit beyond {@link Integer#MAX_VALUE} is set.
+     */
+    public BitVector toBitVector() {
+        long last = lastSetBit();
+        if (last > Integer.MAX_VALUE - 1) {
+            throw new IllegalStateException("Set bits exceed the size of a BitVector. (Last: " + last + ")");
+        }
+
+        int size = (int) (last + 1);
+        long[] words = new long[BitVector.wordCount(size)];
+        for (int i = 0; i < count; i++) {
+            containers[i].orInto(words, keys[i] * Container.WORDS);
+        }
+
+        return new BitVector(words, size);
+    }
+
+    /**
+     * Converts every container into the smallest of its array, bitmap and run representations.
+     *
+     * @return This vector.
+     */
+    public SparseBitVector runOptimize() {
+        for (int i = 0; i < count; i++) {
+            containers[i] = containers[i].runOptimize();
+        }
+
+        return this;
+    }
+
+    /**
+     * @return Approximate amount of bytes used by the containers.
+     */
+    public long sizeInBytes() {
+        long bytes = count * (Character.BYTES + Integer.BYTES);
+        for (int i = 0; i < count; i++) {
+            Container container = containers[i];
+            if (container instanceof ArrayContainer) {
+                bytes += Character.BYTES * container.cardinality();
+            } else if (container instanceof RunContainer) {
+                bytes += 2 * Character.BYTES * container.runCount();
+            } else {
+                bytes += Container.WORDS * Long.BYTES;
+            }
+        }
+
+        return bytes;
+    }
+
+    int containerCount() {
+        return count;
+    }
+
+    Container containerAt(int position) {
+        return containers[position];
+    }
+
+    /**
+     * @param other Vector to combine with.
+     * @return New vector with the bits set in this or other.
+     */
+    public SparseBitVector or(SparseBitVector other) {
+        SparseBitVector result = new SparseBitVector(Math.max(count + other.count, 1));
+        int i = 0;
+        int j = 0;
+
+        while (i < count || j < other.count) {
+            if (j >= other.count || (i < count && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i++].copy());
+            } else if (i >= count || other.keys[j] < keys[i]) {
+                result.append(other.keys[j], other.containers[j++].copy());
+            } else {
+                result.append(keys[i], Container.or(containers[i++], other.containers[j++]));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param other Vector to combine with.
+     * @return New vector with the bits set in this and other.
+     */
+    public SparseBitVector and(SparseBitVector other) {
+        SparseBitVector result = new SparseBitVector(Math.max(Math.min(count, other.count), 1));
+        int i = 0;
+        int j = 0;
+
+        while (i < count && j < other.count) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (other.keys[j] < keys[i]) {
+                j++;
+            } else {
+                result.append(keys[i], Container.and(containers[i++], other.containers[j++]));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param other Vector to combine with.
+     * @return New vector with the bits set in either this or other, but not in both.
+     */
+    public SparseBitVector xor(SparseBitVector other) {
+        SparseBitVector result = new SparseBitVector(Math.max(count + other.count, 1));
+        int i = 0;
+        int j = 0;
+
+        while (i < count || j < other.count) {
+            if (j >= other.count || (i < count && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i++].copy());
+            } else if (i >= count || other.keys[j] < keys[i]) {
+                result.append(other.keys[j], other.containers[j++].copy());
+            } else {
+                result.append(keys[i], Container.xor(containers[i++], other.containers[j++]));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param other Vector to combine with.
+     * @return New vector with the bits set in this but not in other.
+     */
+    public SparseBitVector andNot(SparseBitVector other) {
+        SparseBitVector result = new SparseBitVector(Math.max(count, 1));
+        int i = 0;
+        int j = 0;
+
+        while (i < count) {
+            if (j >= other.count || keys[i] < other.keys[j]) {
+                result.append(keys[i], containers[i++].copy());
+            } else if (other.keys[j] < keys[i]) {
+                j++;
+            } else {
+                result.append(keys[i], Container.andNot(containers[i++], other.containers[j++]));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Independent copy of this vector.
+     */
+    public SparseBitVector copy() {
+        SparseBitVector copy = new SparseBitVector(Math.max(count, 1));
+        for (int i = 0; i < count; i++) {
+            copy.append(keys[i], containers[i].copy());
+        }
+
+        return copy;
     }
 
     @Override
-    protected SparseBitVector subVectorUnchecked(int position, int length) {
-        throw new UnsupportedOperationException();
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (!(obj instanceof SparseBitVector)) {
+            return false;
+        }
+
+        SparseBitVector other = (SparseBitVector) obj;
+        if (count != other.count || !Arrays.equals(keys, 0, count, other.keys, 0, count)) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!Container.contentEquals(containers[i], other.containers[i])) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
+    /**
+     * @return Hash code over the set indices, independent of the container representation.
+     */
     @Override
-    public SparseBitVector empty() {
-        throw new UnsupportedOperationException();
+    public int hashCode() {
+        int[] hash = {1};
+        forEach(index -> hash[0] = 31 * hash[0] + index);
+
+        return hash[0];
     }
 
     @Override
-    public SparseBitVector copy() {
-        throw new UnsupportedOperationException();
+    public String toString() {
+        StringBuilder builder = new StringBuilder("SparseBitVector{");
+        forEach(index -> {
+            if (builder.length() > "SparseBitVector{".length()) {
+                builder.append(", ");
+            }
+            builder.append(Integer.toUnsignedString(index));
+        });
+
+        return builder.append('}').toString();
     }
 }
@@ -0,0 +1,109 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+/**
+ * Writable window into a {@link BitVector}. All set methods modify the underlying vector and return this view.
+ */
+public class WritableBitVectorView extends BitVectorView {
+    WritableBitVectorView(BitVector parent, int offset, int length) {
+        super(parent, offset, length);
+    }
+
+    /**
+     * @param index Index in the view where to set the bit.
+     * @param bit   The bit to set.
+     * @return This view.
+     */
+    public WritableBitVectorView setBit(int index, boolean bit) {
+        checkPosition(index);
+        parent.setBitUnchecked(offset + index, bit);
+
+        return this;
+    }
+
+    /**
+     * @param index  Index in the view where to set the bits.
+     * @param value  Value of which to write the bits from least significant to most significant bit.
+     * @param amount Amount of bits to write.
+     * @return This view.
+     */
+    public WritableBitVectorView setBits(int index, int value, int amount) {
+        checkRange(index, amount, Integer.SIZE);
+        parent.setBitsUnchecked(offset + index, value, amount);
+
+        return this;
+    }
+
+    /**
+     * @param index  Index in the view where to set the bits.
+     * @param value  Value of which to write the bits from least significant to most significant bit.
+     * @param amount Amount of bits to write.
+     * @return This view.
+     */
+    public WritableBitVectorView setBits(int index, long value, int amount) {
+        checkRange(index, amount, Long.SIZE);
+        parent.setBitsUnchecked(offset + index, value, amount);
+
+        return this;
+    }
+
+    /**
+     * @param index Index in the view from which to start setting the bits of other.
+     * @param other BitVector to read the bits from.
+     * @return This view.
+     */
+    public WritableBitVectorView set(int index, BitVector other) {
+        checkRange(index, other.size(), length);
+        parent.set(offset + index, other);
+
+        return this;
+    }
+
+    /**
+     * Sets all bits of the view to the given value.
+     *
+     * @param bit Value to set the bits to.
+     * @return This view.
+     */
+    public WritableBitVectorView fill(boolean bit) {
+        checkParent();
+        long value = bit ? 0xFFFFFFFFFFFFFFFFL : 0L;
+
+        for (int position = 0; position < length; position += Long.SIZE) {
+            parent.setBitsUnchecked(offset + position, value, Math.min(Long.SIZE, length - position));
+        }
+
+        return this;
+    }
+
+    @Override
+    public WritableBitVectorView subView(int position, int length) {
+        checkRange(position, length, this.length);
+
+        return new WritableBitVectorView(parent, offset + position, length);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.AbstractBitOutputStream;
+
+import java.io.IOException;
+
+/**
+ * Elias delta code for positive values. A value with n bits below its highest set bit is written as the Elias gamma
+ * code of n + 1 followed by the n low bits of the value.
+ */
+public class EliasDeltaCode extends IntegerCode {
+    private final EliasGammaCode gamma = new EliasGammaCode();
+
+    @Override
+    public long minValue() {
+        return 1;
+    }
+
+    @Override
+    public long length(long value) {
+        EliasGammaCode.checkValue(value);
+        int n = log2(value);
+        return gamma.length(n + 1) + n;
+    }
+
+    @Override
+    public void write(AbstractBitOutputStream out, long value) throws IOException {
+        EliasGammaCode.checkValue(value);
+        int n = log2(value);
+        gamma.write(out, n + 1);
+        out.writeBitsLong(value, n);
+    }
+
+    @Override
+    protected long readSlow(AbstractBitInputStream in, long window) throws IOException {
+        int zeros = Long.numberOfTrailingZeros(window);
+
+        // The prefix is at most 13 bits for 64 bit values, decode it from the window if the suffix fits as well.
+        if (window != 0 && 2 * zeros + 1 < Long.SIZE) {
+            int prefixLength = 2 * zeros + 1;
+            long n = (1L << zeros | (window >>> (zeros + 1)) & mask(zeros)) - 1;
+            if (n >= Long.SIZE - 1) {
+                throw new IOException("Invalid Elias delta code, length out of bounds. (" + n + ")");
+            } else if (prefixLength + n <= Long.SIZE) {
+                long code = in.readBitsLong(prefixLength + (int) n);
+                return 1L << n | (code >>> prefixLength) & mask((int) n);
+            }
+        }
+
+        long n = gamma.read(in) - 1;
+        if (n >= Long.SIZE - 1) {
+            throw new IOException("Invalid Elias delta code, length out of bounds. (" + n + ")");
+        }
+
+        return 1L << n | in.readBitsLong((int) n);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.AbstractBitOutputStream;
+
+import java.io.IOException;
+
+/**
+ * Elias gamma code for positive values. A value with n bits below its highest set bit is written as n zero bits, a one
+ * bit and the n low bits of the value, 2n + 1 bits in total.
+ */
+public class EliasGammaCode extends IntegerCode {
+    @Override
+    public long minValue() {
+        return 1;
+    }
+
+    @Override
+    public long length(long value) {
+        checkValue(value);
+        return 2L * log2(value) + 1;
+    }
+
+    @Override
+    public void write(AbstractBitOutputStream out, long value) throws IOException {
+        checkValue(value);
+        int n = log2(value);
+
+        if (2 * n + 1 <= Long.SIZE) {
+            out.writeBitsLong(1L << n | (value & mask(n)) << (n + 1), 2 * n + 1);
+        } else {
+            writeUnary(out, n);
+            out.writeBitsLong(value, n);
+        }
+    }
+
+    @Override
+    protected long readSlow(AbstractBitInputStream in, long window) throws IOException {
+        int n = Long.numberOfTrailingZeros(window);
+
+        if (window != 0 && 2 * n + 1 <= Long.SIZE) {
+            long code = in.readBitsLong(2 * n + 1);
+            return 1L << n | code >>> (n + 1);
+        }
+
+        long zeros = readUnary(in, window);
+        if (zeros >= Long.SIZE - 1) {
+            throw new IOException("Invalid Elias gamma code, prefix too long. (" + zeros + ")");
+        }
+
+        return 1L << zeros | in.readBitsLong((int) zeros);
+    }
+
+    static void checkValue(long value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Elias gamma code requires positive values. (" + value + ")");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.AbstractBitOutputStream;
+
+import java.io.IOException;
+
+/**
+ * Exponential Golomb code of order k for non-negative values. The value v is written as the Elias gamma code of
+ * v + 2^k with the first k prefix bits omitted, order 0 is the Elias gamma code of v + 1.
+ */
+public class ExpGolombCode extends IntegerCode {
+    private final int k;
+
+    /**
+     * @param k Order of the code, between 0 and 62.
+     */
+    public ExpGolombCode(int k) {
+        if (k < 0 || k > Long.SIZE - 2) {
+            throw new IllegalArgumentException("Order out of bounds: " + k);
+        }
+        this.k = k;
+    }
+
+    public int getOrder() {
+        return k;
+    }
+
+    @Override
+    public long minValue() {
+        return 0;
+    }
+
+    @Override
+    public long length(long value) {
+        int n = log2(offset(value));
+        return 2L * n - k + 1;
+    }
+
+    @Override
+    public void write(AbstractBitOutputStream out, long value) throws IOException {
+        long x = offset(value);
+        int n = log2(x);
+        int prefix = n - k;
+
+        if (prefix + 1 + n <= Long.SIZE) {
+            out.writeBitsLong(1L << prefix | (x & mask(n)) << (prefix + 1), prefix + 1 + n);
+        } else {
+            writeUnary(out, prefix);
+            out.writeBitsLong(x, n);
+        }
+    }
+
+    @Override
+    protected long readSlow(AbstractBitInputStream in, long window) throws IOException {
+        int prefix = Long.numberOfTrailingZeros(window);
+        int n = prefix + k;
+
+        if (window != 0 && prefix + 1 + n <= Long.SIZE) {
+            long code = in.readBitsLong(prefix + 1 + n);
+            return (1L << n | code >>> (prefix + 1)) - (1L << k);
+        }
+
+        long zeros = readUnary(in, window);
+        if (zeros + k >= Long.SIZE - 1) {
+            throw new IOException("Invalid exponential Golomb code, prefix too long. (" + zeros + ")");
+        }
+
+        n = (int) zeros + k;
+        return (1L << n | in.readBitsLong(n)) - (1L << k);
+    }
+
+    private long offset(long value) {
+        long x = value + (1L << k);
+        if (value < 0 || x < 0) {
+            throw new IllegalArgumentException("Value out of bounds for exponential Golomb code of order " + k + ": " + value);
+        }
+
+        return x;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.AbstractBitOutputStream;
+
+import java.io.IOException;
+
+/**
+ * Golomb code with divisor m for non-negative values. The quotient v / m is written in unary, the remainder in
+ * truncated binary: remainders below the cutoff 2^b - m use b - 1 bits, all others b bits, with b = ceil(log2(m)). The
+ * long form is written as its upper b - 1 bits followed by its lowest bit, so the first b - 1 bits decide the length.
+ */
+public class GolombCode extends IntegerCode {
+    private final long m;
+    private final int bits;
+    private final long cutoff;
+
+    /**
+     * @param m Divisor, between 1 and 2^62.
+     */
+    public GolombCode(long m) {
+        if (m < 1 || m > 1L << (Long.SIZE - 2)) {
+            throw new IllegalArgumentException("Divisor out of bounds: " + m);
+        }
+        this.m = m;
+        this.bits = m == 1 ? 0 : log2(m - 1) + 1;
+        this.cutoff = bits == 0 ? 0 : (1L << bits) - m;
+    }
+
+    public long getDivisor() {
+        return m;
+    }
+
+    @Override
+    public long minValue() {
+        return 0;
+    }
+
+    @Override
+    public long length(long value) {
+        checkValue(value);
+        return value / m + 1 + remainderLength(value % m);
+    }
+
+    @Override
+    public void write(AbstractBitOutputStream out, long value) throws IOException {
+        checkValue(value);
+        writeUnary(out, value / m);
+
+        long remainder = value % m;
+        if (bits == 0) {
+            return;
+        } else if (remainder < cutoff) {
+            out.writeBitsLong(remainder, bits - 1);
+        } else {
+            long extended = remainder + cutoff;
+            out.writeBitsLong(extended >>> 1, bits - 1);
+            out.writeBitsLong(extended & 1, 1);
+        }
+    }
+
+    @Override
+    protected long readSlow(AbstractBitInputStream in, long window) throws IOException {
+        long quotient = readUnary(in, window);
+        if (quotient > Long.MAX_VALUE / m) {
+            throw new IOException("Invalid Golomb code, quotient too large. (" + quotient + ")");
+        }
+
+        long remainder = 0;
+        if (bits > 0) {
+            long upper = in.readBitsLong(bits - 1);
+            remainder = upper < cutoff ? upper : (upper << 1 | in.readBitsLong(1)) - cutoff;
+        }
+
+        return quotient * m + remainder;
+    }
+
+    private int remainderLength(long remainder) {
+        return bits == 0 ? 0 : remainder < cutoff ? bits - 1 : bits;
+    }
+
+    private static void checkValue(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Golomb code requires non-negative values. (" + value + ")");
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.AbstractBitOutputStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Canonical Huffman code over the symbols 0 to n - 1. Codes are assigned in order of length and then symbol, like in
+ * DEFLATE, and are written starting with their most significant bit, so the code of a symbol is fully described by the
+ * code lengths.
+ * <p>
+ * Decoding uses a primary table indexed by the next {@value #PRIMARY_BITS} bits (or fewer, if all codes are shorter).
+ * Longer codes continue in second level tables that hang off the primary entry for their first bits, so every symbol
+ * is resolved with one peek and at most two lookups. Code lengths are limited to {@value #MAX_CODE_LENGTH} bits, so a
+ * second level table has at most 2^({@value #MAX_CODE_LENGTH} - {@value #PRIMARY_BITS}) entries even for very skewed
+ * frequencies.
+ */
+public class HuffmanCode {
+    public static final int MAX_CODE_LENGTH = 24;
+    public static final int MAX_SYMBOLS = 1 << 24;
+    static final int PRIMARY_BITS = 10;
+    // Table entries hold the symbol above the length, second level pointers are stored inverted (negative) and hold
+    // the table offset above the amount of index bits. 0 marks bit patterns that aren't a valid code.
+    private static final int LENGTH_BITS = 6;
+    private static final int LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+
+    private final int[] lengths;
+    private final int[] codes;
+    private final int maxLength;
+    private final int primaryBits;
+    private final int[] table;
+
+    private HuffmanCode(int[] lengths) {
+        if (lengths.length > MAX_SYMBOLS) {
+            throw new IllegalArgumentException("Too many symbols: " + lengths.length + "/" + MAX_SYMBOLS);
+        }
+        this.lengths = lengths;
+        this.maxLength = Arrays.stream(lengths).max().orElse(0);
+        this.codes = assignCodes(lengths, maxLength);
+        this.primaryBits = Math.min(maxLength, PRIMARY_BITS);
+        this.table = buildTable();
+    }
+
+    /**
+     * Builds the code from the code length of each symbol, a length of 0 means the symbol doesn't occur.
+     *
+     * @param lengths Code length for every symbol.
+     * @return The canonical code for the lengths.
+     * @throws IllegalArgumentException If a length is out of bounds or the lengths describe more codes than possible.
+     */
+    public static HuffmanCode fromLengths(int[] lengths) {
+        Objects.requireNonNull(lengths);
+        long kraft = 0;
+
+        for (int length : lengths) {
+            if (length < 0 || length > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Code length out of bounds: " + length);
+            } else if (length > 0) {
+                kraft += 1L << (MAX_CODE_LENGTH - length);
+            }
+        }
+
+        if (kraft > 1L << MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Code lengths are oversubscribed.");
+        }
+
+        return new HuffmanCode(lengths.clone());
+    }
+
+    /**
+     * Builds a Huffman code for the symbol frequencies, with no code longer than maxLength bits. Symbols with frequency
+     * 0 get no code. If the optimal code exceeds the limit, the overlong codes are cut to the limit and the least
+     * frequent shorter codes are lengthened until the code is valid again, after which spare code space is handed back
+     * to the most frequent symbols.
+     *
+     * @param frequencies Frequency of every symbol.
+     * @param maxLength   Maximum code length, between 1 and {@link #MAX_CODE_LENGTH}.
+     * @return The canonical code.
+     * @throws IllegalArgumentException If the limit is out of bounds or too small for the amount of symbols.
+     */
+    public static HuffmanCode fromFrequencies(long[] frequencies, int maxLength) {
+        if (maxLength < 1 || maxLength > MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Maximum code length out of bounds: " + maxLength);
+        }
+
+        // Used symbols, least frequent first.
+        int[] symbols = IntStream.range(0, frequencies.length)
+                .filter(i -> checkFrequency(frequencies[i]) > 0)
+                .boxed()
+                .sorted(Comparator.comparingLong(i -> frequencies[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        if (symbols.length > 1L << maxLength) {
+            throw new IllegalArgumentException("Cannot encode " + symbols.length + " symbols with at most " + maxLength + " bits.");
+        }
+
+        int[] lengths = new int[frequencies.length];
+        if (symbols.length == 1) {
+            lengths[symbols[0]] = 1;
+        } else if (symbols.length > 1) {
+            int[] depths = treeDepths(frequencies, symbols);
+            limitLengths(depths, maxLength);
+            for (int i = 0; i < symbols.length; i++) {
+                lengths[symbols[i]] = depths[i];
+            }
+        }
+
+        return new HuffmanCode(lengths);
+    }
+
+    private static long checkFrequency(long frequency) {
+        if (frequency < 0) {
+            throw new IllegalArgumentException("Negative frequency: " + frequency);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Builds the Huffman tree with the two queue method: leaves are sorted, and internal nodes are created in order of
+     * weight, so the two lightest nodes are always at the head of one of the queues.
+     *
+     * @return Depth of every leaf, in the order of symbols.
+     */
+    private static int[] treeDepths(long[] frequencies, int[] symbols) {
+        int n = symbols.length;
+        long[] weights = new long[2 * n - 1];
+        int[] parents = new int[2 * n - 1];
+        for (int i = 0; i < n; i++) {
+            weights[i] = frequencies[symbols[i]];
+        }
+
+        int leaf = 0;
+        int node = n;
+        for (int next = n; next < weights.length; next++) {
+            for (int child = 0; child < 2; child++) {
+                int picked;
+                if (leaf < n && (node >= next || weights[leaf] <= weights[node])) {
+                    picked = leaf++;
+                } else {
+                    picked = node++;
+                }
+                weights[next] += weights[picked];
+                parents[picked] = next;
+            }
+        }
+
+        int[] depths = new int[weights.length];
+        for (int i = weights.length - 2; i >= 0; i--) {
+            depths[i] = depths[parents[i]] + 1;
+        }
+
+        return Arrays.copyOf(depths, n);
+    }
+
+    /**
+     * Limits the lengths, which are ordered from least to most frequent symbol.
+     */
+    private static void limitLengths(int[] lengths, int maxLength) {
+        // Code space in units of the longest allowed code.
+        long capacity = 1L << maxLength;
+        long used = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = Math.min(lengths[i], maxLength);
+            used += 1L << (maxLength - lengths[i]);
+        }
+
+        // Lengthen the least frequent codes that are still below the limit until everything fits.
+        while (used > capacity) {
+            for (int i = 0; i < lengths.length && used > capacity; i++) {
+                if (lengths[i] < maxLength) {
+                    used -= 1L << (maxLength - lengths[i] - 1);
+                    lengths[i]++;
+                }
+            }
+        }
+
+        // Shorten the most frequent codes while there is room.
+        for (int i = lengths.length - 1; i >= 0; i--) {
+            while (lengths[i] > 1 && used + (1L << (maxLength - lengths[i])) <= capacity) {
+                used += 1L << (maxLength - lengths[i]);
+                lengths[i]--;
+            }
+        }
+    }
+
+    /**
+     * Assigns canonical codes and stores them bit reversed, so they can be written least significant bit first.
+     */
+    private static int[] assignCodes(int[] lengths, int maxLength) {
+        int[] counts = new int[maxLength + 2];
+        for (int length : lengths) {
+            counts[length]++;
+        }
+        counts[0] = 0;
+
+        long[] next = new long[maxLength + 2];
+        long code = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            code = (code + counts[length - 1]) << 1;
+            next[length] = code;
+        }
+
+        int[] codes = new int[lengths.length];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol];
+            if (length > 0) {
+                codes[symbol] = Integer.reverse((int) next[length]++) >>> (Integer.SIZE - length);
+            }
+        }
+
+        return codes;
+    }
+
+    private int[] buildTable() {
+        if (maxLength == 0) {
+            return new int[1];
+        }
+
+        // Longest code behind every primary index, to size the second level tables.
+        int primarySize = 1 << primaryBits;
+        int[] longest = new int[primarySize];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (lengths[symbol] > primaryBits) {
+                int index = codes[symbol] & (primarySize - 1);
+                longest[index] = Math.max(longest[index], lengths[symbol]);
+            }
+        }
+
+        int size = primarySize;
+        int[] offsets = new int[primarySize];
+        for (int index = 0; index < primarySize; index++) {
+            if (longest[index] > 0) {
+                offsets[index] = size;
+                size += 1 << (longest[index] - primaryBits);
+            }
+        }
+
+        int[] table = new int[size];
+        for (int index = 0; index < primarySize; index++) {
+            if (longest[index] > 0) {
+                table[index] = ~(offsets[index] << LENGTH_BITS | (longest[index] - primaryBits));
+            }
+        }
+
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol];
+            if (length == 0) {
+                continue;
+            }
+
+            int entry = symbol << LENGTH_BITS | length;
+            if (length <= primaryBits) {
+                for (int suffix = 0; suffix < 1 << (primaryBits - length); suffix++) {
+                    table[codes[symbol] | suffix << length] = entry;
+                }
+            } else {
+                int index = codes[symbol] & (primarySize - 1);
+                int subBits = longest[index] - primaryBits;
+                int code = codes[symbol] >>> primaryBits;
+                int codeBits = length - primaryBits;
+                for (int suffix = 0; suffix < 1 << (subBits - codeBits); suffix++) {
+                    table[offsets[index] + (code | suffix << codeBits)] = entry;
+                }
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * @return Amount of symbols, including those without a code.
+     */
+    public int symbolCount() {
+        return lengths.length;
+    }
+
+    /**
+     * @return Length of the longest code.
+     */
+    public int maxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @param symbol Symbol.
+     * @return Length of the code for symbol, 0 if the symbol has no code.
+     */
+    public int length(int symbol) {
+        Objects.checkIndex(symbol, lengths.length);
+        return lengths[symbol];
+    }
+
+    /**
+     * @return Code lengths of all symbols, suitable for {@link #fromLengths(int[])}.
+     */
+    public int[] getLengths() {
+        return lengths.clone();
+    }
+
+    /**
+     * Writes the code for symbol.
+     *
+     * @param out    Stream to write to.
+     * @param symbol Symbol to encode.
+     * @throws IllegalArgumentException If the symbol has no code.
+     */
+    public void write(AbstractBitOutputStream out, int symbol) throws IOException {
+        if (length(symbol) == 0) {
+            throw new IllegalArgumentException("Symbol has no code: " + symbol);
+        }
+
+        out.writeBits(codes[symbol], lengths[symbol]);
+    }
+
+    public void write(AbstractBitOutputStream out, int[] symbols, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, symbols.length);
+        for (int i = off; i < off + len; i++) {
+            write(out, symbols[i]);
+        }
+    }
+
+    /**
+     * Reads the next symbol.
+     *
+     * @param in Stream to read from.
+     * @return Decoded symbol.
+     * @throws IOException If the stream ends inside the code or the bits are not a valid code.
+     */
+    public int read(AbstractBitInputStream in) throws IOException {
+        int entry = lookup(in.peekBitsLong(Long.SIZE));
+        if (entry == 0) {
+            throw new IOException("Invalid Huffman code at bit " + in.getPosition() + ".");
+        }
+
+        in.readBitsLong(entry & LENGTH_MASK);
+        return entry >>> LENGTH_BITS;
+    }
+
+    /**
+     * Reads len symbols into dst. Symbols are decoded from one peeked window until it is used up, so the stream is only
+     * touched once for several symbols.
+     *
+     * @param in  Stream to read from.
+     * @param dst Array to store the symbols in.
+     * @param off Index of the first symbol in dst.
+     * @param len Amount of symbols to read.
+     * @throws IOException If the stream ends early or the bits are not a valid code.
+     */
+    public void read(AbstractBitInputStream in, int[] dst, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, dst.length);
+        int end = off + len;
+        int i = off;
+
+        while (i < end) {
+            long window = in.peekBitsLong(Long.SIZE);
+            int used = 0;
+
+            for (; i < end; i++) {
+                // Bits above the window read as zero after shifting, the entry is only valid if it fits the window.
+                int entry = lookup(window >>> used);
+                int length = entry & LENGTH_MASK;
+                if (entry == 0 || used + length > Long.SIZE) {
+                    break;
+                }
+                dst[i] = entry >>> LENGTH_BITS;
+                used += length;
+            }
+
+            if (used > 0) {
+                in.readBitsLong(used);
+            } else {
+                dst[i++] = read(in);
+            }
+        }
+    }
+
+    private int lookup(long window) {
+        int entry = table[(int) window & ((1 << primaryBits) - 1)];
+
+        if (entry < 0) {
+            entry = ~entry;
+            int index = (int) (window >>> primaryBits) & ((1 << (entry & LENGTH_MASK)) - 1);
+            entry = table[(entry >>> LENGTH_BITS) + index];
+        }
+
+        return entry;
+    }
+}
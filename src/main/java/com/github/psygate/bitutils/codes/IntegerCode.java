@@ -0,0 +1,237 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.AbstractBitOutputStream;
+import com.github.psygate.bitutils.bitstreams.BitOutputStream;
+import com.github.psygate.bitutils.bitstreams.ByteArrayBitInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * Base class for variable length integer codes. Every code consists of a unary prefix of zero bits terminated by a one
+ * bit, followed by a binary suffix. Since the streams are least significant bit first, the prefix length of a peeked
+ * window is its number of trailing zeros.
+ * <p>
+ * Codes of up to {@value #TABLE_BITS} bits are decoded with a single lookup in a table indexed by the next
+ * {@value #TABLE_BITS} bits. Longer codes are decoded from the peeked 64 bit window where possible.
+ */
+public abstract class IntegerCode {
+    static final int TABLE_BITS = 10;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+    // Entries hold the value above the length byte, 0 marks codes not in the table.
+    private static final int LENGTH_MASK = 0xFF;
+
+    private volatile int[] table;
+
+    /**
+     * @return The smallest value this code can represent.
+     */
+    public abstract long minValue();
+
+    /**
+     * @param value Value to encode.
+     * @return Length of the code for value in bits.
+     * @throws IllegalArgumentException If the value cannot be encoded.
+     */
+    public abstract long length(long value);
+
+    /**
+     * Writes the code for value.
+     *
+     * @param out   Stream to write to.
+     * @param value Value to encode.
+     * @throws IllegalArgumentException If the value cannot be encoded.
+     */
+    public abstract void write(AbstractBitOutputStream out, long value) throws IOException;
+
+    /**
+     * Decodes a code that is not in the lookup table.
+     *
+     * @param in     Stream to read from, positioned at the start of the code.
+     * @param window The next 64 bits of the stream, see {@link AbstractBitInputStream#peekBitsLong(int)}.
+     * @return Decoded value.
+     */
+    protected abstract long readSlow(AbstractBitInputStream in, long window) throws IOException;
+
+    /**
+     * Reads the next value.
+     *
+     * @param in Stream to read from.
+     * @return Decoded value.
+     * @throws IOException If the stream ends inside the code or the code is invalid.
+     */
+    public long read(AbstractBitInputStream in) throws IOException {
+        long window = in.peekBitsLong(Long.SIZE);
+        int entry = table()[(int) window & TABLE_MASK];
+
+        if (entry != 0) {
+            in.readBitsLong(entry & LENGTH_MASK);
+            return entry >>> Byte.SIZE;
+        } else {
+            return readSlow(in, window);
+        }
+    }
+
+    /**
+     * Writes all values from the array.
+     *
+     * @param out    Stream to write to.
+     * @param values Values to encode.
+     * @param off    Index of the first value.
+     * @param len    Amount of values.
+     */
+    public void write(AbstractBitOutputStream out, int[] values, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, values.length);
+        for (int i = off; i < off + len; i++) {
+            write(out, values[i]);
+        }
+    }
+
+    /**
+     * Reads len values into dst. Table codes are decoded straight from one peeked window until it is used up, so the
+     * stream is only touched once for several short codes.
+     *
+     * @param in  Stream to read from.
+     * @param dst Array to store the values in, values must fit into an int.
+     * @param off Index of the first value in dst.
+     * @param len Amount of values to read.
+     * @throws IOException If the stream ends early or a code is invalid.
+     */
+    public void read(AbstractBitInputStream in, int[] dst, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, dst.length);
+        int[] table = table();
+        int end = off + len;
+        int i = off;
+
+        while (i < end) {
+            long window = in.peekBitsLong(Long.SIZE);
+            int used = 0;
+
+            for (; i < end; i++) {
+                // Bits above the window read as zero after shifting, the entry is only valid if it fits the window.
+                int entry = table[(int) (window >>> used) & TABLE_MASK];
+                int length = entry & LENGTH_MASK;
+                if (entry == 0 || used + length > Long.SIZE) {
+                    break;
+                }
+                dst[i] = entry >>> Byte.SIZE;
+                used += length;
+            }
+
+            if (used > 0) {
+                in.readBitsLong(used);
+            } else {
+                dst[i++] = (int) readSlow(in, window);
+            }
+        }
+    }
+
+    private int[] table() {
+        int[] current = table;
+        if (current == null) {
+            current = buildTable();
+            table = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * Encodes every value with a code of at most {@value #TABLE_BITS} bits and fills all table slots starting with
+     * that code.
+     */
+    private int[] buildTable() {
+        int[] table = new int[1 << TABLE_BITS];
+
+        try {
+            for (long value = minValue(); length(value) <= TABLE_BITS; value++) {
+                int length = (int) length(value);
+                ByteArrayOutputStream base = new ByteArrayOutputStream();
+                BitOutputStream out = new BitOutputStream(base);
+                write(out, value);
+                out.close();
+                int code = new ByteArrayBitInputStream(base.toByteArray()).readBits(length);
+
+                for (int suffix = 0; suffix < 1 << (TABLE_BITS - length); suffix++) {
+                    table[code | suffix << length] = (int) value << Byte.SIZE | length;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return table;
+    }
+
+    /**
+     * Writes count zero bits followed by a one bit.
+     */
+    protected static void writeUnary(AbstractBitOutputStream out, long count) throws IOException {
+        for (; count >= Long.SIZE; count -= Long.SIZE) {
+            out.writeBitsLong(0, Long.SIZE);
+        }
+
+        out.writeBitsLong(1L << count, (int) count + 1);
+    }
+
+    /**
+     * Reads zero bits up to and including the terminating one bit.
+     *
+     * @param in     Stream to read from.
+     * @param window The next 64 bits of the stream.
+     * @return The amount of zero bits.
+     */
+    protected static long readUnary(AbstractBitInputStream in, long window) throws IOException {
+        long count = 0;
+
+        while (window == 0) {
+            // Fails at the end of the stream, peeked bits past the end are zero.
+            in.readBitsLong(Long.SIZE);
+            count += Long.SIZE;
+            window = in.peekBitsLong(Long.SIZE);
+        }
+
+        int zeros = Long.numberOfTrailingZeros(window);
+        in.readBitsLong(zeros + 1);
+        return count + zeros;
+    }
+
+    /**
+     * @return floor(log2(value)) for positive values.
+     */
+    protected static int log2(long value) {
+        return Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    }
+
+    protected static long mask(int amount) {
+        return amount == 0 ? 0 : 0xFFFFFFFFFFFFFFFFL >>> (Long.SIZE - amount);
+    }
+}
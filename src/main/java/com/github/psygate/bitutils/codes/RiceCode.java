@@ -0,0 +1,101 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.AbstractBitOutputStream;
+
+import java.io.IOException;
+
+/**
+ * Rice code with parameter k for non-negative values, the Golomb code for divisor 2^k. The quotient v / 2^k is written
+ * in unary, followed by the k low bits of the value.
+ */
+public class RiceCode extends IntegerCode {
+    private final int k;
+
+    /**
+     * @param k Amount of low bits written in binary, between 0 and 63.
+     */
+    public RiceCode(int k) {
+        if (k < 0 || k >= Long.SIZE) {
+            throw new IllegalArgumentException("Parameter out of bounds: " + k);
+        }
+        this.k = k;
+    }
+
+    public int getParameter() {
+        return k;
+    }
+
+    @Override
+    public long minValue() {
+        return 0;
+    }
+
+    @Override
+    public long length(long value) {
+        checkValue(value);
+        return (value >>> k) + 1 + k;
+    }
+
+    @Override
+    public void write(AbstractBitOutputStream out, long value) throws IOException {
+        checkValue(value);
+        long quotient = value >>> k;
+
+        if (quotient + 1 + k <= Long.SIZE) {
+            out.writeBitsLong(1L << quotient | (value & mask(k)) << (quotient + 1), (int) quotient + 1 + k);
+        } else {
+            writeUnary(out, quotient);
+            out.writeBitsLong(value, k);
+        }
+    }
+
+    @Override
+    protected long readSlow(AbstractBitInputStream in, long window) throws IOException {
+        int zeros = Long.numberOfTrailingZeros(window);
+
+        if (window != 0 && zeros + 1 + k <= Long.SIZE) {
+            long code = in.readBitsLong(zeros + 1 + k);
+            // The shift wraps around for a 64 bit code without suffix, the mask clears it.
+            return (long) zeros << k | (code >>> (zeros + 1)) & mask(k);
+        }
+
+        long quotient = readUnary(in, window);
+        if (quotient > Long.MAX_VALUE >>> k) {
+            throw new IOException("Invalid Rice code, quotient too large. (" + quotient + ")");
+        }
+
+        return quotient << k | in.readBitsLong(k);
+    }
+
+    private static void checkValue(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Rice code requires non-negative values. (" + value + ")");
+        }
+    }
+}
@@ -5,4 +5,5 @@ module com.github.psygate.bits {
     requires java.base;
     exports com.github.psygate.bitutils.bitstreams;
     exports com.github.psygate.bitutils.bitvectors;
+    exports com.github.psygate.bitutils.codes;
 }
\ No newline at end of file
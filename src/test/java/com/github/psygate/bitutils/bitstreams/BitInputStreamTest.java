@@ -4,7 +4,13 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
 
 /**
  * Created by psygate on 02.10.2017.
@@ -163,4 +169,204 @@ public class BitInputStreamTest {
             );
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReadMixedWidths() throws IOException {
+        Random rand = new Random(11);
+        byte[] data = new byte[4096];
+        rand.nextBytes(data);
+
+        for (int blockSize : new int[]{1, 3, 64, BitInputStream.DEFAULT_BLOCK_SIZE}) {
+            BitInputStream in = new BitInputStream(new TricklingInputStream(data), blockSize);
+            ByteArrayBitInputStream reference = new ByteArrayBitInputStream(data);
+            while (reference.availableBits() >= Long.SIZE) {
+                int width = rand.nextInt(Long.SIZE + 1);
+                Assert.assertEquals(reference.readBitsLong(width), in.readBitsLong(width));
+                width = rand.nextInt(Integer.SIZE + 1);
+                if (reference.availableBits() < width) {
+                    break;
+                }
+                Assert.assertEquals(reference.readBits(width), in.readBits(width));
+                Assert.assertEquals(reference.getPosition(), in.getPosition());
+            }
+
+            // A read past the end fails without consuming anything, even if it is wider than one refill.
+            int rest = (int) reference.availableBits();
+            try {
+                in.readBitsLong(rest + 1);
+                Assert.fail();
+            } catch (EOFException e) {
+                // Expected.
+            }
+            Assert.assertEquals(reference.getPosition(), in.getPosition());
+            Assert.assertEquals(reference.readBitsLong(rest), in.readBitsLong(rest));
+        }
+    }
+
+    @Test
+    public void testReadPastEnd() throws IOException {
+        BitInputStream in = new BitInputStream(new ByteArrayInputStream(new byte[]{(byte) 0xAB, (byte) 0xCD}), 1);
+        Assert.assertEquals(0xB, in.readBits(4));
+        try {
+            in.readBitsLong(13);
+            Assert.fail();
+        } catch (EOFException e) {
+            // Expected, nothing may have been consumed.
+        }
+        Assert.assertEquals(4, in.getPosition());
+        Assert.assertEquals(0xCDA, in.readBits(12));
+    }
+
+    @Test
+    public void testReadWidePastEnd() throws IOException {
+        for (int blockSize : new int[]{1, 3, BitInputStream.DEFAULT_BLOCK_SIZE}) {
+            BitInputStream in = new BitInputStream(new TricklingInputStream(new byte[7]), blockSize);
+            try {
+                in.readBitsLong(60);
+                Assert.fail();
+            } catch (EOFException e) {
+                // Expected, nothing may have been consumed.
+            }
+            Assert.assertEquals(0, in.getPosition());
+            Assert.assertEquals(0, in.readBitsLong(56));
+        }
+    }
+
+    @Test
+    public void testBulkRead() throws IOException {
+        Random rand = new Random(12);
+        byte[] data = new byte[1000];
+        rand.nextBytes(data);
+
+        BitInputStream in = new BitInputStream(new TricklingInputStream(data), 16);
+        byte[] read = new byte[data.length];
+        read[0] = (byte) in.readBits(Byte.SIZE);
+        in.readFully(read, 1, 9);
+        in.readFully(read, 10, 500);
+        read[510] = (byte) in.readBits(3);
+        read[510] |= (byte) (in.readBits(5) << 3);
+        in.readFully(read, 511, read.length - 511);
+
+        Assert.assertArrayEquals(data, read);
+        Assert.assertEquals(data.length * (long) Byte.SIZE, in.getPosition());
+        Assert.assertEquals(-1, in.read(read, 0, 1));
+    }
+
+    @Test
+    public void testBulkReadUnaligned() throws IOException {
+        byte[] data = new byte[]{(byte) 0x12, (byte) 0x34, (byte) 0x56};
+        BitInputStream in = new BitInputStream(new ByteArrayInputStream(data), 2);
+        Assert.assertEquals(0x2, in.readBits(4));
+        byte[] read = new byte[4];
+        Assert.assertEquals(2, in.read(read, 0, read.length));
+        Assert.assertEquals((byte) 0x41, read[0]);
+        Assert.assertEquals((byte) 0x63, read[1]);
+        Assert.assertEquals(0x5, in.readBits(4));
+    }
+
+    /**
+     * Returns at most one byte per read call, to exercise refilling.
+     */
+    private static class TricklingInputStream extends InputStream {
+        private final byte[] data;
+        private int index;
+
+        TricklingInputStream(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            return index < data.length ? data[index++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int value = read();
+            if (value == -1) {
+                return -1;
+            }
+            b[off] = (byte) value;
+            return 1;
+        }
+    }
+
+    @Test
+    public void testSkipBits() throws IOException {
+        Random rand = new Random(25);
+        byte[] data = new byte[10000];
+        rand.nextBytes(data);
+
+        for (int blockSize : new int[]{1, 16, BitInputStream.DEFAULT_BLOCK_SIZE}) {
+            BitInputStream in = new BitInputStream(new TricklingInputStream(data), blockSize);
+            ByteArrayBitInputStream reference = new ByteArrayBitInputStream(data);
+            while (reference.availableBits() > 2000) {
+                long skip = rand.nextInt(1000);
+                in.skipBits(skip);
+                reference.skipBits(skip);
+                Assert.assertEquals(reference.peekBits(Integer.SIZE), in.peekBits(Integer.SIZE));
+                Assert.assertEquals(reference.peekBitsLong(Long.SIZE), in.peekBitsLong(Long.SIZE));
+                Assert.assertEquals(reference.readBits(13), in.readBits(13));
+                Assert.assertEquals(reference.getPosition(), in.getPosition());
+            }
+
+            in.alignToByte();
+            reference.alignToByte();
+            Assert.assertEquals(reference.getPosition(), in.getPosition());
+            Assert.assertEquals(reference.skipBytes(Integer.MAX_VALUE), in.skipBytes(Integer.MAX_VALUE));
+            Assert.assertEquals(data.length * 8L, in.getPosition());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testSkipPastEnd() throws IOException {
+        BitInputStream in = new BitInputStream(new ByteArrayInputStream(new byte[20]), 4);
+        in.skipBits(161);
+    }
+
+    @Test
+    public void testSkipPastEndOfFile() throws IOException {
+        Path file = Files.createTempFile("bitstream", ".bin");
+        try {
+            Files.write(file, new byte[10]);
+            try (BitInputStream in = new BitInputStream(new FileInputStream(file.toFile()))) {
+                in.skipBits(800_000);
+                Assert.fail("Skipped past the end of the file.");
+            } catch (EOFException e) {
+                // Expected.
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testSkipWithinFile() throws IOException {
+        Path file = Files.createTempFile("bitstream", ".bin");
+        try {
+            byte[] data = new byte[10000];
+            new Random(26).nextBytes(data);
+            Files.write(file, data);
+            try (BitInputStream in = new BitInputStream(new FileInputStream(file.toFile()), 16)) {
+                ByteArrayBitInputStream reference = new ByteArrayBitInputStream(data);
+                in.skipBits(70_003);
+                reference.skipBits(70_003);
+                Assert.assertEquals(reference.readBitsLong(Long.SIZE), in.readBitsLong(Long.SIZE));
+                Assert.assertEquals(reference.getPosition(), in.getPosition());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testPeekAtEnd() throws IOException {
+        BitInputStream in = new BitInputStream(new ByteArrayInputStream(new byte[]{(byte) 0xFF}), 1);
+        Assert.assertEquals(0xFFL, in.peekBitsLong(Long.SIZE));
+        in.readBits(3);
+        Assert.assertEquals(0x1F, in.peekBits(Integer.SIZE));
+    }
+}
@@ -29,9 +29,11 @@ import com.github.psygate.bitutils.bitstreams.BitOutputStream;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Created by psygate on 02.10.2017.
@@ -113,6 +115,209 @@ public class BitOutputStreamTest {
         Assert.assertArrayEquals(new byte[]{(byte) 0xFA}, base.toByteArray());
     }
 
+    @Test
+    public void testWriteBitsLongPosition() throws IOException {
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base);
+
+        out.writeBitsLong(0x123456789ABCDEFL, 60);
+        Assert.assertEquals(60, out.getPosition());
+        out.writeBitsLong(-1L, Long.SIZE);
+        Assert.assertEquals(124, out.getPosition());
+        out.close();
+
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(base.toByteArray());
+        Assert.assertEquals(0x123456789ABCDEFL, in.readBitsLong(60));
+        Assert.assertEquals(-1L, in.readBitsLong(Long.SIZE));
+    }
+
+    @Test
+    public void testWriteMixedWidths() throws IOException {
+        for (int blockSize : new int[]{Long.BYTES, 13, BitOutputStream.DEFAULT_BLOCK_SIZE}) {
+            Random rand = new Random(blockSize);
+            int[] widths = new int[5000];
+            long[] values = new long[widths.length];
+            ByteArrayOutputStream base = new ByteArrayOutputStream();
+            BitOutputStream out = new BitOutputStream(base, blockSize);
+
+            long bits = 0;
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = rand.nextInt(Long.SIZE + 1);
+                values[i] = rand.nextLong();
+                if (widths[i] <= Integer.SIZE && rand.nextBoolean()) {
+                    out.writeBits((int) values[i], widths[i]);
+                } else {
+                    out.writeBitsLong(values[i], widths[i]);
+                }
+                bits += widths[i];
+                Assert.assertEquals(bits, out.getPosition());
+            }
+            out.close();
+
+            Assert.assertEquals((bits + Byte.SIZE - 1) / Byte.SIZE, base.size());
+            ByteArrayBitInputStream in = new ByteArrayBitInputStream(base.toByteArray());
+            for (int i = 0; i < widths.length; i++) {
+                long mask = widths[i] == 0 ? 0 : -1L >>> (Long.SIZE - widths[i]);
+                Assert.assertEquals("Mismatch @" + i, values[i] & mask, in.readBitsLong(widths[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteByteArray() throws IOException {
+        Random rand = new Random(12);
+        byte[] data = new byte[100];
+        rand.nextBytes(data);
+
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base, 16);
+        out.write(data, 0, 10);
+        out.write(data, 10, 40);
+        out.writeBits(0x5, 3);
+        out.write(data, 50, 50);
+        Assert.assertEquals(data.length * Byte.SIZE + 3, out.getPosition());
+        out.close();
+
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(base.toByteArray());
+        byte[] read = new byte[50];
+        in.readFully(read);
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 0, 50), read);
+        Assert.assertEquals(0x5, in.readBits(3));
+        in.readFully(read);
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 50, 100), read);
+    }
+
+    @Test
+    public void testPackedRoundTrip() throws IOException {
+        Random rand = new Random(20);
+        for (int width = 0; width <= Long.SIZE; width++) {
+            long[] longs = new long[rand.nextInt(200) + 1];
+            int[] ints = new int[longs.length];
+            for (int i = 0; i < longs.length; i++) {
+                longs[i] = rand.nextLong();
+                ints[i] = (int) longs[i];
+            }
+            int intWidth = Math.min(width, Integer.SIZE);
+
+            ByteArrayOutputStream base = new ByteArrayOutputStream();
+            BitOutputStream out = new BitOutputStream(base);
+            out.writeBits(0x5, 3);
+            out.writePacked(longs, 1, longs.length - 1, width);
+            out.writePacked(ints, 0, ints.length, intWidth);
+            Assert.assertEquals(3 + (longs.length - 1L) * width + ints.length * (long) intWidth, out.getPosition());
+            out.close();
+
+            long mask = width == 0 ? 0 : -1L >>> (Long.SIZE - width);
+            int intMask = intWidth == 0 ? 0 : -1 >>> (Integer.SIZE - intWidth);
+            AbstractBitInputStream[] inputs = {
+                    new ByteArrayBitInputStream(base.toByteArray()),
+                    new BitInputStream(new ByteArrayInputStream(base.toByteArray()))
+            };
+            for (AbstractBitInputStream in : inputs) {
+                Assert.assertEquals(0x5, in.readBits(3));
+                long[] longsRead = new long[longs.length];
+                in.readPacked(longsRead, 1, longs.length - 1, width);
+                int[] intsRead = new int[ints.length];
+                in.readPacked(intsRead, 0, ints.length, intWidth);
+
+                for (int i = 1; i < longs.length; i++) {
+                    Assert.assertEquals("Mismatch @" + width + "/" + i, longs[i] & mask, longsRead[i]);
+                }
+                for (int i = 0; i < ints.length; i++) {
+                    Assert.assertEquals("Mismatch @" + intWidth + "/" + i, ints[i] & intMask, intsRead[i]);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadPackedPastEnd() throws IOException {
+        new ByteArrayBitInputStream(new byte[4]).readPacked(new int[3], 0, 3, 11);
+    }
+
+    @Test
+    public void testVarIntEncoding() throws IOException {
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base);
+        out.writeVarInt(300);
+        out.writeVarInt(0);
+        out.writeZigZag(-1);
+        out.writeVarLong(-1L);
+        out.close();
+
+        byte[] expected = new byte[]{(byte) 0xAC, 0x02, 0x00, 0x01,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+        Assert.assertArrayEquals(expected, base.toByteArray());
+    }
+
+    @Test
+    public void testVarIntRoundTrip() throws IOException {
+        Random rand = new Random(23);
+        long[] longs = new long[2000];
+        int[] ints = new int[longs.length];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = rand.nextLong() >> rand.nextInt(Long.SIZE);
+            ints[i] = (int) longs[i];
+        }
+
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base);
+        out.writeBits(0x5, 3);
+        for (int i = 0; i < longs.length; i++) {
+            out.writeVarLong(longs[i]);
+            out.writeZigZag(longs[i]);
+            out.writeVarInt(ints[i]);
+        }
+        out.writeVarLong(longs, 0, longs.length);
+        out.writeZigZag(longs, 0, longs.length);
+        out.writeVarInt(ints, 0, ints.length);
+        out.writeZigZag(ints, 0, ints.length);
+        out.close();
+
+        AbstractBitInputStream[] inputs = {
+                new ByteArrayBitInputStream(base.toByteArray()),
+                new BitInputStream(new ByteArrayInputStream(base.toByteArray()), 5)
+        };
+        for (AbstractBitInputStream in : inputs) {
+            Assert.assertEquals(0x5, in.readBits(3));
+            for (int i = 0; i < longs.length; i++) {
+                Assert.assertEquals(longs[i], in.readVarLong());
+                Assert.assertEquals(longs[i], in.readZigZag());
+                Assert.assertEquals(ints[i], in.readVarInt());
+            }
+
+            long[] longsRead = new long[longs.length];
+            in.readVarLong(longsRead, 0, longs.length);
+            Assert.assertArrayEquals(longs, longsRead);
+            in.readZigZag(longsRead, 0, longs.length);
+            Assert.assertArrayEquals(longs, longsRead);
+
+            int[] intsRead = new int[ints.length];
+            in.readVarInt(intsRead, 0, ints.length);
+            Assert.assertArrayEquals(ints, intsRead);
+            in.readZigZag(intsRead, 0, ints.length);
+            Assert.assertArrayEquals(ints, intsRead);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testVarIntOverflow() throws IOException {
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base);
+        out.writeVarLong(1L << Integer.SIZE);
+        out.close();
+
+        new ByteArrayBitInputStream(base.toByteArray()).readVarInt();
+    }
+
+    @Test(expected = IOException.class)
+    public void testVarLongMalformed() throws IOException {
+        byte[] data = new byte[11];
+        Arrays.fill(data, (byte) 0xFF);
+        new ByteArrayBitInputStream(data).readVarLong();
+    }
+
     private static byte[] concat(byte[] bytes, int amount) {
         byte[] output = new byte[bytes.length * amount];
 
@@ -30,6 +30,8 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Created by psygate on 08.10.2017.
@@ -188,4 +190,93 @@ public class ByteArrayBitInputStreamTest {
             );
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReadMixedWidths() throws IOException {
+        Random rand = new Random(13);
+        byte[] data = new byte[1027];
+        rand.nextBytes(data);
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(data);
+
+        while (in.availableBits() > 0) {
+            int width = (int) Math.min(rand.nextInt(Long.SIZE + 1), in.availableBits());
+            long expected = 0;
+            for (int i = 0; i < width; i++) {
+                long bit = in.getPosition() + i;
+                expected |= (long) ((data[(int) (bit / 8)] >>> (bit % 8)) & 0x1) << i;
+            }
+
+            Assert.assertEquals("Mismatch @" + in.getPosition(), expected, in.readBitsLong(width));
+        }
+    }
+
+    @Test
+    public void testReadFullyUnaligned() throws IOException {
+        Random rand = new Random(14);
+        byte[] data = new byte[200];
+        rand.nextBytes(data);
+
+        for (int offset = 0; offset < Byte.SIZE; offset++) {
+            ByteArrayBitInputStream in = new ByteArrayBitInputStream(data);
+            in.readBits(offset);
+            byte[] read = new byte[data.length - 1];
+            in.readFully(read);
+
+            ByteArrayBitInputStream reference = new ByteArrayBitInputStream(data);
+            reference.readBits(offset);
+            for (int i = 0; i < read.length; i++) {
+                Assert.assertEquals("Mismatch @" + offset + "/" + i, (byte) reference.readBits(Byte.SIZE), read[i]);
+            }
+            Assert.assertEquals(reference.getPosition(), in.getPosition());
+        }
+    }
+
+    @Test
+    public void testDrain() throws IOException {
+        byte[] data = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(data);
+        in.readBits(Byte.SIZE);
+        Assert.assertArrayEquals(Arrays.copyOfRange(data, 1, data.length), in.drain());
+        Assert.assertEquals(0, in.availableBits());
+
+        in = new ByteArrayBitInputStream(data);
+        in.readBits(4);
+        byte[] drained = in.drain();
+        Assert.assertEquals(data.length, drained.length);
+        Assert.assertEquals((byte) 0x20, drained[0]);
+        Assert.assertEquals((byte) 0x0, drained[drained.length - 1]);
+    }
+
+    @Test
+    public void testBulkRead() throws IOException {
+        byte[] data = new byte[]{1, 2, 3};
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(data);
+        byte[] read = new byte[5];
+        Assert.assertEquals(3, in.read(read, 1, 4));
+        Assert.assertArrayEquals(new byte[]{0, 1, 2, 3, 0}, read);
+        Assert.assertEquals(-1, in.read(read, 0, 1));
+    }
+
+    @Test
+    public void testPeekAndSkip() throws IOException {
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(new byte[]{(byte) 0x12, (byte) 0x34, (byte) 0x56});
+        Assert.assertEquals(0x412, in.peekBits(12));
+        Assert.assertEquals(0, in.getPosition());
+        in.skipBits(4);
+        Assert.assertEquals(0x6341L, in.peekBitsLong(Long.SIZE) & 0xFFFFL);
+        Assert.assertEquals(0x56341L, in.peekBitsLong(Long.SIZE));
+        in.alignToByte();
+        Assert.assertEquals(8, in.getPosition());
+        in.alignToByte();
+        Assert.assertEquals(8, in.getPosition());
+        Assert.assertEquals(0x34, in.readBits(8));
+        Assert.assertEquals(1, in.skipBytes(5));
+        Assert.assertEquals(0, in.availableBits());
+    }
+
+    @Test(expected = IOException.class)
+    public void testSkipPastEnd() throws IOException {
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(new byte[2]);
+        in.skipBits(17);
+    }
+}
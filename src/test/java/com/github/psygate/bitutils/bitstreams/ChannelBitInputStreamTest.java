@@ -0,0 +1,175 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class ChannelBitInputStreamTest {
+    @Test
+    public void testReadMixedWidths() throws IOException {
+        Random rand = new Random(15);
+        byte[] data = new byte[4096];
+        rand.nextBytes(data);
+
+        for (int bufferSize : new int[]{1, 9, ChannelBitInputStream.DEFAULT_BUFFER_SIZE}) {
+            ChannelBitInputStream in = new ChannelBitInputStream(new TricklingChannel(data, 5), bufferSize);
+            ByteArrayBitInputStream reference = new ByteArrayBitInputStream(data);
+            while (reference.availableBits() >= Long.SIZE) {
+                int width = rand.nextInt(Long.SIZE + 1);
+                Assert.assertEquals(reference.readBitsLong(width), in.readBitsLong(width));
+                width = rand.nextInt(Integer.SIZE + 1);
+                if (reference.availableBits() < width) {
+                    break;
+                }
+                Assert.assertEquals(reference.readBits(width), in.readBits(width));
+                Assert.assertEquals(reference.getPosition(), in.getPosition());
+            }
+
+            // A read past the end fails without consuming anything, even if it is wider than one refill.
+            int rest = (int) reference.availableBits();
+            try {
+                in.readBitsLong(rest + 1);
+                Assert.fail();
+            } catch (EOFException e) {
+                // Expected.
+            }
+            Assert.assertEquals(reference.getPosition(), in.getPosition());
+            Assert.assertEquals(reference.readBitsLong(rest), in.readBitsLong(rest));
+        }
+    }
+
+    @Test
+    public void testReadPastEnd() throws IOException {
+        ChannelBitInputStream in = new ChannelBitInputStream(Channels.newChannel(new ByteArrayInputStream(new byte[]{(byte) 0xAB, (byte) 0xCD})));
+        Assert.assertEquals(0xB, in.readBits(4));
+        try {
+            in.readBitsLong(13);
+            Assert.fail();
+        } catch (EOFException e) {
+            // Expected, nothing may have been consumed.
+        }
+        Assert.assertEquals(4, in.getPosition());
+        Assert.assertEquals(0xCDA, in.readBits(12));
+    }
+
+    @Test
+    public void testBulkRead() throws IOException {
+        Random rand = new Random(16);
+        byte[] data = new byte[1000];
+        rand.nextBytes(data);
+
+        ChannelBitInputStream in = new ChannelBitInputStream(new TricklingChannel(data, 7), 16);
+        byte[] read = new byte[data.length];
+        read[0] = (byte) in.readBits(Byte.SIZE);
+        in.readFully(read, 1, 9);
+        in.readFully(read, 10, 500);
+        read[510] = (byte) in.readBits(3);
+        read[510] |= (byte) (in.readBits(5) << 3);
+        in.readFully(read, 511, read.length - 511);
+
+        Assert.assertArrayEquals(data, read);
+        Assert.assertEquals(data.length * (long) Byte.SIZE, in.getPosition());
+        Assert.assertEquals(-1, in.read(read, 0, 1));
+    }
+
+    /**
+     * Returns at most a few bytes per read call, to exercise refilling.
+     */
+    private static class TricklingChannel implements ReadableByteChannel {
+        private final byte[] data;
+        private final int chunk;
+        private int index;
+
+        TricklingChannel(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (index == data.length) {
+                return -1;
+            }
+            int amount = Math.min(Math.min(chunk, dst.remaining()), data.length - index);
+            dst.put(data, index, amount);
+            index += amount;
+            return amount;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+    @Test
+    public void testSkipBitsSeekable() throws IOException {
+        Random rand = new Random(26);
+        byte[] data = new byte[10000];
+        rand.nextBytes(data);
+        Path file = Files.createTempFile("channel", ".bin");
+        Files.write(file, data);
+
+        try (ChannelBitInputStream in = new ChannelBitInputStream(FileChannel.open(file), 64)) {
+            ByteArrayBitInputStream reference = new ByteArrayBitInputStream(data);
+            while (reference.availableBits() > 2000) {
+                long skip = rand.nextInt(1500);
+                in.skipBits(skip);
+                reference.skipBits(skip);
+                Assert.assertEquals(reference.peekBitsLong(Long.SIZE), in.peekBitsLong(Long.SIZE));
+                Assert.assertEquals(reference.readBits(13), in.readBits(13));
+                Assert.assertEquals(reference.getPosition(), in.getPosition());
+            }
+
+            Assert.assertEquals(reference.availableBits() / 8, in.skip(Long.MAX_VALUE));
+            try {
+                in.skipBits(1000);
+                Assert.fail();
+            } catch (EOFException e) {
+                // Expected.
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ChannelBitOutputStreamTest {
+    @Test
+    public void testWriteMixedWidths() throws IOException {
+        for (int bufferSize : new int[]{Long.BYTES, 13, ChannelBitOutputStream.DEFAULT_BUFFER_SIZE}) {
+            Random rand = new Random(bufferSize);
+            int[] widths = new int[5000];
+            long[] values = new long[widths.length];
+            ByteArrayOutputStream base = new ByteArrayOutputStream();
+            ChannelBitOutputStream out = new ChannelBitOutputStream(Channels.newChannel(base), bufferSize);
+
+            long bits = 0;
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = rand.nextInt(Long.SIZE + 1);
+                values[i] = rand.nextLong();
+                out.writeBitsLong(values[i], widths[i]);
+                bits += widths[i];
+                Assert.assertEquals(bits, out.getPosition());
+            }
+            out.close();
+
+            Assert.assertEquals((bits + Byte.SIZE - 1) / Byte.SIZE, base.size());
+            ByteArrayBitInputStream in = new ByteArrayBitInputStream(base.toByteArray());
+            for (int i = 0; i < widths.length; i++) {
+                long mask = widths[i] == 0 ? 0 : -1L >>> (Long.SIZE - widths[i]);
+                Assert.assertEquals("Mismatch @" + i, values[i] & mask, in.readBitsLong(widths[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testFileRoundTrip() throws IOException {
+        Random rand = new Random(17);
+        byte[] data = new byte[20000];
+        rand.nextBytes(data);
+        Path file = Files.createTempFile("bits", ".bin");
+
+        try {
+            try (ChannelBitOutputStream out = new ChannelBitOutputStream(FileChannel.open(file, StandardOpenOption.WRITE), 64)) {
+                out.writeBits(0x5, 3);
+                out.write(data);
+                out.writeBitsLong(-1L, 61);
+                out.write(data, 0, 100);
+            }
+
+            try (ChannelBitInputStream in = new ChannelBitInputStream(FileChannel.open(file), 64)) {
+                Assert.assertEquals(0x5, in.readBits(3));
+                byte[] read = new byte[data.length];
+                in.readFully(read);
+                Assert.assertArrayEquals(data, read);
+                Assert.assertEquals(-1L >>> 3, in.readBitsLong(61));
+                read = new byte[100];
+                in.readFully(read);
+                Assert.assertArrayEquals(Arrays.copyOf(data, 100), read);
+                Assert.assertEquals(3 + 61 + (data.length + 100) * 8L, in.getPosition());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitstreams;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class MappedBitInputStreamTest {
+    @Test
+    public void testRandomAccess() throws IOException {
+        Random rand = new Random(18);
+        byte[] data = new byte[3001];
+        rand.nextBytes(data);
+        Path file = write(data);
+
+        try {
+            for (int segmentSize : new int[]{1, 7, 64, MappedBitInputStream.DEFAULT_SEGMENT_SIZE}) {
+                try (MappedBitInputStream in = new MappedBitInputStream(file, segmentSize)) {
+                    ByteArrayBitInputStream reference = new ByteArrayBitInputStream(data);
+                    Assert.assertEquals(data.length, in.length());
+
+                    for (int i = 0; i < 2000; i++) {
+                        long position = (long) (rand.nextDouble() * data.length * 8);
+                        int width = (int) Math.min(rand.nextInt(Long.SIZE + 1), data.length * 8L - position);
+                        in.setPosition(position);
+                        reference.setPosition(position);
+                        Assert.assertEquals("Mismatch @" + position + "/" + width, reference.readBitsLong(width), in.readBitsLong(width));
+                        Assert.assertEquals(reference.getPosition(), in.getPosition());
+                    }
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReadFully() throws IOException {
+        Random rand = new Random(19);
+        byte[] data = new byte[500];
+        rand.nextBytes(data);
+        Path file = write(data);
+
+        try (MappedBitInputStream in = new MappedBitInputStream(file, 16)) {
+            byte[] read = new byte[data.length];
+            in.readFully(read);
+            Assert.assertArrayEquals(data, read);
+            Assert.assertEquals(-1, in.read(read, 0, 1));
+
+            in.setPosition(3);
+            read = new byte[data.length - 1];
+            in.readFully(read);
+            ByteArrayBitInputStream reference = new ByteArrayBitInputStream(data);
+            reference.setPosition(3);
+            byte[] expected = new byte[read.length];
+            reference.readFully(expected);
+            Assert.assertArrayEquals(expected, read);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMarkReset() throws IOException {
+        byte[] data = new byte[]{(byte) 0x12, (byte) 0x34, (byte) 0x56, (byte) 0x78};
+        Path file = write(data);
+
+        try (MappedBitInputStream in = new MappedBitInputStream(file, 1)) {
+            in.readBits(4);
+            in.mark();
+            Assert.assertEquals(0x7856341, in.readBits(28));
+            in.reset();
+            Assert.assertEquals(4, in.getPosition());
+            Assert.assertEquals(0x41, in.readBits(8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadPastEnd() throws IOException {
+        Path file = write(new byte[3]);
+
+        try (MappedBitInputStream in = new MappedBitInputStream(file, 2)) {
+            in.readBits(20);
+            in.readBits(5);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Path write(byte[] data) throws IOException {
+        Path file = Files.createTempFile("mapped", ".bin");
+        Files.write(file, data);
+        return file;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AdaptiveBitSet} across all of its representations.
+ */
+public class AdaptiveBitSetTest {
+    private static int[] toArray(TreeSet<Integer> set) {
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static BitVector everyOther(int size) {
+        BitVector vector = new BitVector(size);
+        for (int i = 0; i < size; i += 2) {
+            vector.setBit(i, true);
+        }
+        return vector;
+    }
+
+    private static AdaptiveBitSet randomSet(Random rand, TreeSet<Integer> reference) {
+        AdaptiveBitSet set = new AdaptiveBitSet();
+
+        switch (rand.nextInt(3)) {
+            case 0:
+                for (int i = 0; i < 50; i++) {
+                    int index = rand.nextInt(1 << 24);
+                    set.set(index);
+                    reference.add(index);
+                }
+                break;
+            case 1:
+                for (int i = 0; i < 5000; i++) {
+                    int index = rand.nextInt(20000);
+                    set.set(index);
+                    reference.add(index);
+                }
+                break;
+            default:
+                for (int run = 0; run < 5; run++) {
+                    int start = rand.nextInt(1 << 20);
+                    int end = start + rand.nextInt(100000);
+                    set.set(start, end);
+                    for (int index = start; index < end; index++) {
+                        reference.add(index);
+                    }
+                }
+                break;
+        }
+
+        return set;
+    }
+
+    @Test
+    public void emptySet() {
+        AdaptiveBitSet set = new AdaptiveBitSet();
+
+        assertTrue(set.isEmpty());
+        assertEquals(AdaptiveBitSet.Representation.SORTED_ARRAY, set.representation());
+        assertEquals(-1, set.nextSetBit(0));
+        assertEquals(-1, set.lastSetBit());
+        assertEquals(0, set.toBitVector().size());
+        assertEquals("AdaptiveBitSet{}", set.toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void negativeIndex() {
+        new AdaptiveBitSet().set(-1);
+    }
+
+    @Test
+    public void sparseStaysSorted() {
+        AdaptiveBitSet set = new AdaptiveBitSet();
+        for (int i = 0; i < 1000; i++) {
+            set.set(i * 1000);
+        }
+
+        assertEquals(AdaptiveBitSet.Representation.SORTED_ARRAY, set.representation());
+        assertEquals(1000, set.cardinality());
+        assertTrue(set.get(5000));
+        assertFalse(set.get(5001));
+        assertEquals(6000, set.nextSetBit(5001));
+    }
+
+    @Test
+    public void promotesAndDemotes() {
+        Random rand = BitVectorTest.random();
+        AdaptiveBitSet set = new AdaptiveBitSet();
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            int index = rand.nextInt(40000);
+            set.set(index);
+            reference.add(index);
+        }
+
+        assertEquals(AdaptiveBitSet.Representation.DENSE, set.representation());
+        assertArrayEquals(toArray(reference), set.toArray());
+
+        set.clear(0, 39990);
+        reference.subSet(0, 39990).clear();
+        assertEquals(AdaptiveBitSet.Representation.SORTED_ARRAY, set.representation());
+        assertArrayEquals(toArray(reference), set.toArray());
+
+        AdaptiveBitSet runs = new AdaptiveBitSet();
+        for (int i = 0; i < 100000; i++) {
+            runs.set(i);
+        }
+        assertEquals(AdaptiveBitSet.Representation.RUNS, runs.representation());
+        runs.clear(500).clear(0).clear(99999).set(100001);
+        assertEquals(99998, runs.cardinality());
+        assertFalse(runs.get(500));
+        assertTrue(runs.get(501));
+        assertEquals(501, runs.nextSetBit(500));
+        assertEquals(100001, runs.lastSetBit());
+
+        runs.clear();
+        assertTrue(runs.isEmpty());
+        assertEquals(AdaptiveBitSet.Representation.SORTED_ARRAY, runs.representation());
+    }
+
+    @Test
+    public void rangeClearReleasesStorage() {
+        AdaptiveBitSet full = everyOtherBit(1_000_000);
+        assertEquals(AdaptiveBitSet.Representation.DENSE, full.representation());
+        full.clear(0, 1_000_000);
+        assertTrue(full.isEmpty());
+        assertEquals(AdaptiveBitSet.Representation.SORTED_ARRAY, full.representation());
+        assertTrue(full.storageBytes() < 1000);
+
+        AdaptiveBitSet tail = everyOtherBit(1_000_000);
+        tail.clear(1000, 1_000_000);
+        assertEquals(500, tail.cardinality());
+        assertEquals(998, tail.lastSetBit());
+        assertEquals(AdaptiveBitSet.Representation.DENSE, tail.representation());
+        assertEquals((long) Long.BYTES * BitVector.wordCount(1000), tail.storageBytes());
+        assertArrayEquals(everyOtherBit(1000).toArray(), tail.toArray());
+
+        AdaptiveBitSet optimized = everyOtherBit(1_000_000);
+        optimized.clear(0, 1_000_000).set(3);
+        assertTrue(optimized.optimize().storageBytes() < 1000);
+        assertArrayEquals(new int[]{3}, optimized.toArray());
+    }
+
+    private static AdaptiveBitSet everyOtherBit(int to) {
+        AdaptiveBitSet set = new AdaptiveBitSet();
+        for (int i = 0; i < to; i += 2) {
+            set.set(i);
+        }
+
+        return set;
+    }
+
+    @Test
+    public void rangeOperations() {
+        AdaptiveBitSet set = AdaptiveBitSet.of(1, 5, 1000);
+        set.set(3, 10);
+
+        assertArrayEquals(new int[]{1, 3, 4, 5, 6, 7, 8, 9, 1000}, set.toArray());
+
+        set.clear(4, 9);
+        assertArrayEquals(new int[]{1, 3, 9, 1000}, set.toArray());
+    }
+
+    @Test
+    public void logicalOperations() {
+        Random rand = BitVectorTest.random();
+
+        for (int round = 0; round < 30; round++) {
+            TreeSet<Integer> a = new TreeSet<>();
+            TreeSet<Integer> b = new TreeSet<>();
+            AdaptiveBitSet x = randomSet(rand, a);
+            AdaptiveBitSet y = randomSet(rand, b);
+
+            TreeSet<Integer> or = new TreeSet<>(a);
+            or.addAll(b);
+            TreeSet<Integer> and = new TreeSet<>(a);
+            and.retainAll(b);
+            TreeSet<Integer> andNot = new TreeSet<>(a);
+            andNot.removeAll(b);
+            TreeSet<Integer> xor = new TreeSet<>(or);
+            xor.removeAll(and);
+
+            assertArrayEquals(toArray(or), x.or(y).toArray());
+            assertArrayEquals(toArray(and), x.and(y).toArray());
+            assertArrayEquals(toArray(andNot), x.andNot(y).toArray());
+            assertArrayEquals(toArray(xor), x.xor(y).toArray());
+            assertEquals(xor.size(), x.xor(y).cardinality());
+        }
+    }
+
+    @Test
+    public void equalsAcrossRepresentations() {
+        BitVector vector = new BitVector(10000);
+        for (int i = 0; i < 10000; i += 3) {
+            vector.setBit(i, true);
+        }
+
+        AdaptiveBitSet dense = AdaptiveBitSet.of(vector);
+        AdaptiveBitSet sorted = new AdaptiveBitSet();
+        for (int i = 0; i < 10000; i += 3) {
+            sorted.set(i);
+        }
+
+        assertEquals(AdaptiveBitSet.Representation.DENSE, dense.representation());
+        assertEquals(dense, sorted);
+        assertEquals(dense.hashCode(), sorted.hashCode());
+        assertEquals(vector.size(), dense.toBitVector().size());
+        assertEquals(dense, AdaptiveBitSet.of(dense.toBitVector()));
+    }
+
+    @Test
+    public void denseDemotesBeforeGrowing() {
+        AdaptiveBitSet set = AdaptiveBitSet.of(everyOther(4400));
+        assertEquals(AdaptiveBitSet.Representation.DENSE, set.representation());
+
+        set.set(100_000_000);
+        assertNotEquals(AdaptiveBitSet.Representation.DENSE, set.representation());
+        assertEquals(2201, set.cardinality());
+        assertEquals(100_000_000, set.lastSetBit());
+    }
+
+    @Test
+    public void topIndex() {
+        AdaptiveBitSet single = AdaptiveBitSet.of(everyOther(4400));
+        assertEquals(AdaptiveBitSet.Representation.DENSE, single.representation());
+        single.set(Integer.MAX_VALUE);
+        assertNotEquals(AdaptiveBitSet.Representation.DENSE, single.representation());
+        assertTrue(single.get(Integer.MAX_VALUE));
+        assertEquals(2201, single.cardinality());
+
+        AdaptiveBitSet range = AdaptiveBitSet.of(everyOther(4400));
+        range.set(Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+        assertNotEquals(AdaptiveBitSet.Representation.DENSE, range.representation());
+        assertTrue(range.get(Integer.MAX_VALUE - 1));
+        assertEquals(2201, range.cardinality());
+
+        assertEquals(single, AdaptiveBitSet.of(everyOther(4400)).or(single));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void toBitVectorWithTopIndex() {
+        new AdaptiveBitSet().set(Integer.MAX_VALUE).toBitVector();
+    }
+}
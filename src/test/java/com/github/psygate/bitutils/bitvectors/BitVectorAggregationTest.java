@@ -0,0 +1,123 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link BitVectorAggregation} against pairwise folding.
+ */
+public class BitVectorAggregationTest {
+    private static BitVector[] randomVectors(Random rand, int count, int size) {
+        BitVector[] vectors = new BitVector[count];
+        for (int v = 0; v < count; v++) {
+            vectors[v] = new BitVector(size);
+            for (int i = 0; i < size; i++) {
+                vectors[v].setBit(i, rand.nextInt(4) != 0);
+            }
+        }
+
+        return vectors;
+    }
+
+    private static BitVector countAtLeast(int threshold, BitVector... vectors) {
+        BitVector result = new BitVector(vectors[0].size());
+        for (int i = 0; i < result.size(); i++) {
+            int count = 0;
+            for (BitVector vector : vectors) {
+                count += vector.getBit(i);
+            }
+            result.setBit(i, count >= threshold);
+        }
+
+        return result;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noVectors() {
+        BitVectorAggregation.or();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMismatch() {
+        BitVectorAggregation.and(new BitVector(10), new BitVector(11));
+    }
+
+    @Test
+    public void matchesPairwiseFolding() {
+        Random rand = BitVectorTest.random();
+        int[] sizes = {0, 1, 63, 64, 65, 4097, 10000};
+
+        for (int size : sizes) {
+            for (int count = 1; count <= 9; count += 4) {
+                BitVector[] vectors = randomVectors(rand, count, size);
+                BitVector or = vectors[0].copy();
+                BitVector and = vectors[0].copy();
+                BitVector xor = vectors[0].copy();
+                for (int v = 1; v < count; v++) {
+                    or.orInPlace(vectors[v]);
+                    and.andInPlace(vectors[v]);
+                    xor.xorInPlace(vectors[v]);
+                }
+
+                assertEquals(or, BitVectorAggregation.or(vectors));
+                assertEquals(and, BitVectorAggregation.and(vectors));
+                assertEquals(xor, BitVectorAggregation.xor(vectors));
+
+                for (int threshold = -1; threshold <= count + 1; threshold++) {
+                    assertEquals(countAtLeast(threshold, vectors), BitVectorAggregation.atLeast(threshold, vectors));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void ignoresBitsBeyondSize() {
+        BitVector a = BitVector.of(-1L).range(0, 10);
+        BitVector b = BitVector.of(-1L).range(0, 10);
+
+        assertEquals(BitVector.of(-1, 10), BitVectorAggregation.and(a, b));
+        assertEquals(10, BitVectorAggregation.atLeast(0, a, b).size());
+        assertEquals(BitVector.of(-1, 10), BitVectorAggregation.atLeast(0, a, b));
+        assertEquals(new BitVector(10), BitVectorAggregation.xor(a, b));
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        Random rand = BitVectorTest.random();
+        int size = 3 * BitVectorAggregation.PARALLEL_CHUNK_WORDS * Long.SIZE + 17;
+        BitVector[] vectors = randomVectors(rand, 5, size);
+
+        assertEquals(BitVectorAggregation.or(vectors), BitVectorAggregation.parallelOr(vectors));
+        assertEquals(BitVectorAggregation.and(vectors), BitVectorAggregation.parallelAnd(vectors));
+        assertEquals(BitVectorAggregation.xor(vectors), BitVectorAggregation.parallelXor(vectors));
+        assertEquals(BitVectorAggregation.atLeast(3, vectors), BitVectorAggregation.parallelAtLeast(3, vectors));
+    }
+}
@@ -3,7 +3,9 @@ package com.github.psygate.bitutils.bitvectors;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 
 import static com.github.psygate.bitutils.bitvectors.ArrayUtils.*;
 import static org.junit.Assert.*;
@@ -1392,6 +1394,424 @@ public class BitVectorTest {
         }
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void andThrows() {
+        BitVector.of(new boolean[3]).and(BitVector.of(new boolean[4]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void orInPlaceThrows() {
+        BitVector.of(new boolean[3]).orInPlace(BitVector.of(new boolean[4]));
+    }
+
+    @Test
+    public void logicalOperations() {
+        Random rand = random();
+
+        for (int size = 0; size < Long.SIZE * 4; size++) {
+            boolean[] a = randomArray(rand, size);
+            boolean[] b = randomArray(rand, size);
+            boolean[] or = new boolean[size], and = new boolean[size], xor = new boolean[size], andNot = new boolean[size];
+
+            for (int i = 0; i < size; i++) {
+                or[i] = a[i] | b[i];
+                and[i] = a[i] & b[i];
+                xor[i] = a[i] ^ b[i];
+                andNot[i] = a[i] & !b[i];
+            }
+
+            BitVector va = BitVector.of(a);
+            BitVector vb = BitVector.of(b);
+
+            assertEquals(BitVector.of(or), va.or(vb));
+            assertEquals(BitVector.of(and), va.and(vb));
+            assertEquals(BitVector.of(xor), va.xor(vb));
+            assertEquals(BitVector.of(andNot), va.andNot(vb));
+            assertEquals(BitVector.of(not(a)), va.not());
+            assertEquals(BitVector.of(a), va);
+
+            assertEquals(BitVector.of(or), BitVector.of(a).orInPlace(vb));
+            assertEquals(BitVector.of(and), BitVector.of(a).andInPlace(vb));
+            assertEquals(BitVector.of(xor), BitVector.of(a).xorInPlace(vb));
+            assertEquals(BitVector.of(andNot), BitVector.of(a).andNotInPlace(vb));
+
+            BitVector inPlace = BitVector.of(a);
+            assertSame(inPlace, inPlace.orInPlace(vb));
+        }
+    }
+
+    @Test
+    public void logicalOperationsMaskTail() {
+        BitVector value = BitVector.of(0xFFFF_FFFF, 7);
+        BitVector zero = new BitVector(7);
+
+        assertEquals(BitVector.of(0x7F, 7), value.or(zero));
+        assertEquals(BitVector.of(0x7F, 7), value.xor(zero));
+        assertEquals(new BitVector(7), value.not());
+        assertEquals(BitVector.of(0x7F, 7).writeBit(true), value.or(zero).writeBit(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withCapacityThrows() {
+        BitVector.withCapacity(-1);
+    }
+
+    @Test
+    public void capacity() {
+        BitVector vec = BitVector.withCapacity(1000);
+        assertEquals(0, vec.size());
+        assertTrue(vec.capacity() >= 1000);
+
+        int capacity = vec.capacity();
+        boolean[] reference = striped(1000);
+        vec.write(reference);
+        assertEquals(capacity, vec.capacity());
+        assertArrayEquals(reference, vec.toBooleanArray());
+
+        vec.ensureCapacity(5000);
+        assertTrue(vec.capacity() >= 5000);
+        assertArrayEquals(reference, vec.toBooleanArray());
+
+        vec.trimToSize();
+        assertEquals(Long.SIZE * arraySize(1000, Long.SIZE), vec.capacity());
+        assertArrayEquals(reference, vec.toBooleanArray());
+
+        BitVector empty = BitVector.withCapacity(128);
+        empty.trimToSize();
+        assertEquals(0, empty.capacity());
+        assertEquals(BitVector.of(true), empty.writeBit(true));
+    }
+
+    @Test
+    public void capacityGrowsGeometrically() {
+        BitVector vec = new BitVector();
+        int reallocations = 0;
+        int capacity = vec.capacity();
+
+        for (int i = 0; i < Long.SIZE * 4096; i++) {
+            vec.writeBit(i % 3 == 0);
+            if (vec.capacity() != capacity) {
+                capacity = vec.capacity();
+                reallocations++;
+            }
+        }
+
+        assertTrue("Too many reallocations: " + reallocations, reallocations < 32);
+
+        for (int i = 0; i < vec.size(); i++) {
+            assertEquals(i % 3 == 0, vec.get(i));
+        }
+    }
+
+    @Test
+    public void getBitsAcrossWords() {
+        Random rand = random();
+        boolean[] reference = randomArray(rand, Long.SIZE * 4);
+        BitVector vec = BitVector.of(reference);
+
+        for (int position = 0; position < Long.SIZE * 2; position++) {
+            for (int amount = 0; amount <= Long.SIZE; amount++) {
+                long expected = 0;
+                for (int i = 0; i < amount; i++) {
+                    expected |= (reference[position + i] ? 1L : 0L) << i;
+                }
+
+                assertEquals(expected, vec.getBitsLong(position, amount));
+                if (amount <= Integer.SIZE) {
+                    assertEquals((int) expected, vec.getBits(position, amount));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void writeFieldsAcrossWords() {
+        Random rand = random();
+
+        for (int i = 0; i < 128; i++) {
+            BitVector vec = BitVector.of(not(new boolean[rand.nextInt(Long.SIZE * 2)]));
+            vec.trimToSize();
+            boolean[] reference = vec.toBooleanArray();
+
+            for (int j = 0; j < 16; j++) {
+                long value = rand.nextLong();
+                int amount = rand.nextInt(Long.SIZE + 1);
+                reference = concat(reference, Arrays.copyOf(longAsBooleanArray(value), amount));
+                vec.writeBits(value, amount);
+            }
+
+            assertArrayEquals(reference, vec.toBooleanArray());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void setBitsThrows() {
+        new BitVector(Long.SIZE).setBits(Long.SIZE - 4, 0, 5);
+    }
+
+    @Test
+    public void setBytesTest() {
+        byte[] data = byteArray(0x12, 0x34, 0x56, 0x78, 0x9A);
+
+        for (int index = 0; index < Long.SIZE * 2; index++) {
+            BitVector vec = BitVector.of(trueArray(Long.SIZE * 3));
+            vec.setBytes(index, data);
+            assertArrayEquals(data, vec.getBytes(index, data.length));
+            assertEquals(BitVector.of(trueArray(index)), vec.subVector(0, index));
+
+            int end = index + data.length * Byte.SIZE;
+            assertEquals(BitVector.of(trueArray(vec.size() - end)), vec.subVector(end));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void writeVectorThrows() {
+        new BitVector().write(new BitVector(Long.SIZE), 1, Long.SIZE);
+    }
+
+    @Test
+    public void nextAndPreviousBits() {
+        assertEquals(-1, BitVector.emptyVector().nextSetBit());
+        assertEquals(-1, BitVector.emptyVector().nextUnsetBit());
+        assertEquals(-1, BitVector.emptyVector().previousSetBit());
+        assertEquals(-1, BitVector.emptyVector().previousUnsetBit());
+        assertEquals(-1, BitVector.of(0xFFFF_FFFF, 7).nextUnsetBit());
+        assertEquals(0, BitVector.of(0xFFFF_FF00, 7).nextUnsetBit());
+        assertEquals(-1, BitVector.of(0xFFFF_FF00, 7).nextSetBit());
+        assertEquals(-1, BitVector.of(0xFFFF_FF00, 7).previousSetBit(100));
+
+        Random rand = random();
+        for (int density = 1; density < 64; density *= 2) {
+            int size = 1 + rand.nextInt(Long.SIZE * 8);
+            boolean[] reference = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                reference[i] = rand.nextInt(density * 8) < density;
+            }
+
+            BitVector vec = BitVector.of(reference);
+            BitVector inverse = BitVector.of(not(reference));
+
+            for (int index = 0; index <= size; index++) {
+                int nextSet = -1, nextUnset = -1;
+                for (int i = index; i < size; i++) {
+                    if (reference[i] && nextSet == -1) {
+                        nextSet = i;
+                    } else if (!reference[i] && nextUnset == -1) {
+                        nextUnset = i;
+                    }
+                }
+
+                int previousSet = -1, previousUnset = -1;
+                for (int i = Math.min(index, size - 1); i >= 0; i--) {
+                    if (reference[i] && previousSet == -1) {
+                        previousSet = i;
+                    } else if (!reference[i] && previousUnset == -1) {
+                        previousUnset = i;
+                    }
+                }
+
+                assertEquals(nextSet, vec.nextSetBit(index));
+                assertEquals(nextUnset, vec.nextUnsetBit(index));
+                assertEquals(nextSet, inverse.nextUnsetBit(index));
+                assertEquals(previousSet, vec.previousSetBit(index));
+                assertEquals(previousUnset, vec.previousUnsetBit(index));
+                assertEquals(previousSet, inverse.previousUnsetBit(index));
+            }
+
+            assertEquals(-1, vec.previousSetBit(-1));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void nextSetBitThrows() {
+        BitVector.of(true).nextSetBit(-1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void previousSetBitThrows() {
+        BitVector.of(true).previousSetBit(-2);
+    }
+
+    @Test
+    public void searchAgainstStrings() {
+        Random rand = random();
+        int[] patternSizes = {1, 3, 13, 32, 63, 64, 65, 100, 257};
+
+        for (int patternSize : patternSizes) {
+            for (int i = 0; i < 32; i++) {
+                boolean[] text = randomArray(rand, rand.nextInt(Long.SIZE * 12));
+                boolean[] pattern = randomArray(rand, patternSize);
+
+                if (text.length > patternSize && rand.nextBoolean()) {
+                    int position = rand.nextInt(text.length - patternSize);
+                    System.arraycopy(pattern, 0, text, position, patternSize);
+                }
+
+                String textStr = binaryString(text);
+                String patternStr = binaryString(pattern);
+                BitVector textVec = BitVector.of(text);
+                BitVector patternVec = BitVector.of(pattern);
+
+                assertEquals(textStr.indexOf(patternStr), textVec.indexOf(patternVec));
+                assertEquals(textStr.lastIndexOf(patternStr), textVec.lastIndexOf(patternVec));
+
+                int from = text.length == 0 ? 0 : rand.nextInt(text.length);
+                assertEquals(textStr.indexOf(patternStr, from), textVec.indexOf(from, patternVec));
+                assertEquals(textStr.lastIndexOf(patternStr, from), textVec.lastIndexOf(from, patternVec));
+
+                int count = 0;
+                for (int found = textStr.indexOf(patternStr); found != -1; found = textStr.indexOf(patternStr, found + 1)) {
+                    assertEquals(found, textVec.indexOfAll(patternVec)[count++]);
+                }
+                assertEquals(count, textVec.indexOfAll(patternVec).length);
+
+                assertEquals(BitVector.ofBinaryString(textStr.replace(patternStr, "01")), textVec.replaceAll(patternVec, BitVector.ofBinaryString("01")));
+            }
+        }
+    }
+
+    @Test
+    public void searchRepetitivePatterns() {
+        BitVector text = BitVector.of(new boolean[Long.SIZE * 10]);
+        text.setBit(Long.SIZE * 7 + 5, true);
+
+        for (int size = 1; size < Long.SIZE * 3; size += 7) {
+            BitVector pattern = BitVector.of(new boolean[size]).writeBit(true);
+            int expected = Long.SIZE * 7 + 5 - size;
+
+            assertEquals(expected, text.indexOf(pattern));
+            assertEquals(expected, text.lastIndexOf(pattern));
+        }
+
+        BitVector zeros = BitVector.of(new boolean[Long.SIZE * 3]);
+        assertEquals(zeros.size() - 100, zeros.lastIndexOf(BitVector.of(new boolean[100])));
+        assertEquals(zeros.size() - 99, zeros.indexOfAll(BitVector.of(new boolean[100])).length);
+        assertEquals(BitVector.of(new boolean[Long.SIZE * 3 - 100]), zeros.replaceAll(BitVector.of(new boolean[100]), BitVector.emptyVector()));
+    }
+
+    @Test
+    public void replaceAllEmpty() {
+        assertEquals(BitVector.ofBinaryString("1011101"), BitVector.ofBinaryString("010").replaceAll(BitVector.emptyVector(), BitVector.of(true)));
+        assertEquals(BitVector.ofBinaryString("1"), BitVector.emptyVector().replaceAll(BitVector.emptyVector(), BitVector.of(true)));
+    }
+
+    @Test
+    public void shiftAndRotate() {
+        Random rand = random();
+        int[] sizes = {1, 7, 63, 64, 65, 130, 200};
+
+        for (int size : sizes) {
+            boolean[] reference = randomArray(rand, size);
+
+            for (int n = 0; n <= size + 70; n += 3) {
+                boolean[] left = new boolean[size], right = new boolean[size], rotatedLeft = new boolean[size], rotatedRight = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    if (i + n < size) {
+                        left[i + n] = reference[i];
+                    }
+                    if (i - n >= 0) {
+                        right[i - n] = reference[i];
+                    }
+                    rotatedLeft[(i + n) % size] = reference[i];
+                    rotatedRight[((i - n) % size + size) % size] = reference[i];
+                }
+
+                assertEquals(BitVector.of(left), BitVector.of(reference).shiftLeft(n));
+                assertEquals(BitVector.of(right), BitVector.of(reference).shiftRight(n));
+                assertEquals(BitVector.of(rotatedLeft), BitVector.of(reference).rotateLeft(n));
+                assertEquals(BitVector.of(rotatedRight), BitVector.of(reference).rotateRight(n));
+                assertEquals(BitVector.of(concat(new boolean[n], reference)), BitVector.of(reference).shiftLeftAndGrow(n));
+
+                if (n <= size) {
+                    assertEquals(BitVector.of(Arrays.copyOfRange(reference, n, size)), BitVector.of(reference).shiftRightAndShrink(n));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shiftClearsStaleBits() {
+        BitVector vec = BitVector.of(0xFFFF_FFFF, 4);
+        assertEquals(BitVector.ofBinaryString("1110"), vec.copy().shiftRight(1));
+        assertEquals(BitVector.ofBinaryString("00111100"), vec.copy().shiftLeftAndGrow(2).writeBits(0, 2));
+
+        BitVector shrunk = BitVector.of(-1L).shiftRightAndShrink(60);
+        assertEquals(BitVector.ofBinaryString("0000001111"), shrunk.shiftLeftAndGrow(6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shiftThrows() {
+        BitVector.of(true).shiftLeft(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shiftRightAndShrinkThrows() {
+        BitVector.of(true).shiftRightAndShrink(2);
+    }
+
+    @Test
+    public void hashCodeConsistentWithEquals() {
+        assertEquals(new BitVector().hashCode(), BitVector.emptyVector().hashCode());
+        assertEquals(BitVector.of(0x7F, 7).hashCode(), BitVector.of(0xFFFF_FFFF, 7).hashCode());
+        assertEquals(BitVector.of(0x7F, 7), BitVector.of(0xFFFF_FFFF, 7));
+        assertNotEquals(new BitVector(7), new BitVector(8));
+        assertNotEquals(new BitVector(7).hashCode(), new BitVector(8).hashCode());
+
+        Random rand = random();
+        for (int i = 0; i < 128; i++) {
+            boolean[] reference = randomArray(rand, rand.nextInt(Long.SIZE * 4));
+            BitVector written = new BitVector();
+            written.write(reference);
+
+            assertEquals(BitVector.of(reference), written);
+            assertEquals(BitVector.of(reference).hashCode(), written.hashCode());
+        }
+    }
+
+    @Test
+    public void hashCodeInvalidatedOnModification() {
+        Set<BitVector> set = new HashSet<>();
+        BitVector key = BitVector.of(0xABCD_1234);
+        set.add(BitVector.of(0xABCD_1234));
+        set.add(BitVector.of(0xABCD_1235));
+
+        assertTrue(set.contains(key));
+        int hash = key.hashCode();
+
+        key.setBit(0, true);
+        assertNotEquals(hash, key.hashCode());
+        assertTrue(set.contains(key));
+        assertEquals(BitVector.of(0xABCD_1235).hashCode(), key.hashCode());
+
+        key.writeBit(false);
+        assertFalse(set.contains(key));
+        assertEquals(BitVector.of(0xABCD_1235).writeBit(false), key);
+    }
+
+    @Test
+    public void setRangeUncheckedInvalidatesHashCode() {
+        BitVector vector = new BitVector(200);
+        BitVector reference = new BitVector(200);
+        int hash = vector.hashCode();
+
+        vector.setRangeUnchecked(3, 130, true);
+        for (int i = 3; i < 130; i++) {
+            reference.setBit(i, true);
+        }
+        assertNotEquals(hash, vector.hashCode());
+        assertEquals(reference, vector);
+        assertEquals(reference.hashCode(), vector.hashCode());
+
+        hash = vector.hashCode();
+        vector.setRangeUnchecked(64, 128, false);
+        for (int i = 64; i < 128; i++) {
+            reference.setBit(i, false);
+        }
+        assertNotEquals(hash, vector.hashCode());
+        assertEquals(reference, vector);
+        assertEquals(reference.hashCode(), vector.hashCode());
+    }
+
     private boolean[] subArray(boolean[] value, Random rand) {
         int lower = rand.nextInt(value.length), upper = rand.nextInt(value.length);
 
@@ -0,0 +1,143 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BitVectorView} and {@link WritableBitVectorView}.
+ */
+public class BitVectorViewTest {
+    @Test
+    public void viewMatchesSubVector() {
+        Random rand = BitVectorTest.random();
+        boolean[] reference = new boolean[Long.SIZE * 5];
+        for (int i = 0; i < reference.length; i++) {
+            reference[i] = rand.nextBoolean();
+        }
+        BitVector vec = BitVector.of(reference);
+
+        for (int position = 0; position < Long.SIZE * 2; position += 3) {
+            for (int length = 0; length < reference.length - position; length += 7) {
+                BitVectorView view = vec.view(position, length);
+                boolean[] expected = Arrays.copyOfRange(reference, position, position + length);
+
+                assertEquals(length, view.size());
+                assertArrayEquals(expected, view.toBooleanArray());
+                assertEquals(vec.subVector(position, length), view.materialize());
+
+                int cardinality = 0;
+                for (boolean bit : expected) {
+                    cardinality += bit ? 1 : 0;
+                }
+                assertEquals(cardinality, view.cardinality());
+
+                int nextSet = -1;
+                int nextUnset = -1;
+                for (int i = expected.length - 1; i >= 0; i--) {
+                    if (expected[i]) {
+                        nextSet = i;
+                    } else {
+                        nextUnset = i;
+                    }
+                }
+                assertEquals(nextSet, view.nextSetBit(0));
+                assertEquals(nextUnset, view.nextUnsetBit(0));
+
+                if (length >= Long.SIZE) {
+                    assertEquals(vec.getBitsLong(position + 1, Long.SIZE - 1), view.getBitsLong(1, Long.SIZE - 1));
+                    assertTrue(view.matches(1, vec.subVector(position + 1, Long.SIZE - 1)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void viewSharesParent() {
+        BitVector vec = new BitVector(Long.SIZE * 2);
+        BitVectorView view = vec.view(Long.SIZE - 4, 8);
+        BitVector copy = view.materialize();
+
+        vec.setBits(Long.SIZE - 4, 0xA5, 8);
+        assertEquals(0xA5, view.getBits(0, 8));
+        assertEquals(0, copy.getBits(0, 8));
+
+        vec.writeLong(-1L);
+        assertEquals(0xA5, view.getBits(0, 8));
+        assertEquals(0xA, view.subView(4, 4).getBits(0, 4));
+    }
+
+    @Test
+    public void writableView() {
+        BitVector vec = new BitVector(Long.SIZE * 3);
+        WritableBitVectorView view = vec.writableView(Long.SIZE - 10, Long.SIZE + 20);
+
+        view.fill(true);
+        assertEquals(Long.SIZE - 10, vec.nextSetBit(0));
+        assertEquals(Long.SIZE * 2 + 10, vec.nextUnsetBit(Long.SIZE));
+
+        view.setBit(0, false).setBits(1, 0L, Long.SIZE).subView(Long.SIZE + 1, 19).setBits(0, 0, 19);
+        assertEquals(-1, view.nextSetBit(0));
+        assertEquals(new BitVector(Long.SIZE * 3), vec);
+
+        view.set(5, BitVector.of(0xFF, 8));
+        assertEquals(0xFF, vec.getBits(Long.SIZE - 5, 8));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void viewThrows() {
+        new BitVector(10).view(5, 6);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void writableViewSetThrows() {
+        new BitVector(20).writableView(5, 10).setBits(8, 0, 3);
+    }
+
+    @Test
+    public void viewFailsAfterParentShrinks() {
+        BitVector vec = new BitVector(Long.SIZE * 2);
+        BitVectorView view = vec.view(Long.SIZE, Long.SIZE);
+        WritableBitVectorView writable = vec.writableView(Long.SIZE - 4, 8);
+
+        vec.shiftRightAndShrink(4);
+        assertEquals(1, writable.setBit(0, true).getBit(0));
+
+        for (Runnable access : new Runnable[]{() -> view.get(0), () -> view.getBitsLong(0, 8), view::cardinality,
+                () -> view.nextSetBit(0), view::materialize, () -> view.subView(0, 4)}) {
+            try {
+                access.run();
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link EWAHBitVector} against uncompressed {@link BitVector}s.
+ */
+public class EWAHBitVectorTest {
+    /**
+     * Builds a vector of long zero and one runs with dense bursts in between.
+     */
+    private static BitVector bursty(Random rand, int size) {
+        BitVector vector = new BitVector(size);
+        int position = 0;
+
+        while (position < size) {
+            int length = Math.min(rand.nextInt(2000), size - position);
+            switch (rand.nextInt(3)) {
+                case 0:
+                    break;
+                case 1:
+                    for (int i = 0; i < length; i++) {
+                        vector.setBit(position + i, true);
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < length; i++) {
+                        vector.setBit(position + i, rand.nextBoolean());
+                    }
+                    break;
+            }
+            position += length;
+        }
+
+        return vector;
+    }
+
+    private static long cardinality(BitVector vector) {
+        long count = 0;
+        for (int i = vector.nextSetBit(0); i >= 0; i = vector.nextSetBit(i + 1)) {
+            count++;
+        }
+
+        return count;
+    }
+
+    @Test
+    public void emptyVector() {
+        EWAHBitVector vector = new EWAHBitVector();
+
+        assertEquals(0, vector.size());
+        assertEquals(0, vector.cardinality());
+        assertEquals(-1, vector.nextSetBit(0));
+        assertEquals(0, vector.toBitVector().size());
+        assertEquals(new EWAHBitVector(), vector);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        new EWAHBitVector().writeBit(true).get(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setBeforeEnd() {
+        new EWAHBitVector().writeRun(false, 10).set(5);
+    }
+
+    @Test
+    public void appends() {
+        EWAHBitVector vector = new EWAHBitVector()
+                .writeBit(true)
+                .writeRun(false, 1000)
+                .writeBits(0b1011, 4)
+                .writeRun(true, 200)
+                .set(100000)
+                .writeBits(-1L, 64);
+
+        BitVector expected = new BitVector()
+                .writeBit(true)
+                .write(new boolean[1000])
+                .writeBits(0b1011, 4);
+        for (int i = 0; i < 200; i++) {
+            expected.writeBit(true);
+        }
+        expected.write(new boolean[100000 - expected.size()]).writeBit(true).writeBits(-1L, 64);
+
+        assertEquals(expected.size(), vector.size());
+        assertEquals(expected, vector.toBitVector());
+        assertEquals(cardinality(expected), vector.cardinality());
+        assertTrue(vector.get(0));
+        assertFalse(vector.get(500));
+        assertTrue(vector.get(1002));
+        assertFalse(vector.get(1003));
+        assertTrue(vector.get(100000));
+        assertEquals(1001, vector.nextSetBit(1));
+        assertEquals(100000, vector.nextSetBit(1300));
+        assertTrue(vector.sizeInBytes() < 100);
+    }
+
+    @Test
+    public void conversion() {
+        Random rand = BitVectorTest.random();
+        int[] sizes = {1, 63, 64, 65, 127, 128, 1000, 100000};
+
+        for (int size : sizes) {
+            BitVector dense = bursty(rand, size);
+            EWAHBitVector compressed = EWAHBitVector.of(dense);
+
+            assertEquals(dense, compressed.toBitVector());
+            assertEquals(cardinality(dense), compressed.cardinality());
+            for (int i = 0; i < size; i++) {
+                assertEquals(dense.get(i), compressed.get(i));
+                assertEquals(dense.nextSetBit(i), compressed.nextSetBit(i));
+            }
+        }
+    }
+
+    @Test
+    public void logicalOperations() {
+        Random rand = BitVectorTest.random();
+
+        for (int round = 0; round < 20; round++) {
+            int size = 1 + rand.nextInt(200000);
+            BitVector a = bursty(rand, size);
+            BitVector b = bursty(rand, size);
+            EWAHBitVector x = EWAHBitVector.of(a);
+            EWAHBitVector y = EWAHBitVector.of(b);
+
+            assertEquals(a.or(b), x.or(y).toBitVector());
+            assertEquals(a.and(b), x.and(y).toBitVector());
+            assertEquals(a.xor(b), x.xor(y).toBitVector());
+            assertEquals(a.andNot(b), x.andNot(y).toBitVector());
+            assertEquals(a.not(), x.not().toBitVector());
+            assertEquals(EWAHBitVector.of(a.and(b)), x.and(y));
+            assertEquals(EWAHBitVector.of(a.and(b)).hashCode(), x.and(y).hashCode());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMismatch() {
+        new EWAHBitVector().writeRun(false, 10).or(new EWAHBitVector().writeRun(false, 11));
+    }
+
+    @Test
+    public void equalsAndHashCode() {
+        Random rand = BitVectorTest.random();
+        BitVector dense = bursty(rand, 50000);
+        EWAHBitVector a = EWAHBitVector.of(dense);
+        EWAHBitVector b = a.copy();
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        dense.setBit(49999, !dense.get(49999));
+        assertNotEquals(a, EWAHBitVector.of(dense));
+        assertNotEquals(a, b.copy().writeBit(false));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link EliasFanoSequence} against sorted reference arrays.
+ */
+public class EliasFanoSequenceTest {
+    private static long[] sorted(Random rand, int size, long bound) {
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (long) (rand.nextDouble() * bound);
+        }
+        Arrays.sort(values);
+
+        return values;
+    }
+
+    @Test
+    public void emptySequence() {
+        EliasFanoSequence sequence = EliasFanoSequence.of(new long[0]);
+
+        assertEquals(0, sequence.size());
+        assertEquals(0, sequence.indexOfGEQ(0));
+        assertEquals(-1, sequence.nextGEQ(0));
+        assertEquals(0, sequence.toLongArray().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsortedValues() {
+        EliasFanoSequence.of(new int[]{1, 5, 3});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeValues() {
+        EliasFanoSequence.of(new int[]{-1, 5});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void largeEarlyValue() {
+        EliasFanoSequence.of(new long[]{1000, 5});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLastValue() {
+        EliasFanoSequence.of(new long[]{100, -1});
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        EliasFanoSequence.of(new int[]{1, 2}).get(2);
+    }
+
+    @Test
+    public void smallSequence() {
+        EliasFanoSequence sequence = EliasFanoSequence.of(new int[]{2, 3, 5, 7, 11, 13, 24});
+
+        assertEquals(1, sequence.lowerBits());
+        assertArrayEquals(new int[]{2, 3, 5, 7, 11, 13, 24}, sequence.toIntArray());
+        assertEquals(11, sequence.get(4));
+        assertEquals(4, sequence.indexOfGEQ(8));
+        assertEquals(13, sequence.nextGEQ(12));
+        assertEquals(24, sequence.nextGEQ(14));
+        assertEquals(-1, sequence.nextGEQ(25));
+    }
+
+    @Test
+    public void randomSequences() {
+        Random rand = BitVectorTest.random();
+        int[] sizes = {1, 2, 255, 256, 257, 1000, 20000};
+        long[] bounds = {1, 100, 1 << 20, 1L << 40, Long.MAX_VALUE / 2};
+
+        for (int size : sizes) {
+            for (long bound : bounds) {
+                long[] values = sorted(rand, size, bound);
+                EliasFanoSequence sequence = EliasFanoSequence.of(values);
+
+                assertArrayEquals(values, sequence.toLongArray());
+                for (int i = 0; i < size; i++) {
+                    assertEquals(values[i], sequence.get(i));
+                }
+
+                for (int probe = 0; probe < 200; probe++) {
+                    long target = probe % 2 == 0 ? values[rand.nextInt(size)] + rand.nextInt(3) - 1 : (long) (rand.nextDouble() * bound);
+                    int expected = 0;
+                    while (expected < size && values[expected] < target) {
+                        expected++;
+                    }
+                    assertEquals(expected, sequence.indexOfGEQ(target));
+                }
+
+                int from = rand.nextInt(size);
+                long[] range = new long[size - from + 2];
+                sequence.decode(from, range, 2, size - from);
+                assertArrayEquals(Arrays.copyOfRange(values, from, size), Arrays.copyOfRange(range, 2, range.length));
+            }
+        }
+    }
+
+    @Test
+    public void duplicatesAndIntDecode() {
+        int[] values = new int[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i / 7) * 1000;
+        }
+        EliasFanoSequence sequence = EliasFanoSequence.of(values);
+
+        assertArrayEquals(values, sequence.toIntArray());
+        assertEquals(7, sequence.indexOfGEQ(1));
+        assertEquals(14, sequence.indexOfGEQ(2000));
+        assertTrue(sequence.sizeInBits() < values.length * (2 + sequence.lowerBits() + 1));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link RankSelectIndex} against naive counting.
+ */
+public class RankSelectIndexTest {
+    @Test
+    public void emptyVector() {
+        RankSelectIndex index = new RankSelectIndex(BitVector.emptyVector());
+
+        assertEquals(0, index.rank1(0));
+        assertEquals(0, index.rank0(0));
+        assertEquals(-1, index.select1(0));
+        assertEquals(-1, index.select0(0));
+    }
+
+    @Test
+    public void rankSelect() {
+        Random rand = BitVectorTest.random();
+        int[] sizes = {1, 63, 64, 65, 511, 512, 513, 4095, 4096, 4097, 20000};
+
+        for (int size : sizes) {
+            for (int density = 1; density <= 64; density *= 4) {
+                boolean[] reference = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    reference[i] = rand.nextInt(64) < density;
+                }
+
+                checkAgainst(reference, new RankSelectIndex(BitVector.of(reference)));
+            }
+        }
+    }
+
+    @Test
+    public void ignoresBitsBeyondSize() {
+        RankSelectIndex index = new RankSelectIndex(BitVector.of(0xFFFF_FFF0, 7));
+
+        assertEquals(3, index.ones());
+        assertEquals(4, index.zeros());
+        assertEquals(-1, index.select1(3));
+        assertEquals(-1, index.select0(4));
+    }
+
+    @Test
+    public void rebuildsAfterModification() {
+        BitVector vec = new BitVector(5000);
+        RankSelectIndex index = new RankSelectIndex(vec);
+        assertEquals(0, index.ones());
+
+        vec.setBit(4000, true);
+        assertEquals(1, index.ones());
+        assertEquals(4000, index.select1(0));
+
+        vec.writeBits(0xFF, 8);
+        assertEquals(9, index.ones());
+        assertEquals(5007, index.select1(8));
+
+        vec.andInPlace(new BitVector(vec.size()));
+        assertEquals(0, index.ones());
+        assertEquals(-1, index.select1(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rankThrows() {
+        new RankSelectIndex(new BitVector(10)).rank1(11);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void selectThrows() {
+        new RankSelectIndex(new BitVector(10)).select1(-1);
+    }
+
+    private static void checkAgainst(boolean[] reference, RankSelectIndex index) {
+        int ones = 0;
+        int zeros = 0;
+
+        for (int i = 0; i < reference.length; i++) {
+            assertEquals(ones, index.rank1(i));
+            assertEquals(zeros, index.rank0(i));
+
+            if (reference[i]) {
+                assertEquals(i, index.select1(ones));
+                ones++;
+            } else {
+                assertEquals(i, index.select0(zeros));
+                zeros++;
+            }
+        }
+
+        assertEquals(ones, index.rank1(reference.length));
+        assertEquals(ones, index.ones());
+        assertEquals(zeros, index.zeros());
+        assertEquals(-1, index.select1(ones));
+        assertEquals(-1, index.select0(zeros));
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.bitvectors;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SparseBitVector} against a TreeSet reference.
+ */
+public class SparseBitVectorTest {
+    private static TreeSet<Long> reference(SparseBitVector vector) {
+        TreeSet<Long> set = new TreeSet<>();
+        vector.forEach(index -> set.add(Integer.toUnsignedLong(index)));
+        return set;
+    }
+
+    private static int[] toArray(TreeSet<Long> set) {
+        return set.stream().mapToInt(Long::intValue).toArray();
+    }
+
+    /**
+     * Fills a vector and a reference set with a mix of scattered bits, dense chunks and runs.
+     */
+    private static SparseBitVector randomVector(Random rand, TreeSet<Long> reference) {
+        SparseBitVector vector = new SparseBitVector();
+        int[] chunks = {0, 1, 7, 0x7FFF, 0x8000, 0xFFFF};
+
+        for (int chunk : chunks) {
+            int base = chunk << 16;
+            switch (rand.nextInt(4)) {
+                case 0:
+                    for (int i = 0; i < 100; i++) {
+                        int index = base | rand.nextInt(1 << 16);
+                        vector.set(index);
+                        reference.add(Integer.toUnsignedLong(index));
+                    }
+                    break;
+                case 1:
+                    for (int i = 0; i < 20000; i++) {
+                        int index = base | rand.nextInt(1 << 16);
+                        vector.set(index);
+                        reference.add(Integer.toUnsignedLong(index));
+                    }
+                    break;
+                case 2:
+                    for (int run = 0; run < 10; run++) {
+                        int start = rand.nextInt(1 << 16);
+                        int end = Math.min(start + rand.nextInt(5000), (1 << 16) - 1);
+                        for (int index = start; index <= end; index++) {
+                            vector.set(base | index);
+                            reference.add(Integer.toUnsignedLong(base | index));
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return vector;
+    }
+
+    @Test
+    public void emptyVector() {
+        SparseBitVector vector = new SparseBitVector();
+
+        assertTrue(vector.isEmpty());
+        assertEquals(0, vector.cardinality());
+        assertEquals(-1, vector.nextSetBit(0));
+        assertEquals(-1, vector.lastSetBit());
+        assertFalse(vector.get(0));
+        assertEquals(0, vector.toBitVector().size());
+        assertEquals("SparseBitVector{}", vector.toString());
+    }
+
+    @Test
+    public void setAndClear() {
+        SparseBitVector vector = SparseBitVector.of(5, -1, 0x10000, 3);
+
+        assertEquals(4, vector.cardinality());
+        assertTrue(vector.get(-1));
+        assertTrue(vector.get(0x10000));
+        assertFalse(vector.get(4));
+        assertArrayEquals(new int[]{3, 5, 0x10000, -1}, vector.toArray());
+        assertEquals(0xFFFF_FFFFL, vector.lastSetBit());
+        assertEquals("SparseBitVector{3, 5, 65536, 4294967295}", vector.toString());
+
+        vector.setBit(5, false).clear(-1).clear(12345);
+        assertArrayEquals(new int[]{3, 0x10000}, vector.toArray());
+        assertEquals(2, vector.containerCount());
+
+        vector.clear(0x10000);
+        assertEquals(1, vector.containerCount());
+    }
+
+    @Test
+    public void nextSetBit() {
+        SparseBitVector vector = SparseBitVector.of(10, 70000, -5);
+
+        assertEquals(10, vector.nextSetBit(0));
+        assertEquals(10, vector.nextSetBit(10));
+        assertEquals(70000, vector.nextSetBit(11));
+        assertEquals(0xFFFF_FFFBL, vector.nextSetBit(70001));
+        assertEquals(-1, vector.nextSetBit(0xFFFF_FFFCL));
+        assertEquals(-1, vector.nextSetBit(1L << 32));
+    }
+
+    @Test
+    public void containersAdapt() {
+        SparseBitVector vector = new SparseBitVector();
+        for (int i = 0; i < Container.MAX_ARRAY_SIZE; i++) {
+            vector.set(i * 2);
+        }
+        assertTrue(vector.containerAt(0) instanceof ArrayContainer);
+
+        vector.set(1);
+        assertTrue(vector.containerAt(0) instanceof BitmapContainer);
+
+        vector.clear(1).clear(2);
+        assertTrue(vector.containerAt(0) instanceof ArrayContainer);
+
+        SparseBitVector runs = new SparseBitVector();
+        for (int i = 1000; i < 60000; i++) {
+            runs.set(i);
+        }
+        long before = runs.sizeInBytes();
+        runs.runOptimize();
+        assertTrue(runs.containerAt(0) instanceof RunContainer);
+        assertTrue(runs.sizeInBytes() < before);
+        assertEquals(59000, runs.cardinality());
+
+        runs.clear(30000).clear(1000).clear(59999).set(30000).set(60000).set(999).set(500);
+        TreeSet<Long> expected = new TreeSet<>();
+        for (long i = 999; i <= 60000; i++) {
+            expected.add(i);
+        }
+        expected.add(500L);
+        expected.remove(1000L);
+        expected.remove(59999L);
+        assertEquals(expected, reference(runs));
+        assertEquals(expected.size(), runs.cardinality());
+        assertTrue(runs.get(30000));
+        assertFalse(runs.get(1000));
+    }
+
+    @Test
+    public void logicalOperations() {
+        Random rand = BitVectorTest.random();
+
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Long> a = new TreeSet<>();
+            TreeSet<Long> b = new TreeSet<>();
+            SparseBitVector x = randomVector(rand, a);
+            SparseBitVector y = randomVector(rand, b);
+            if (round % 2 == 0) {
+                x.runOptimize();
+            }
+            if (round % 3 == 0) {
+                y.runOptimize();
+            }
+
+            TreeSet<Long> or = new TreeSet<>(a);
+            or.addAll(b);
+            TreeSet<Long> and = new TreeSet<>(a);
+            and.retainAll(b);
+            TreeSet<Long> andNot = new TreeSet<>(a);
+            andNot.removeAll(b);
+            TreeSet<Long> xor = new TreeSet<>(or);
+            xor.removeAll(and);
+
+            assertArrayEquals(toArray(or), x.or(y).toArray());
+            assertArrayEquals(toArray(and), x.and(y).toArray());
+            assertArrayEquals(toArray(andNot), x.andNot(y).toArray());
+            assertArrayEquals(toArray(xor), x.xor(y).toArray());
+            assertEquals(or.size(), x.or(y).cardinality());
+            assertEquals(xor.size(), x.xor(y).cardinality());
+            assertTrue(x.xor(x).isEmpty());
+            assertEquals(toArray(a).length, x.cardinality());
+        }
+    }
+
+    @Test
+    public void equalsAcrossRepresentations() {
+        Random rand = BitVectorTest.random();
+        TreeSet<Long> reference = new TreeSet<>();
+        SparseBitVector vector = randomVector(rand, reference);
+        SparseBitVector optimized = vector.copy().runOptimize();
+
+        assertEquals(vector, optimized);
+        assertEquals(vector.hashCode(), optimized.hashCode());
+        assertNotEquals(vector, optimized.copy().set(123456789));
+    }
+
+    @Test
+    public void bitVectorConversion() {
+        Random rand = BitVectorTest.random();
+        int[] sizes = {1, 63, 64, 65, 65535, 65536, 65537, 300000};
+
+        for (int size : sizes) {
+            BitVector dense = new BitVector(size);
+            for (int i = 0; i < size / 8 + 1; i++) {
+                dense.setBit(rand.nextInt(size), true);
+            }
+            dense.setBit(size - 1, true);
+
+            SparseBitVector sparse = SparseBitVector.of(dense);
+            assertEquals(dense, sparse.toBitVector());
+            for (int i = dense.nextSetBit(0); i >= 0; i = dense.nextSetBit(i + 1)) {
+                assertTrue(sparse.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.BitInputStream;
+import com.github.psygate.bitutils.bitstreams.BitOutputStream;
+import com.github.psygate.bitutils.bitstreams.ByteArrayBitInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class HuffmanCodeTest {
+    @Test
+    public void testOptimalLengths() {
+        HuffmanCode code = HuffmanCode.fromFrequencies(new long[]{1, 1, 2, 4, 0}, HuffmanCode.MAX_CODE_LENGTH);
+        Assert.assertArrayEquals(new int[]{3, 3, 2, 1, 0}, code.getLengths());
+        Assert.assertEquals(3, code.maxLength());
+    }
+
+    @Test
+    public void testCanonicalCodes() throws IOException {
+        // DEFLATE example: lengths 3,3,3,3,3,2,4,4 give codes 010,011,100,101,110,00,1110,1111.
+        HuffmanCode code = HuffmanCode.fromLengths(new int[]{3, 3, 3, 3, 3, 2, 4, 4});
+        String[] expected = {"010", "011", "100", "101", "110", "00", "1110", "1111"};
+
+        for (int symbol = 0; symbol < expected.length; symbol++) {
+            ByteArrayOutputStream base = new ByteArrayOutputStream();
+            BitOutputStream out = new BitOutputStream(base);
+            code.write(out, symbol);
+            out.close();
+
+            ByteArrayBitInputStream in = new ByteArrayBitInputStream(base.toByteArray());
+            StringBuilder bits = new StringBuilder();
+            for (int i = 0; i < code.length(symbol); i++) {
+                bits.append(in.readBit());
+            }
+            Assert.assertEquals(expected[symbol], bits.toString());
+        }
+    }
+
+    @Test
+    public void testLengthLimit() {
+        // Fibonacci frequencies produce a maximally deep tree.
+        long[] frequencies = new long[40];
+        frequencies[0] = 1;
+        frequencies[1] = 1;
+        for (int i = 2; i < frequencies.length; i++) {
+            frequencies[i] = frequencies[i - 1] + frequencies[i - 2];
+        }
+
+        for (int limit = 6; limit <= 20; limit++) {
+            HuffmanCode code = HuffmanCode.fromFrequencies(frequencies, limit);
+            Assert.assertTrue(code.maxLength() <= limit);
+
+            double kraft = 0;
+            for (int length : code.getLengths()) {
+                kraft += Math.pow(2, -length);
+            }
+            Assert.assertEquals(1.0, kraft, 1e-9);
+        }
+    }
+
+    @Test
+    public void testSkewedFrequencies() throws IOException {
+        // Unlimited, 60 Fibonacci frequencies would need codes of 59 bits.
+        long[] frequencies = new long[60];
+        frequencies[0] = 1;
+        frequencies[1] = 1;
+        for (int i = 2; i < frequencies.length; i++) {
+            frequencies[i] = frequencies[i - 1] + frequencies[i - 2];
+        }
+
+        HuffmanCode code = HuffmanCode.fromFrequencies(frequencies, HuffmanCode.MAX_CODE_LENGTH);
+        Assert.assertEquals(HuffmanCode.MAX_CODE_LENGTH, code.maxLength());
+
+        int[] data = new int[frequencies.length * 3];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i % frequencies.length;
+        }
+
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base);
+        code.write(out, data, 0, data.length);
+        out.close();
+
+        int[] read = new int[data.length];
+        code.read(new ByteArrayBitInputStream(base.toByteArray()), read, 0, read.length);
+        Assert.assertArrayEquals(data, read);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLengthAboveMaximum() {
+        HuffmanCode.fromLengths(new int[]{1, HuffmanCode.MAX_CODE_LENGTH + 1});
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random rand = new Random(24);
+        int symbols = 300;
+        long[] frequencies = new long[symbols];
+        int[] data = new int[20000];
+        for (int i = 0; i < data.length; i++) {
+            // Geometric distribution, so there are both very short and long codes.
+            data[i] = Math.min(symbols - 1, (int) (-Math.log(1 - rand.nextDouble()) * 20));
+            frequencies[data[i]]++;
+        }
+
+        for (int limit : new int[]{9, 12, HuffmanCode.MAX_CODE_LENGTH}) {
+            HuffmanCode code = HuffmanCode.fromFrequencies(frequencies, limit);
+            ByteArrayOutputStream base = new ByteArrayOutputStream();
+            BitOutputStream out = new BitOutputStream(base);
+            out.writeBits(0x3, 2);
+            code.write(out, data, 0, data.length);
+            out.close();
+
+            AbstractBitInputStream[] inputs = {
+                    new ByteArrayBitInputStream(base.toByteArray()),
+                    new BitInputStream(new ByteArrayInputStream(base.toByteArray()), 3)
+            };
+            for (AbstractBitInputStream in : inputs) {
+                in.readBits(2);
+                int[] read = new int[data.length];
+                code.read(in, read, 0, 100);
+                for (int i = 100; i < 200; i++) {
+                    read[i] = code.read(in);
+                }
+                code.read(in, read, 200, data.length - 200);
+                Assert.assertArrayEquals(data, read);
+            }
+
+            Assert.assertArrayEquals(code.getLengths(), HuffmanCode.fromLengths(code.getLengths()).getLengths());
+        }
+    }
+
+    @Test
+    public void testSingleSymbol() throws IOException {
+        HuffmanCode code = HuffmanCode.fromFrequencies(new long[]{0, 5}, 8);
+        Assert.assertEquals(1, code.length(1));
+
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base);
+        code.write(out, new int[]{1, 1, 1}, 0, 3);
+        out.close();
+
+        int[] read = new int[3];
+        code.read(new ByteArrayBitInputStream(base.toByteArray()), read, 0, 3);
+        Assert.assertArrayEquals(new int[]{1, 1, 1}, read);
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidCode() throws IOException {
+        HuffmanCode code = HuffmanCode.fromLengths(new int[]{1, 2});
+        code.read(new ByteArrayBitInputStream(new byte[]{(byte) 0xFF}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOversubscribed() {
+        HuffmanCode.fromLengths(new int[]{1, 1, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingSymbol() throws IOException {
+        HuffmanCode.fromLengths(new int[]{1, 0, 1}).write(new BitOutputStream(new ByteArrayOutputStream()), 1);
+    }
+}
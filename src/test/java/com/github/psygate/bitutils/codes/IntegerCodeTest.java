@@ -0,0 +1,210 @@
+/*
+ *
+ * MIT License
+ *
+ * Copyright (c) 2017 psygate (https://github.com/psygate)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.psygate.bitutils.codes;
+
+import com.github.psygate.bitutils.bitstreams.AbstractBitInputStream;
+import com.github.psygate.bitutils.bitstreams.BitInputStream;
+import com.github.psygate.bitutils.bitstreams.BitOutputStream;
+import com.github.psygate.bitutils.bitstreams.ByteArrayBitInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+public class IntegerCodeTest {
+    private static IntegerCode[] codes() {
+        return new IntegerCode[]{
+                new EliasGammaCode(),
+                new EliasDeltaCode(),
+                new ExpGolombCode(0),
+                new ExpGolombCode(3),
+                new ExpGolombCode(40),
+                new RiceCode(0),
+                new RiceCode(4),
+                new RiceCode(60),
+                new GolombCode(1),
+                new GolombCode(3),
+                new GolombCode(10),
+                new GolombCode(1000),
+                new GolombCode(1L << 40)
+        };
+    }
+
+    @Test
+    public void testKnownCodes() throws IOException {
+        Assert.assertEquals("1", encode(new EliasGammaCode(), 1));
+        Assert.assertEquals("010", encode(new EliasGammaCode(), 2));
+        Assert.assertEquals("011", encode(new EliasGammaCode(), 3));
+        Assert.assertEquals("00110", encode(new EliasGammaCode(), 5));
+        Assert.assertEquals("1", encode(new EliasDeltaCode(), 1));
+        Assert.assertEquals("0101", encode(new EliasDeltaCode(), 3));
+        Assert.assertEquals("1", encode(new ExpGolombCode(0), 0));
+        Assert.assertEquals("100", encode(new ExpGolombCode(2), 0));
+        Assert.assertEquals("0110", encode(new RiceCode(2), 5));
+        Assert.assertEquals("10", encode(new GolombCode(3), 0));
+        Assert.assertEquals("111", encode(new GolombCode(3), 2));
+        Assert.assertEquals("0110", encode(new GolombCode(3), 4));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random rand = new Random(21);
+
+        for (IntegerCode code : codes()) {
+            long[] values = new long[3000];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = randomValue(code, rand);
+            }
+
+            ByteArrayOutputStream base = new ByteArrayOutputStream();
+            BitOutputStream out = new BitOutputStream(base);
+            long bits = 0;
+            for (long value : values) {
+                code.write(out, value);
+                bits += code.length(value);
+                Assert.assertEquals(bits, out.getPosition());
+            }
+            out.close();
+
+            AbstractBitInputStream[] inputs = {
+                    new ByteArrayBitInputStream(base.toByteArray()),
+                    new BitInputStream(new ByteArrayInputStream(base.toByteArray()), 7)
+            };
+            for (AbstractBitInputStream in : inputs) {
+                for (int i = 0; i < values.length; i++) {
+                    Assert.assertEquals(code.getClass().getSimpleName() + " @" + i, values[i], code.read(in));
+                }
+                Assert.assertEquals(bits, in.getPosition());
+            }
+        }
+    }
+
+    @Test
+    public void testBulkRoundTrip() throws IOException {
+        Random rand = new Random(22);
+
+        for (IntegerCode code : codes()) {
+            int[] values = new int[5000];
+            for (int i = 0; i < values.length; i++) {
+                // Mostly short codes, so the bulk loop decodes several values per window.
+                long value = rand.nextInt(10) == 0 ? rand.nextInt(Integer.MAX_VALUE) : rand.nextInt(20);
+                if (code instanceof RiceCode || code instanceof GolombCode) {
+                    value = Math.min(value, maxValue(code, rand));
+                }
+                values[i] = (int) Math.max(code.minValue(), value);
+            }
+
+            ByteArrayOutputStream base = new ByteArrayOutputStream();
+            BitOutputStream out = new BitOutputStream(base);
+            out.writeBits(1, 3);
+            code.write(out, values, 0, values.length);
+            out.close();
+
+            ByteArrayBitInputStream in = new ByteArrayBitInputStream(base.toByteArray());
+            in.readBits(3);
+            int[] read = new int[values.length + 2];
+            code.read(in, read, 1, values.length);
+            for (int i = 0; i < values.length; i++) {
+                Assert.assertEquals(code.getClass().getSimpleName() + " @" + i, values[i], read[i + 1]);
+            }
+            Assert.assertEquals(0, in.availableBits() / Byte.SIZE);
+        }
+    }
+
+    @Test
+    public void testInvalidValues() {
+        for (IntegerCode code : codes()) {
+            try {
+                code.write(new BitOutputStream(new ByteArrayOutputStream()), code.minValue() - 1);
+                Assert.fail(code.getClass().getSimpleName());
+            } catch (IllegalArgumentException | IOException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base);
+        new EliasGammaCode().write(out, 1L << 20);
+        out.close();
+
+        byte[] data = base.toByteArray();
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(Arrays.copyOf(data, data.length - 2));
+        new EliasGammaCode().read(in);
+    }
+
+    private static long randomValue(IntegerCode code, Random rand) {
+        long value;
+        switch (rand.nextInt(3)) {
+            case 0:
+                value = rand.nextInt(16);
+                break;
+            case 1:
+                value = rand.nextInt(1 << 20);
+                break;
+            default:
+                value = rand.nextLong() >>> (1 + rand.nextInt(Long.SIZE - 1));
+        }
+
+        if (code instanceof RiceCode || code instanceof GolombCode) {
+            value = Math.min(value, maxValue(code, rand));
+        } else if (code instanceof ExpGolombCode) {
+            value = Math.min(value, Long.MAX_VALUE - (1L << ((ExpGolombCode) code).getOrder()));
+        }
+
+        return Math.max(code.minValue(), value);
+    }
+
+    /**
+     * Caps values for unary heavy codes, so quotients stay reasonably short.
+     */
+    private static long maxValue(IntegerCode code, Random rand) {
+        long divisor = code instanceof RiceCode ? 1L << ((RiceCode) code).getParameter() : ((GolombCode) code).getDivisor();
+        return divisor > Long.MAX_VALUE / 400 ? Long.MAX_VALUE : divisor * 300 + rand.nextInt(1000);
+    }
+
+    private static String encode(IntegerCode code, long value) throws IOException {
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        BitOutputStream out = new BitOutputStream(base);
+        code.write(out, value);
+        int length = (int) out.getPosition();
+        out.close();
+
+        ByteArrayBitInputStream in = new ByteArrayBitInputStream(base.toByteArray());
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(in.readBit());
+        }
+
+        return builder.toString();
+    }
+}